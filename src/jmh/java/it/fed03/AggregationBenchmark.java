@@ -0,0 +1,61 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Person;
+import it.unifi.cassandra.scheduling.model.Requirement;
+import it.unifi.cassandra.scheduling.util.ScheduleManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AggregationBenchmark {
+
+    @Benchmark
+    public void scheduleManagerQueries(ScenarioState state, Blackhole blackhole) {
+        for (Person person : state.workedHours.people()) {
+            ScheduleManager scheduleManager = new ScheduleManager(state.schedule);
+            blackhole.consume(scheduleManager.peopleWorkedHoursGroupedByRequirement(person));
+            blackhole.consume(scheduleManager.personWorkedHours(person));
+        }
+        for (Requirement requirement : state.scenario) {
+            ScheduleManager scheduleManager = new ScheduleManager(state.schedule);
+            blackhole.consume(scheduleManager.peopleWorkedHoursByRequirement(requirement));
+            blackhole.consume(scheduleManager.totalWorkedHoursByRequirement(requirement));
+        }
+        ScheduleManager scheduleManager = new ScheduleManager(state.schedule);
+        blackhole.consume(scheduleManager.peopleTotalWorkedHours());
+        blackhole.consume(scheduleManager.totalWorkedHours());
+    }
+
+    @Benchmark
+    public WorkedHoursCube buildWorkedHoursCube(ScenarioState state) {
+        return new WorkedHoursCube(state.schedule);
+    }
+
+    @Benchmark
+    public void workedHoursCubeQueries(ScenarioState state, Blackhole blackhole) {
+        WorkedHoursCube workedHours = new WorkedHoursCube(state.schedule);
+        WorkedHoursCube.DailyHoursConsumer consumer = (day, hours) -> {
+            blackhole.consume(day);
+            blackhole.consume(hours);
+        };
+        for (Person person : workedHours.people()) {
+            for (Requirement requirement : workedHours.requirementsOf(person)) {
+                workedHours.personRequirementHours(person, requirement, consumer);
+            }
+            workedHours.personHours(person, consumer);
+        }
+        for (Requirement requirement : state.scenario) {
+            for (Person person : workedHours.peopleOf(requirement)) {
+                workedHours.personRequirementHours(person, requirement, consumer);
+            }
+            workedHours.requirementHours(requirement, consumer);
+        }
+        workedHours.totalHours(consumer);
+    }
+}
@@ -0,0 +1,147 @@
+package it.fed03;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Runs the benchmarks, writes the JMH results as JSON and, when a baseline result file is given,
+ * fails with exit code 1 if any benchmark got slower than the allowed threshold.
+ * <p>
+ * {@code java -jar benchmarks.jar [-baseline file] [-threshold 0.10] [-out file] [jmh options]}
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, IOException, CommandLineOptionException {
+        Path baseline = null;
+        Path output = Paths.get("target", "jmh-result.json");
+        double threshold = 0.10;
+        List<String> jmhArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-baseline":
+                    baseline = Paths.get(args[++i]);
+                    break;
+                case "-threshold":
+                    threshold = Double.parseDouble(args[++i]);
+                    break;
+                case "-out":
+                    output = Paths.get(args[++i]);
+                    break;
+                default:
+                    jmhArgs.add(args[i]);
+            }
+        }
+
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(jmhArgs.toArray(new String[0])))
+                .resultFormat(ResultFormatType.JSON)
+                .result(output.toString())
+                .build()).run();
+
+        if (baseline != null) {
+            List<String> regressions = compare(readScores(baseline), readScores(output), threshold);
+            regressions.forEach(System.out::println);
+            if (!regressions.isEmpty()) {
+                System.exit(1);
+            }
+        }
+    }
+
+    static List<String> compare(Map<String, Score> baseline, Map<String, Score> current, double threshold) {
+        List<String> regressions = new ArrayList<>();
+        current.forEach((benchmark, score) -> {
+            Score reference = baseline.get(benchmark);
+            if (reference == null || reference.value == 0) {
+                return;
+            }
+            // throughput units ("ops/ms") improve upwards, average time units ("ms/op") downwards
+            double change = score.unit.startsWith("ops/")
+                    ? (reference.value - score.value) / reference.value
+                    : (score.value - reference.value) / reference.value;
+            String line = String.format("%s: %.3f -> %.3f %s (%+.1f%%)", benchmark, reference.value, score.value, score.unit, change * 100);
+            System.out.println(line);
+            if (change > threshold) {
+                regressions.add("REGRESSION " + line);
+            }
+        });
+        return regressions;
+    }
+
+    static Map<String, Score> readScores(Path results) throws IOException {
+        Map<String, Score> scores = new TreeMap<>();
+        try (JsonParser parser = new JsonFactory().createParser(results.toFile())) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Not a JMH JSON result file: " + results);
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String benchmark = null;
+                Map<String, String> params = new TreeMap<>();
+                Score score = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    if (field.equals("benchmark")) {
+                        benchmark = parser.getText();
+                    } else if (field.equals("params")) {
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String param = parser.getCurrentName();
+                            parser.nextToken();
+                            params.put(param, parser.getText());
+                        }
+                    } else if (field.equals("primaryMetric")) {
+                        score = readPrimaryMetric(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                if (benchmark != null && score != null) {
+                    scores.put(params.isEmpty() ? benchmark : benchmark + params, score);
+                }
+            }
+        }
+        return scores;
+    }
+
+    private static Score readPrimaryMetric(JsonParser parser) throws IOException {
+        double value = Double.NaN;
+        String unit = "";
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (field.equals("score")) {
+                value = parser.getDoubleValue();
+            } else if (field.equals("scoreUnit")) {
+                unit = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new Score(value, unit);
+    }
+
+    static class Score {
+        final double value;
+        final String unit;
+
+        Score(double value, String unit) {
+            this.value = value;
+            this.unit = unit;
+        }
+    }
+}
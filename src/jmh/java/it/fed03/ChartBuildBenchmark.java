@@ -0,0 +1,51 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Person;
+import org.jfree.chart.JFreeChart;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ChartBuildBenchmark {
+    private final BufferedImage image = new BufferedImage(896, 672, BufferedImage.TYPE_INT_RGB);
+
+    @Param({"none", "bucket", "lttb"})
+    String reduction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("charts.reduction", reduction);
+    }
+
+    @Benchmark
+    public JFreeChart buildTotalChart(ScenarioState state) {
+        return GraphGenerator.generateTotalWorkedHours(state.workedHours, "edf");
+    }
+
+    @Benchmark
+    public JFreeChart buildPersonChart(ScenarioState state) {
+        Person person = state.workedHours.people().get(0);
+        return GraphGenerator.generatePersonWorkedHours(state.workedHours, person, "edf");
+    }
+
+    @Benchmark
+    public BufferedImage rasterizeTotalChart(ScenarioState state) {
+        JFreeChart chart = GraphGenerator.generateTotalWorkedHours(state.workedHours, "edf");
+        Graphics2D g2 = image.createGraphics();
+        try {
+            chart.draw(g2, new Rectangle2D.Double(0, 0, image.getWidth(), image.getHeight()), null, null);
+        } finally {
+            g2.dispose();
+        }
+        return image;
+    }
+}
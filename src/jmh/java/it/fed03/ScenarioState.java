@@ -0,0 +1,37 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Requirement;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+@State(Scope.Benchmark)
+public class ScenarioState {
+    static final long SEED = 20170301L;
+
+    @Param({"100", "1000", "5000"})
+    int requirements;
+
+    @Param({"0.05", "0.2"})
+    double overlapDensity;
+
+    Set<Requirement> scenario;
+    List<Allocation> schedule;
+    WorkedHoursCube workedHours;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        scenario = scenario(requirements, overlapDensity);
+        schedule = new ArrayList<>(Algorithm.EDF.problem(scenario).generateSchedule());
+        schedule.sort(Comparator.comparing(Allocation::getDay));
+        workedHours = new WorkedHoursCube(schedule);
+    }
+
+    static Set<Requirement> scenario(int requirements, double overlapDensity) {
+        return new ScenarioGenerator(SEED).generate(Math.max(3, requirements / 25), requirements, overlapDensity);
+    }
+}
@@ -0,0 +1,39 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Requirement;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ScheduleGenerationBenchmark {
+    @Param({"100", "1000", "5000"})
+    int requirements;
+
+    @Param({"0.05", "0.2"})
+    double overlapDensity;
+
+    @Param({"EDF", "FED"})
+    Algorithm algorithm;
+
+    private Set<Requirement> scenario;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        // generation fills Assertion.allocations(), so every invocation gets a fresh model
+        scenario = ScenarioState.scenario(requirements, overlapDensity);
+    }
+
+    @Benchmark
+    public Collection<Allocation> generateSchedule() {
+        return algorithm.problem(scenario).generateSchedule();
+    }
+}
@@ -0,0 +1,79 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.Problem;
+import it.unifi.cassandra.scheduling.ScheduleGenerator;
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Requirement;
+import it.unifi.cassandra.scheduling.solver.FEDScheduleGenerator;
+import it.unifi.cassandra.scheduling.solver.edf.EDFSchedulabilityAnalysis;
+import it.unifi.cassandra.scheduling.solver.edf.EDFScheduleGenerator;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Function;
+
+public enum Algorithm {
+    EDF(capacities -> new EDFScheduleGenerator()),
+    FED(capacities -> new FEDScheduleGenerator()),
+    CP(capacities -> new OptimizingScheduler(OptimizingScheduler.Objective.FRAGMENTATION, OptimizingScheduler.DEFAULT_BUDGET_MILLIS, capacities));
+
+    public static final int DAILY_CAPACITY = 8;
+
+    private final Function<CapacityCalendar, ScheduleGenerator> generator;
+
+    Algorithm(Function<CapacityCalendar, ScheduleGenerator> generator) {
+        this.generator = generator;
+    }
+
+    public static Algorithm of(String type) {
+        return valueOf(type.toUpperCase());
+    }
+
+    public String type() {
+        return name().toLowerCase();
+    }
+
+    public ScheduleGenerator generator() {
+        return generator(CapacityCalendar.standard());
+    }
+
+    /**
+     * A generator for the given capacities. EDF and FED only know the daily capacity of the calendar,
+     * {@link #CP} plans with every day of it.
+     */
+    public ScheduleGenerator generator(CapacityCalendar capacities) {
+        return generator.apply(capacities);
+    }
+
+    /**
+     * The type of the algorithm whose generator has the class of the given one, or the lower case simple
+     * class name of a generator that is not one of them.
+     */
+    static String typeOf(ScheduleGenerator generator) {
+        for (Algorithm algorithm : values()) {
+            if (algorithm.generator().getClass() == generator.getClass()) {
+                return algorithm.type();
+            }
+        }
+        return generator.getClass().getSimpleName().toLowerCase();
+    }
+
+    public Problem problem(Set<Requirement> requirements) {
+        return problem(requirements, CapacityCalendar.standard());
+    }
+
+    public Problem problem(Set<Requirement> requirements, CapacityCalendar capacities) {
+        return new Problem(requirements, capacities.dailyCapacity(), new EDFSchedulabilityAnalysis(), generator(capacities));
+    }
+
+    public Collection<Allocation> generateSchedule(Set<Requirement> requirements) {
+        return generateSchedule(requirements, CapacityCalendar.standard());
+    }
+
+    @SuppressWarnings("try")
+    public Collection<Allocation> generateSchedule(Set<Requirement> requirements, CapacityCalendar capacities) {
+        try (Metrics.Span span = Metrics.time("solve." + type())) {
+            return problem(requirements, capacities).generateSchedule();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Requirement;
+
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Solves the same requirements with several {@link Algorithm}s at the same time, each one on its own
+ * deep copy of the model, and collects the solve time and {@link ScheduleMetrics} of each schedule.
+ * {@link Algorithm#CP} spends its whole time budget, so it is compared only when asked for.
+ */
+public class AlgorithmComparison {
+    private final Algorithm algorithm;
+    private final long solveNanos;
+    private final ScheduleMetrics metrics;
+
+    private AlgorithmComparison(Algorithm algorithm, long solveNanos, ScheduleMetrics metrics) {
+        this.algorithm = algorithm;
+        this.solveNanos = solveNanos;
+        this.metrics = metrics;
+    }
+
+    public static List<AlgorithmComparison> compare(Set<Requirement> requirements) {
+        return compare(requirements, Algorithm.EDF, Algorithm.FED);
+    }
+
+    public static List<AlgorithmComparison> compare(Set<Requirement> requirements, Algorithm... algorithms) {
+        return compare(requirements, CapacityCalendar.standard(), algorithms);
+    }
+
+    public static List<AlgorithmComparison> compare(Set<Requirement> requirements, CapacityCalendar capacities, Algorithm... algorithms) {
+        ExecutorService executor = Executors.newFixedThreadPool(algorithms.length);
+        try {
+            List<Future<AlgorithmComparison>> results = new ArrayList<>();
+            for (Algorithm algorithm : algorithms) {
+                // copies are made here, on the calling thread, so the workers never read the shared model
+                Set<Requirement> copy = Models.copy(requirements);
+                results.add(executor.submit(() -> {
+                    long start = System.nanoTime();
+                    Collection<Allocation> schedule = algorithm.generateSchedule(copy, capacities);
+                    long solveNanos = System.nanoTime() - start;
+                    return new AlgorithmComparison(algorithm, solveNanos, ScheduleMetrics.of(copy, schedule, capacities));
+                }));
+            }
+
+            List<AlgorithmComparison> comparison = new ArrayList<>();
+            for (Future<AlgorithmComparison> result : results) {
+                comparison.add(result.get());
+            }
+            return comparison;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public static void print(List<AlgorithmComparison> comparison, PrintStream out) {
+        for (AlgorithmComparison result : comparison) {
+            ScheduleMetrics metrics = result.metrics();
+            out.println("--------------------------------------------------");
+            out.println(result.algorithm().name());
+            out.println("Solve time: " + result.solveNanos() / 1_000_000 + " ms");
+            metrics.personLoad().forEach((person, load) -> out.println("Load for " + person.getIdentifier() + ": " + load));
+            out.println("AVG fragments per assertion: " + metrics.averageFragments());
+            out.println("Max fragments: " + metrics.maxFragments());
+            out.println("AVG slack to deadline: " + metrics.averageSlack());
+            out.println("Min slack to deadline: " + metrics.minSlack());
+            out.println("Late assertions: " + metrics.lateAssertions());
+            out.println("Unallocated hours: " + metrics.unallocatedHours());
+        }
+    }
+
+    public Algorithm algorithm() {
+        return algorithm;
+    }
+
+    public long solveNanos() {
+        return solveNanos;
+    }
+
+    public ScheduleMetrics metrics() {
+        return metrics;
+    }
+}
@@ -0,0 +1,294 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.model.Person;
+
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Per-researcher and per-assertion figures of a schedule, computed in one pass over the allocations that
+ * keeps, for each person, only the days not summarised yet: a schedule in day order, e.g. from
+ * {@link ScheduleStream}, is summarised as it streams by with memory independent of its length. Any other
+ * schedule has its days summarised once it has been read, for every person in parallel.
+ * <ul>
+ * <li>load: worked hours over the {@link CapacityCalendar} capacity of the days worked</li>
+ * <li>WD ratio: days worked on an assertion over the working days of its requirement</li>
+ * <li>utilization: daily worked hours over that day's capacity, on every day with capacity between a
+ * person's first and last allocation, as percentiles; the histogram counts those days by hours worked</li>
+ * </ul>
+ */
+public class AllocationStatistics {
+    private final int dailyCapacity;
+    private final Map<Person, PersonStatistics> people;
+    private final int[] histogram;
+    private final RobustnessSimulation.Distribution utilization;
+
+    private AllocationStatistics(int dailyCapacity, Map<Person, PersonStatistics> people) {
+        this.dailyCapacity = dailyCapacity;
+        this.people = people;
+        this.histogram = new int[dailyCapacity + 1];
+        SortedMap<Double, Long> utilization = new TreeMap<>();
+        people.values().forEach(statistics -> {
+            for (int hours = 0; hours <= dailyCapacity; hours++) {
+                histogram[hours] += statistics.histogram[hours];
+            }
+            statistics.utilization.forEach((ratio, days) -> utilization.merge(ratio, days, Long::sum));
+        });
+        this.utilization = RobustnessSimulation.Distribution.of(utilization);
+    }
+
+    public static AllocationStatistics of(Iterable<Allocation> schedule) {
+        return of(schedule, CapacityCalendar.standard());
+    }
+
+    public static AllocationStatistics of(Iterable<Allocation> schedule, int dailyCapacity, WorkingCalendar calendar) {
+        return of(schedule, CapacityCalendar.uniform(dailyCapacity, calendar));
+    }
+
+    public static AllocationStatistics of(Iterable<Allocation> schedule, CapacityCalendar capacities) {
+        return of(schedule.iterator(), capacities, false, true);
+    }
+
+    /**
+     * Statistics of allocations arriving in day order, whose days are summarised as soon as a later day
+     * shows up, on the calling thread.
+     *
+     * @throws IllegalArgumentException if an allocation comes before the day of the previous one
+     */
+    public static AllocationStatistics ofDayOrdered(Iterator<Allocation> schedule, CapacityCalendar capacities) {
+        return of(schedule, capacities, true, false);
+    }
+
+    /**
+     * @param parallel whether the days left to summarise once the schedule is read are summarised in
+     *                 parallel across people, which pays off when nothing was summarised while reading
+     */
+    static AllocationStatistics of(Iterator<Allocation> schedule, CapacityCalendar capacities, boolean dayOrdered, boolean parallel) {
+        Map<Person, Accumulator> accumulators = new HashMap<>();
+        long previous = Long.MIN_VALUE;
+        while (schedule.hasNext()) {
+            Allocation allocation = schedule.next();
+            long day = allocation.getDay().toEpochDay();
+            if (dayOrdered && day < previous) {
+                throw new IllegalArgumentException("Allocation on " + allocation.getDay() + " after one on " + LocalDate.ofEpochDay(previous));
+            }
+            previous = day;
+            accumulators.computeIfAbsent(allocation.getPerson(), person -> new Accumulator(person, capacities)).add(allocation, dayOrdered);
+        }
+
+        Map<Person, PersonStatistics> people = new TreeMap<>(Comparator.comparing(Person::getIdentifier));
+        people.putAll((parallel ? accumulators.values().parallelStream() : accumulators.values().stream())
+                .map(Accumulator::statistics).collect(Collectors.toMap(PersonStatistics::person, statistics -> statistics)));
+        return new AllocationStatistics(capacities.dailyCapacity(), people);
+    }
+
+    public static void print(AllocationStatistics statistics, PrintStream out) {
+        for (PersonStatistics person : statistics.people().values()) {
+            out.println("--------------------------------------------------");
+            out.println(person.person().getIdentifier() + ": " + person.hours() + " hours on " + person.workedDays() + " days");
+            out.println("Load: " + person.load());
+            out.println("Utilization: p50 " + person.utilizationPercentile(50) + ", p90 " + person.utilizationPercentile(90) + ", p99 " + person.utilizationPercentile(99));
+            out.println("Hours per day: " + Arrays.toString(person.histogram()));
+            for (AssertionStatistics assertion : person.assertions()) {
+                out.println("  " + assertion.assertion().requirement().name() + ": " + assertion.assertion().computationTime()
+                        + ", load " + assertion.load() + ", WD " + assertion.workingDayRatio());
+            }
+        }
+        out.println("--------------------------------------------------");
+        out.println("Utilization: p50 " + statistics.utilizationPercentile(50) + ", p90 " + statistics.utilizationPercentile(90) + ", p99 " + statistics.utilizationPercentile(99));
+        out.println("Hours per day: " + Arrays.toString(statistics.histogram()));
+    }
+
+    /**
+     * Sorted by identifier.
+     */
+    public Map<Person, PersonStatistics> people() {
+        return Collections.unmodifiableMap(people);
+    }
+
+    public PersonStatistics person(Person person) {
+        return people.get(person);
+    }
+
+    /**
+     * Days of every researcher, counted by hours worked, from 0 to the default daily capacity.
+     */
+    public int[] histogram() {
+        return histogram.clone();
+    }
+
+    public double utilizationPercentile(double p) {
+        return utilization.percentile(p);
+    }
+
+    public static class PersonStatistics {
+        private final Person person;
+        private final int hours;
+        private final int workedDays;
+        private final int workedCapacity;
+        private final int[] histogram;
+        private final SortedMap<Double, Long> utilization;
+        private final RobustnessSimulation.Distribution utilizationDistribution;
+        private final List<AssertionStatistics> assertions;
+
+        private PersonStatistics(Person person, int hours, int workedDays, int workedCapacity, int[] histogram, SortedMap<Double, Long> utilization, List<AssertionStatistics> assertions) {
+            this.person = person;
+            this.hours = hours;
+            this.workedDays = workedDays;
+            this.workedCapacity = workedCapacity;
+            this.histogram = histogram;
+            this.utilization = utilization;
+            this.utilizationDistribution = RobustnessSimulation.Distribution.of(utilization);
+            this.assertions = assertions;
+        }
+
+        public Person person() {
+            return person;
+        }
+
+        public int hours() {
+            return hours;
+        }
+
+        public int workedDays() {
+            return workedDays;
+        }
+
+        public double load() {
+            return workedCapacity == 0 ? 0 : (double) hours / workedCapacity;
+        }
+
+        /**
+         * Days between the first and last allocation, counted by hours worked, from 0 to the default daily capacity.
+         */
+        public int[] histogram() {
+            return histogram.clone();
+        }
+
+        public double utilizationPercentile(double p) {
+            return utilizationDistribution.percentile(p);
+        }
+
+        /**
+         * Sorted by requirement name.
+         */
+        public List<AssertionStatistics> assertions() {
+            return assertions;
+        }
+    }
+
+    /**
+     * Running figures of one person. Worked hours are kept per day until the day is summarised, which
+     * happens when a later day arrives for day-ordered input and at the end otherwise; the days without
+     * allocations in between are summarised with it.
+     */
+    private static class Accumulator {
+        private final Person person;
+        private final CapacityCalendar capacities;
+        private final Map<Assertion, int[]> hoursDaysAndCapacity = new IdentityHashMap<>();
+        private final TreeMap<Long, Integer> pending = new TreeMap<>();
+        private final int[] histogram;
+        private final SortedMap<Double, Long> utilization = new TreeMap<>();
+        private long summarisedUntil = Long.MIN_VALUE;
+        private int hours;
+        private int workedDays;
+        private int workedCapacity;
+
+        Accumulator(Person person, CapacityCalendar capacities) {
+            this.person = person;
+            this.capacities = capacities;
+            this.histogram = new int[capacities.dailyCapacity() + 1];
+        }
+
+        void add(Allocation allocation, boolean dayOrdered) {
+            long day = allocation.getDay().toEpochDay();
+            int capacity = capacities.capacity(person, day, day + 1);
+            int[] assertion = hoursDaysAndCapacity.computeIfAbsent(allocation.assertion(), key -> new int[3]);
+            assertion[0] += allocation.getHoursAmount();
+            assertion[1]++;
+            assertion[2] += capacity;
+            hours += allocation.getHoursAmount();
+            if (dayOrdered) {
+                while (!pending.isEmpty() && pending.firstKey() < day) {
+                    summarise(pending.pollFirstEntry());
+                }
+            }
+            pending.merge(day, allocation.getHoursAmount(), Integer::sum);
+        }
+
+        PersonStatistics statistics() {
+            while (!pending.isEmpty()) {
+                summarise(pending.pollFirstEntry());
+            }
+            List<AssertionStatistics> assertions = new ArrayList<>(hoursDaysAndCapacity.size());
+            hoursDaysAndCapacity.forEach((assertion, values) -> assertions.add(new AssertionStatistics(assertion, values[0], values[1],
+                    values[2] == 0 ? 0 : (double) values[0] / values[2],
+                    (double) values[1] / capacities.calendar().workingDays(assertion.requirement().timeInterval()))));
+            assertions.sort(Comparator.comparing(statistics -> statistics.assertion().requirement().name()));
+            return new PersonStatistics(person, hours, workedDays, workedCapacity, histogram, utilization, Collections.unmodifiableList(assertions));
+        }
+
+        private void summarise(Map.Entry<Long, Integer> worked) {
+            // the days between two allocations count as idle, but not those before the first one
+            for (long day = summarisedUntil == Long.MIN_VALUE ? worked.getKey() : summarisedUntil + 1; day < worked.getKey(); day++) {
+                summarise(day, 0);
+            }
+            summarise(worked.getKey(), worked.getValue());
+            summarisedUntil = worked.getKey();
+        }
+
+        private void summarise(long day, int worked) {
+            int capacity = capacities.capacity(person, day, day + 1);
+            if (worked > 0) {
+                workedDays++;
+                workedCapacity += capacity;
+            }
+            if (worked > 0 || capacity > 0) {
+                histogram[Math.min(worked, capacities.dailyCapacity())]++;
+            }
+            if (capacity > 0) {
+                utilization.merge((double) worked / capacity, 1L, Long::sum);
+            }
+        }
+    }
+
+    public static class AssertionStatistics {
+        private final Assertion assertion;
+        private final int hours;
+        private final int days;
+        private final double load;
+        private final double workingDayRatio;
+
+        private AssertionStatistics(Assertion assertion, int hours, int days, double load, double workingDayRatio) {
+            this.assertion = assertion;
+            this.hours = hours;
+            this.days = days;
+            this.load = load;
+            this.workingDayRatio = workingDayRatio;
+        }
+
+        public Assertion assertion() {
+            return assertion;
+        }
+
+        public int hours() {
+            return hours;
+        }
+
+        public int days() {
+            return days;
+        }
+
+        public double load() {
+            return load;
+        }
+
+        public double workingDayRatio() {
+            return workingDayRatio;
+        }
+    }
+}
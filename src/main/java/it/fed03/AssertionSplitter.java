@@ -0,0 +1,410 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.model.AssertionCollection;
+import it.unifi.cassandra.scheduling.model.Person;
+import it.unifi.cassandra.scheduling.model.Requirement;
+
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Splits the computation time of requirements into one assertion per assigned researcher, on top of the
+ * load the researchers already carry, replacing the hand-made splits of {@code Main.highDemand()}.
+ * <p>
+ * A greedy pass takes the requirements by deadline and, for each, asks the {@link FeasibilityCheck} how
+ * many hours every assigned researcher can absorb over the requirement's interval, then fills them so
+ * that the spare hours left are as even as possible; the check is updated with every split. If some
+ * requirement does not fit that way, the greedy order is to blame and every split is redone at once as a
+ * max flow from the requirements, through each researcher's time segments, to their {@link CapacityCalendar}
+ * capacity, the existing assertions being routed first. An assertion then spans the part of the
+ * requirement's interval its flow went through, and what the flow cannot route is reported as unplaced.
+ * <p>
+ * The given requirements get their assertions set; researchers without hours get none.
+ */
+public class AssertionSplitter {
+    private final List<Requirement> requirements;
+    private final Map<Requirement, Integer> unplacedHours;
+    private final FeasibilityCheck feasibility;
+    private final boolean refined;
+
+    private AssertionSplitter(List<Requirement> requirements, Map<Requirement, Integer> unplacedHours, FeasibilityCheck feasibility, boolean refined) {
+        this.requirements = requirements;
+        this.unplacedHours = unplacedHours;
+        this.feasibility = feasibility;
+        this.refined = refined;
+    }
+
+    public static AssertionSplitter split(Collection<Requirement> requirements, Set<Requirement> existing) {
+        return split(requirements, existing, CapacityCalendar.standard());
+    }
+
+    /**
+     * @param requirements the requirements to split, their current assertions are discarded
+     * @param existing     the requirements already split, left untouched
+     */
+    @SuppressWarnings("try")
+    public static AssertionSplitter split(Collection<Requirement> requirements, Set<Requirement> existing, CapacityCalendar capacities) {
+        List<Requirement> ordered = new ArrayList<>(requirements);
+        ordered.sort(Comparator.comparing((Requirement requirement) -> requirement.timeInterval().getEndExclusive())
+                .thenComparing(requirement -> requirement.timeInterval().getStartInclusive()));
+        FeasibilityCheck base = FeasibilityCheck.of(existing, capacities);
+
+        try (Metrics.Span span = Metrics.time("split.greedy")) {
+            Map<Requirement, List<Assertion>> split = greedy(ordered, base);
+            if (split != null) {
+                split.forEach((requirement, assertions) -> {
+                    AssertionCollection<Assertion> collection = new AssertionCollection<>();
+                    assertions.forEach(collection::add);
+                    requirement.setAssertions(collection);
+                });
+                FeasibilityCheck feasibility = base;
+                for (List<Assertion> assertions : split.values()) {
+                    feasibility = feasibility.with(assertions);
+                }
+                return new AssertionSplitter(ordered, Collections.emptyMap(), feasibility, false);
+            }
+        }
+        try (Metrics.Span span = Metrics.time("split.flow")) {
+            return refine(ordered, existing, base, capacities);
+        }
+    }
+
+    /**
+     * @return the assertions of every requirement, or null as soon as one does not fit
+     */
+    private static Map<Requirement, List<Assertion>> greedy(List<Requirement> ordered, FeasibilityCheck check) {
+        Map<Requirement, List<Assertion>> split = new LinkedHashMap<>();
+        for (Requirement requirement : ordered) {
+            LocalDate start = requirement.timeInterval().getStartInclusive();
+            LocalDate end = requirement.timeInterval().getEndExclusive();
+            List<Person> people = new ArrayList<>(new LinkedHashSet<>(requirement.assignedPeople()));
+            int[] absorbable = new int[people.size()];
+            for (int i = 0; i < absorbable.length; i++) {
+                absorbable[i] = check.absorbableHours(people.get(i), start, end);
+            }
+            int[] hours = level(absorbable, requirement.computationTime());
+            if (hours == null) {
+                return null;
+            }
+
+            List<Assertion> assertions = new ArrayList<>();
+            for (int i = 0; i < hours.length; i++) {
+                if (hours[i] > 0) {
+                    assertions.add(new Assertion(requirement, hours[i], start, end, people.get(i)));
+                }
+            }
+            check = check.with(assertions);
+            split.put(requirement, assertions);
+        }
+        return split;
+    }
+
+    /**
+     * Shares of {@code demand} such that the absorbable hours left, {@code absorbable[i] - share[i]}, are
+     * levelled down from the top; null if they do not add up to the demand.
+     */
+    static int[] level(int[] absorbable, int demand) {
+        Integer[] order = new Integer[absorbable.length];
+        long total = 0;
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+            total += absorbable[i];
+        }
+        if (total < demand) {
+            return null;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(absorbable[b], absorbable[a]));
+
+        int[] shares = new int[absorbable.length];
+        if (demand <= 0) {
+            return shares;
+        }
+        long top = 0;
+        int filled = 0;
+        long level = 0;
+        while (filled < order.length) {
+            top += absorbable[order[filled++]];
+            level = Math.floorDiv(top - demand, filled);
+            if (filled == order.length || level >= absorbable[order[filled]]) {
+                break;
+            }
+        }
+        // what the floored level leaves over, fewer hours than filled researchers, is one hour each off the largest
+        long excess = top - level * filled - demand;
+        for (int i = 0; i < filled; i++) {
+            shares[order[i]] = (int) (absorbable[order[i]] - level) - (i < excess ? 1 : 0);
+        }
+        return shares;
+    }
+
+    private static AssertionSplitter refine(List<Requirement> ordered, Set<Requirement> existing, FeasibilityCheck base, CapacityCalendar capacities) {
+        List<Assertion> fixed = new ArrayList<>();
+        existing.forEach(requirement -> fixed.addAll(requirement.assertions()));
+        Segments segments = new Segments(capacities);
+        for (Assertion assertion : fixed) {
+            segments.bound(assertion.assignedPerson(), assertion.releaseTime().toEpochDay(), assertion.deadline().toEpochDay());
+        }
+        for (Requirement requirement : ordered) {
+            for (Person person : requirement.assignedPeople()) {
+                segments.bound(person, requirement.timeInterval().getStartInclusive().toEpochDay(), requirement.timeInterval().getEndExclusive().toEpochDay());
+            }
+        }
+
+        for (Assertion assertion : fixed) {
+            int node = segments.network.addNode();
+            segments.network.addEdge(Segments.SOURCE, node, assertion.computationTime());
+            segments.connect(node, assertion.assignedPerson(), assertion.releaseTime().toEpochDay(), assertion.deadline().toEpochDay(), null);
+        }
+        segments.network.maxFlow(Segments.SOURCE, Segments.SINK);
+
+        Map<Requirement, Map<Person, List<int[]>>> routes = new LinkedHashMap<>();
+        for (Requirement requirement : ordered) {
+            int node = segments.network.addNode();
+            segments.network.addEdge(Segments.SOURCE, node, Math.max(0, requirement.computationTime()));
+            Map<Person, List<int[]>> personRoutes = new LinkedHashMap<>();
+            for (Person person : new LinkedHashSet<>(requirement.assignedPeople())) {
+                List<int[]> edges = new ArrayList<>();
+                segments.connect(node, person, requirement.timeInterval().getStartInclusive().toEpochDay(), requirement.timeInterval().getEndExclusive().toEpochDay(), edges);
+                personRoutes.put(person, edges);
+            }
+            routes.put(requirement, personRoutes);
+        }
+        segments.network.maxFlow(Segments.SOURCE, Segments.SINK);
+
+        Map<Requirement, Integer> unplacedHours = new LinkedHashMap<>();
+        List<Assertion> all = new ArrayList<>();
+        routes.forEach((requirement, personRoutes) -> {
+            AssertionCollection<Assertion> assertions = new AssertionCollection<>();
+            int placed = 0;
+            for (Map.Entry<Person, List<int[]>> route : personRoutes.entrySet()) {
+                int hours = 0;
+                int first = Integer.MAX_VALUE;
+                int last = Integer.MIN_VALUE;
+                for (int[] segmentAndEdge : route.getValue()) {
+                    int flow = segments.network.flow(segmentAndEdge[1]);
+                    if (flow > 0) {
+                        hours += flow;
+                        first = Math.min(first, segmentAndEdge[0]);
+                        last = Math.max(last, segmentAndEdge[0]);
+                    }
+                }
+                if (hours > 0) {
+                    long[] bounds = segments.bounds.get(route.getKey());
+                    Assertion assertion = new Assertion(requirement, hours, LocalDate.ofEpochDay(bounds[first]), LocalDate.ofEpochDay(bounds[last + 1]), route.getKey());
+                    assertions.add(assertion);
+                    all.add(assertion);
+                    placed += hours;
+                }
+            }
+            if (placed < requirement.computationTime()) {
+                unplacedHours.put(requirement, requirement.computationTime() - placed);
+            }
+            requirement.setAssertions(assertions);
+        });
+        return new AssertionSplitter(ordered, unplacedHours, base.with(all), true);
+    }
+
+    public static void print(AssertionSplitter splitter, PrintStream out) {
+        for (Requirement requirement : splitter.requirements()) {
+            StringBuilder line = new StringBuilder(requirement.name()).append(": ").append(requirement.computationTime()).append("h =");
+            for (Assertion assertion : requirement.assertions()) {
+                line.append(' ').append(assertion.assignedPerson().getIdentifier()).append(' ').append(assertion.computationTime())
+                        .append("h [").append(assertion.releaseTime()).append(';').append(assertion.deadline()).append(')');
+            }
+            if (splitter.unplacedHours(requirement) > 0) {
+                line.append(", ").append(splitter.unplacedHours(requirement)).append("h unplaced");
+            }
+            out.println(line);
+        }
+        out.println("Refined by flow: " + splitter.isRefined());
+        out.println("Unplaced hours: " + splitter.unplacedHours());
+        out.println("Feasible: " + splitter.isFeasible());
+    }
+
+    /**
+     * The split requirements, by deadline.
+     */
+    public List<Requirement> requirements() {
+        return Collections.unmodifiableList(requirements);
+    }
+
+    public int unplacedHours(Requirement requirement) {
+        return unplacedHours.getOrDefault(requirement, 0);
+    }
+
+    public int unplacedHours() {
+        return unplacedHours.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * Whether the greedy pass failed and the flow redid the split.
+     */
+    public boolean isRefined() {
+        return refined;
+    }
+
+    public boolean isFeasible() {
+        return feasibility.isFeasible();
+    }
+
+    /**
+     * The check of the existing requirements together with the split ones.
+     */
+    public FeasibilityCheck feasibility() {
+        return feasibility;
+    }
+
+    /**
+     * Flow network of the refinement. Every researcher's time is cut at the release times and deadlines of
+     * the demands they can take, and each resulting segment is a node linked to the sink by its capacity,
+     * which is exact for demands that can be spread freely over their days.
+     */
+    private static class Segments {
+        static final int SOURCE = 0;
+        static final int SINK = 1;
+
+        final CapacityCalendar capacities;
+        final FlowNetwork network = new FlowNetwork();
+        final Map<Person, Set<Long>> boundaries = new HashMap<>();
+        final Map<Person, long[]> bounds = new HashMap<>();
+        final Map<Person, int[]> nodes = new HashMap<>();
+
+        Segments(CapacityCalendar capacities) {
+            this.capacities = capacities;
+            network.addNode();
+            network.addNode();
+        }
+
+        void bound(Person person, long start, long endExclusive) {
+            Set<Long> personBoundaries = boundaries.computeIfAbsent(person, key -> new HashSet<>());
+            personBoundaries.add(start);
+            personBoundaries.add(endExclusive);
+        }
+
+        /**
+         * Links {@code demand} to the segments of {@code person} inside [start, endExclusive); {@code edges}
+         * collects segment and edge pairs if not null.
+         */
+        void connect(int demand, Person person, long start, long endExclusive, List<int[]> edges) {
+            long[] personBounds = bounds.computeIfAbsent(person, key -> boundaries.get(person).stream().mapToLong(Long::longValue).sorted().toArray());
+            int[] personNodes = nodes.computeIfAbsent(person, key -> new int[personBounds.length - 1]);
+            for (int segment = Arrays.binarySearch(personBounds, start); personBounds[segment] < endExclusive; segment++) {
+                int capacity = capacities.capacity(person, personBounds[segment], personBounds[segment + 1]);
+                if (capacity <= 0) {
+                    continue;
+                }
+                if (personNodes[segment] == 0) {
+                    personNodes[segment] = network.addNode();
+                    network.addEdge(personNodes[segment], SINK, capacity);
+                }
+                int edge = network.addEdge(demand, personNodes[segment], capacity);
+                if (edges != null) {
+                    edges.add(new int[]{segment, edge});
+                }
+            }
+        }
+    }
+
+    /**
+     * Dinic's max flow over growable adjacency arrays; flow already pushed is kept across calls, so
+     * edges added later are routed on top of it.
+     */
+    private static class FlowNetwork {
+        private int nodes;
+        private int edges;
+        private int[] head = new int[16];
+        private int[] next = new int[16];
+        private int[] target = new int[16];
+        private int[] capacity = new int[16];
+        private int[] residual = new int[16];
+
+        int addNode() {
+            if (nodes == head.length) {
+                head = Arrays.copyOf(head, nodes * 2);
+            }
+            head[nodes] = -1;
+            return nodes++;
+        }
+
+        /**
+         * @return the edge, whose reverse is the edge right after it
+         */
+        int addEdge(int from, int to, int edgeCapacity) {
+            int edge = edges;
+            add(from, to, edgeCapacity);
+            add(to, from, 0);
+            return edge;
+        }
+
+        private void add(int from, int to, int edgeCapacity) {
+            if (edges == next.length) {
+                next = Arrays.copyOf(next, edges * 2);
+                target = Arrays.copyOf(target, edges * 2);
+                capacity = Arrays.copyOf(capacity, edges * 2);
+                residual = Arrays.copyOf(residual, edges * 2);
+            }
+            next[edges] = head[from];
+            target[edges] = to;
+            capacity[edges] = edgeCapacity;
+            residual[edges] = edgeCapacity;
+            head[from] = edges++;
+        }
+
+        int flow(int edge) {
+            return capacity[edge] - residual[edge];
+        }
+
+        long maxFlow(int source, int sink) {
+            int[] level = new int[nodes];
+            int[] current = new int[nodes];
+            int[] queue = new int[nodes];
+            long total = 0;
+            while (levels(source, sink, level, queue)) {
+                System.arraycopy(head, 0, current, 0, nodes);
+                int pushed;
+                while ((pushed = push(source, sink, Integer.MAX_VALUE, level, current)) > 0) {
+                    total += pushed;
+                }
+            }
+            return total;
+        }
+
+        private boolean levels(int source, int sink, int[] level, int[] queue) {
+            Arrays.fill(level, -1);
+            level[source] = 0;
+            int read = 0;
+            int write = 0;
+            queue[write++] = source;
+            while (read < write) {
+                int node = queue[read++];
+                for (int edge = head[node]; edge != -1; edge = next[edge]) {
+                    if (residual[edge] > 0 && level[target[edge]] < 0) {
+                        level[target[edge]] = level[node] + 1;
+                        queue[write++] = target[edge];
+                    }
+                }
+            }
+            return level[sink] >= 0;
+        }
+
+        private int push(int node, int sink, int limit, int[] level, int[] current) {
+            if (node == sink) {
+                return limit;
+            }
+            for (; current[node] != -1; current[node] = next[current[node]]) {
+                int edge = current[node];
+                if (residual[edge] > 0 && level[target[edge]] == level[node] + 1) {
+                    int pushed = push(target[edge], sink, Math.min(limit, residual[edge]), level, current);
+                    if (pushed > 0) {
+                        residual[edge] -= pushed;
+                        residual[edge ^ 1] += pushed;
+                        return pushed;
+                    }
+                }
+            }
+            return 0;
+        }
+    }
+}
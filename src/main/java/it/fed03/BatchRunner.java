@@ -0,0 +1,321 @@
+package it.fed03;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import it.unifi.cassandra.scheduling.model.Person;
+import it.unifi.cassandra.scheduling.model.Requirement;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Solves and analyses every scenario file of a directory on a bounded pool of workers. Each scenario
+ * runs in its own JVM capped at the given heap, so one oversized instance fails alone instead of taking
+ * the sweep down, and leaves {@code <scenario>.result.json}, {@code <scenario>.metrics.json} and
+ * {@code <scenario>.log} in the output directory.
+ * <p>
+ * Every finished scenario is appended to {@value #MANIFEST} in the output directory and skipped when the
+ * sweep is started again, unless its file changed since. Failed scenarios are retried only on request.
+ * Lines cut short by a crash are skipped with a warning and cut off the manifest before it is appended to.
+ * A sweep that is interrupted or fails kills the scenario JVMs still running rather than leaving them behind.
+ * <p>
+ * {@code BatchRunner <scenario dir> <output dir> [-workers n] [-memory 512m] [-timeout minutes] [-algorithms edf,fed] [-retry-failed]}
+ */
+public class BatchRunner {
+    static final String MANIFEST = "manifest.tsv";
+    private static final int OUT_OF_MEMORY_EXIT = 3;
+
+    private final Path scenarios;
+    private final Path output;
+    private final int workers;
+    private final String memory;
+    private final long timeoutMinutes;
+    private final String algorithms;
+    private final boolean retryFailed;
+    private final Set<Process> children = ConcurrentHashMap.newKeySet();
+
+    public BatchRunner(Path scenarios, Path output, int workers, String memory, long timeoutMinutes, String algorithms, boolean retryFailed) {
+        this.scenarios = scenarios;
+        this.output = output;
+        this.workers = workers;
+        this.memory = memory;
+        this.timeoutMinutes = timeoutMinutes;
+        this.algorithms = algorithms;
+        this.retryFailed = retryFailed;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 4 && args[0].equals("-single")) {
+            analyse(Paths.get(args[1]), Paths.get(args[2]), algorithms(args[3]));
+            return;
+        }
+
+        List<String> paths = new ArrayList<>();
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        String memory = "512m";
+        long timeoutMinutes = 60;
+        String algorithms = "edf,fed";
+        boolean retryFailed = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-workers":
+                    workers = Integer.parseInt(args[++i]);
+                    break;
+                case "-memory":
+                    memory = args[++i];
+                    break;
+                case "-timeout":
+                    timeoutMinutes = Long.parseLong(args[++i]);
+                    break;
+                case "-algorithms":
+                    algorithms = args[++i];
+                    break;
+                case "-retry-failed":
+                    retryFailed = true;
+                    break;
+                default:
+                    paths.add(args[i]);
+            }
+        }
+        if (paths.size() != 2) {
+            System.err.println("Usage: BatchRunner <scenario dir> <output dir> [-workers n] [-memory 512m] [-timeout minutes] [-algorithms edf,fed] [-retry-failed]");
+            System.exit(2);
+        }
+        // rejects unknown algorithm names before any child JVM starts
+        algorithms(algorithms);
+        int failed = new BatchRunner(Paths.get(paths.get(0)), Paths.get(paths.get(1)), workers, memory, timeoutMinutes, algorithms, retryFailed).run();
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * @return the number of scenarios that did not complete in this run
+     */
+    public int run() throws IOException, InterruptedException {
+        Files.createDirectories(output);
+        Map<String, Entry> done = readManifest(output.resolve(MANIFEST));
+        List<Path> pending = new ArrayList<>();
+        try (Stream<Path> files = Files.list(scenarios)) {
+            for (Path scenario : files.filter(BatchRunner::isScenario).sorted().collect(Collectors.toList())) {
+                Entry entry = done.get(scenario.getFileName().toString());
+                if (entry == null || !entry.matches(scenario) || (retryFailed && !entry.status.equals("DONE"))) {
+                    pending.add(scenario);
+                }
+            }
+        }
+        System.out.println("Scenarios to run: " + pending.size() + " (" + done.size() + " already in the manifest)");
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try (FileChannel manifest = FileChannel.open(output.resolve(MANIFEST), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            truncatePartialLine(manifest);
+            manifest.position(manifest.size());
+            List<Future<String>> results = new ArrayList<>();
+            for (Path scenario : pending) {
+                results.add(executor.submit(() -> {
+                    Entry entry = solve(scenario);
+                    synchronized (manifest) {
+                        manifest.write(StandardCharsets.UTF_8.encode(entry.line()));
+                        manifest.force(false);
+                    }
+                    System.out.println(entry.name + ": " + entry.status + " in " + entry.millis + " ms");
+                    return entry.status;
+                }));
+            }
+            int failed = 0;
+            for (Future<String> result : results) {
+                try {
+                    if (!result.get().equals("DONE")) {
+                        failed++;
+                    }
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                    failed++;
+                }
+            }
+            return failed;
+        } finally {
+            executor.shutdownNow();
+            // workers blocked in waitFor may not have seen the interrupt yet
+            children.forEach(Process::destroyForcibly);
+        }
+    }
+
+    /**
+     * Child JVMs started and not yet waited for.
+     */
+    Set<Process> children() {
+        return Collections.unmodifiableSet(children);
+    }
+
+    /**
+     * The command solving {@code scenario} in a child JVM.
+     */
+    List<String> command(Path scenario) {
+        String name = scenario.getFileName().toString();
+        String javaBinary = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        return Arrays.asList(javaBinary, "-Xmx" + memory, "-XX:+ExitOnOutOfMemoryError", "-Djava.awt.headless=true",
+                "-Dmetrics.summary=" + output.resolve(name + ".metrics.json"),
+                "-cp", System.getProperty("java.class.path"), BatchRunner.class.getName(),
+                "-single", scenario.toString(), output.resolve(name + ".result.json").toString(), algorithms);
+    }
+
+    private Entry solve(Path scenario) throws IOException, InterruptedException {
+        String name = scenario.getFileName().toString();
+        File log = output.resolve(name + ".log").toFile();
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command(scenario)).redirectErrorStream(true).redirectOutput(log).start();
+        children.add(process);
+        String status;
+        try {
+            if (!process.waitFor(timeoutMinutes, TimeUnit.MINUTES)) {
+                process.destroyForcibly().waitFor();
+                status = "TIMEOUT";
+            } else if (process.exitValue() == 0) {
+                status = "DONE";
+            } else if (process.exitValue() == OUT_OF_MEMORY_EXIT) {
+                status = "OUT_OF_MEMORY";
+            } else {
+                status = "FAILED_" + process.exitValue();
+            }
+        } finally {
+            // only still alive when waiting was interrupted
+            process.destroyForcibly();
+            children.remove(process);
+        }
+        return new Entry(name, Files.size(scenario), Files.getLastModifiedTime(scenario).toMillis(), status, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Analysis of a single scenario, run inside the capped child JVM.
+     */
+    static void analyse(Path scenario, Path result, Algorithm... algorithms) throws IOException {
+        Set<Requirement> requirements = ScenarioLoader.load(scenario);
+        FeasibilityCheck feasibility = FeasibilityCheck.of(requirements);
+        List<AlgorithmComparison> comparison = AlgorithmComparison.compare(requirements, algorithms);
+
+        Path temp = Files.createTempFile(result.toAbsolutePath().getParent(), result.getFileName().toString(), ".tmp");
+        try (Writer out = new BufferedWriter(Channels.newWriter(FileChannel.open(temp, StandardOpenOption.WRITE), StandardCharsets.UTF_8.newEncoder(), 1 << 16));
+             JsonGenerator json = new JsonFactory().createGenerator(out)) {
+            json.useDefaultPrettyPrinter();
+            json.writeStartObject();
+            json.writeStringField("scenario", scenario.getFileName().toString());
+            json.writeNumberField("requirements", requirements.size());
+            json.writeNumberField("assertions", requirements.stream().mapToInt(requirement -> requirement.assertions().size()).sum());
+            json.writeBooleanField("feasible", feasibility.isFeasible());
+            json.writeObjectFieldStart("overloads");
+            for (Map.Entry<Person, FeasibilityCheck.Overload> overload : feasibility.overloads().entrySet()) {
+                json.writeStringField(overload.getKey().getIdentifier(), overload.getValue().toString());
+            }
+            json.writeEndObject();
+            json.writeObjectFieldStart("algorithms");
+            for (AlgorithmComparison algorithm : comparison) {
+                ScheduleMetrics metrics = algorithm.metrics();
+                json.writeObjectFieldStart(algorithm.algorithm().type());
+                json.writeNumberField("solveMillis", algorithm.solveNanos() / 1_000_000);
+                json.writeNumberField("averageFragments", metrics.averageFragments());
+                json.writeNumberField("maxFragments", metrics.maxFragments());
+                json.writeNumberField("averageSlack", metrics.averageSlack());
+                json.writeNumberField("minSlack", metrics.minSlack());
+                json.writeNumberField("lateAssertions", metrics.lateAssertions());
+                json.writeNumberField("unallocatedHours", metrics.unallocatedHours());
+                json.writeEndObject();
+            }
+            json.writeEndObject();
+            json.writeEndObject();
+        }
+        Files.move(temp, result, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Algorithm[] algorithms(String names) {
+        return Arrays.stream(names.split(",")).map(String::trim).map(Algorithm::of).toArray(Algorithm[]::new);
+    }
+
+    private static boolean isScenario(Path path) {
+        String name = path.getFileName().toString().toLowerCase();
+        return Files.isRegularFile(path) && (name.endsWith(".csv") || name.endsWith(".json"));
+    }
+
+    static Map<String, Entry> readManifest(Path manifest) throws IOException {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        if (!Files.exists(manifest)) {
+            return entries;
+        }
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            try {
+                if (fields.length != 6) {
+                    throw new IllegalArgumentException("expected 6 fields, found " + fields.length);
+                }
+                entries.put(fields[0], new Entry(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]), fields[3], Long.parseLong(fields[4])));
+            } catch (IllegalArgumentException e) {
+                // a line cut short by a crash: its scenario is simply run again
+                System.err.println("Skipping malformed manifest line " + lineNumber + ": " + e.getMessage());
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Cuts a last line left without its newline by a crash, so that the next entry starts a line of its own.
+     */
+    static void truncatePartialLine(FileChannel manifest) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long end = manifest.size();
+        while (end > 0) {
+            long start = Math.max(0, end - buffer.capacity());
+            buffer.clear();
+            buffer.limit((int) (end - start));
+            while (buffer.hasRemaining()) {
+                manifest.read(buffer, start + buffer.position());
+            }
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    manifest.truncate(start + i + 1);
+                    return;
+                }
+            }
+            end = start;
+        }
+        manifest.truncate(0);
+    }
+
+    static class Entry {
+        final String name;
+        final long size;
+        final long lastModified;
+        final String status;
+        final long millis;
+
+        Entry(String name, long size, long lastModified, String status, long millis) {
+            this.name = name;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.status = status;
+            this.millis = millis;
+        }
+
+        boolean matches(Path scenario) throws IOException {
+            return Files.size(scenario) == size && Files.getLastModifiedTime(scenario).toMillis() == lastModified;
+        }
+
+        String line() {
+            return name + "\t" + size + "\t" + lastModified + "\t" + status + "\t" + millis + "\t" + Instant.now() + "\n";
+        }
+    }
+}
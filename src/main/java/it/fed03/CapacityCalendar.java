@@ -0,0 +1,194 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Person;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Hours each researcher can work per day: a default daily capacity on the working days of a
+ * {@link WorkingCalendar}, overridden per researcher over date ranges for part-time, leave and personal
+ * holidays.
+ * <p>
+ * A researcher with overrides keeps one prefix-sum array of the difference from the default, indexed by
+ * working-day ordinal over the span the overrides cover, so the capacity of any range is answered in
+ * constant time; everyone else costs nothing. Researchers are matched by identifier.
+ */
+public class CapacityCalendar {
+    private static final CapacityCalendar STANDARD = uniform(Algorithm.DAILY_CAPACITY, WorkingCalendar.standard());
+
+    private final int dailyCapacity;
+    private final WorkingCalendar calendar;
+    private final Map<String, Overrides> overrides;
+
+    private CapacityCalendar(int dailyCapacity, WorkingCalendar calendar, Map<String, Overrides> overrides) {
+        this.dailyCapacity = dailyCapacity;
+        this.calendar = calendar;
+        this.overrides = overrides;
+    }
+
+    /**
+     * {@value Algorithm#DAILY_CAPACITY} hours on every working day of the standard calendar, the capacity
+     * the schedule generators work with.
+     */
+    public static CapacityCalendar standard() {
+        return STANDARD;
+    }
+
+    public static CapacityCalendar uniform(int dailyCapacity, WorkingCalendar calendar) {
+        return new CapacityCalendar(dailyCapacity, calendar, Collections.emptyMap());
+    }
+
+    public static Builder builder(int dailyCapacity, WorkingCalendar calendar) {
+        return new Builder(dailyCapacity, calendar);
+    }
+
+    /**
+     * Reads overrides of the standard capacity from CSV rows {@code person,start,endExclusive,hours};
+     * blank lines and lines starting with {@code #} are skipped.
+     */
+    public static CapacityCalendar load(Path path) throws IOException {
+        return load(path, Algorithm.DAILY_CAPACITY, WorkingCalendar.standard());
+    }
+
+    public static CapacityCalendar load(Path path, int dailyCapacity, WorkingCalendar calendar) throws IOException {
+        Builder builder = builder(dailyCapacity, calendar);
+        try (BufferedReader lines = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = lines.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                try {
+                    if (fields.length != 4) {
+                        throw new IllegalArgumentException("expected 4 fields, found " + fields.length);
+                    }
+                    builder.capacity(fields[0], LocalDate.parse(fields[1]), LocalDate.parse(fields[2]), Integer.parseInt(fields[3]));
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("Malformed capacity line " + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    public int dailyCapacity() {
+        return dailyCapacity;
+    }
+
+    public WorkingCalendar calendar() {
+        return calendar;
+    }
+
+    /**
+     * The default capacity, the calendar and every override, for {@link ScheduleCache} keys.
+     */
+    String cacheKey() {
+        StringBuilder key = new StringBuilder().append(dailyCapacity).append('|').append(calendar.cacheKey());
+        new TreeMap<>(overrides).forEach((person, personal) -> key.append('|').append(person).append('@').append(personal.firstOrdinal)
+                .append(Arrays.toString(personal.delta)));
+        return key.toString();
+    }
+
+    /**
+     * Whether {@code person} works the default capacity on every working day.
+     */
+    public boolean isUniform(Person person) {
+        return !overrides.containsKey(person.getIdentifier());
+    }
+
+    public int capacity(Person person, LocalDate day) {
+        long epochDay = day.toEpochDay();
+        return capacity(person, epochDay, epochDay + 1);
+    }
+
+    public int capacity(Person person, LocalDate startInclusive, LocalDate endExclusive) {
+        return capacity(person, startInclusive.toEpochDay(), endExclusive.toEpochDay());
+    }
+
+    public int capacity(Person person, long startInclusive, long endExclusive) {
+        if (startInclusive >= endExclusive) {
+            return 0;
+        }
+        int capacity = dailyCapacity * calendar.workingDays(startInclusive, endExclusive);
+        Overrides personal = overrides.get(person.getIdentifier());
+        return personal == null ? capacity : capacity + personal.delta(calendar.ordinal((int) endExclusive)) - personal.delta(calendar.ordinal((int) startInclusive));
+    }
+
+    private static class Overrides {
+        final int firstOrdinal;
+        // delta[i] sums capacity minus default over the working days before ordinal firstOrdinal + i
+        final int[] delta;
+
+        Overrides(int firstOrdinal, int[] delta) {
+            this.firstOrdinal = firstOrdinal;
+            this.delta = delta;
+        }
+
+        int delta(int ordinal) {
+            return delta[Math.max(0, Math.min(delta.length - 1, ordinal - firstOrdinal))];
+        }
+    }
+
+    public static class Builder {
+        private final int dailyCapacity;
+        private final WorkingCalendar calendar;
+        private final Map<String, List<int[]>> ranges = new LinkedHashMap<>();
+
+        private Builder(int dailyCapacity, WorkingCalendar calendar) {
+            this.dailyCapacity = dailyCapacity;
+            this.calendar = calendar;
+        }
+
+        /**
+         * {@code hours} a day on the working days of [start, endExclusive); later ranges win where they overlap.
+         */
+        public Builder capacity(Person person, LocalDate start, LocalDate endExclusive, int hours) {
+            return capacity(person.getIdentifier(), start, endExclusive, hours);
+        }
+
+        public Builder capacity(String person, LocalDate start, LocalDate endExclusive, int hours) {
+            if (hours < 0) {
+                throw new IllegalArgumentException("Negative capacity for " + person);
+            }
+            int first = calendar.ordinal((int) start.toEpochDay());
+            int end = calendar.ordinal((int) endExclusive.toEpochDay());
+            if (first < end) {
+                ranges.computeIfAbsent(person, key -> new ArrayList<>()).add(new int[]{first, end, hours});
+            }
+            return this;
+        }
+
+        public Builder leave(Person person, LocalDate start, LocalDate endExclusive) {
+            return capacity(person, start, endExclusive, 0);
+        }
+
+        public CapacityCalendar build() {
+            Map<String, Overrides> overrides = new HashMap<>();
+            ranges.forEach((person, personRanges) -> {
+                int first = personRanges.stream().mapToInt(range -> range[0]).min().getAsInt();
+                int end = personRanges.stream().mapToInt(range -> range[1]).max().getAsInt();
+                int[] daily = new int[end - first];
+                Arrays.fill(daily, dailyCapacity);
+                for (int[] range : personRanges) {
+                    Arrays.fill(daily, range[0] - first, range[1] - first, range[2]);
+                }
+                int[] delta = new int[daily.length + 1];
+                for (int i = 0; i < daily.length; i++) {
+                    delta[i + 1] = delta[i] + daily[i] - dailyCapacity;
+                }
+                overrides.put(person, new Overrides(first, delta));
+            });
+            return new CapacityCalendar(dailyCapacity, calendar, overrides);
+        }
+    }
+}
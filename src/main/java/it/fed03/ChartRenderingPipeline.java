@@ -0,0 +1,167 @@
+package it.fed03;
+
+import org.jfree.chart.JFreeChart;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Builds, rasterizes and writes charts on a bounded pool of workers.
+ * When every worker is busy and the queue is full the submitting thread renders the chart itself,
+ * so at most {@code workers * 3} charts are alive at any time.
+ * <p>
+ * A chart that fails, on a worker or on the submitting thread, does not stop the others: every failure
+ * is collected and {@link #close()} throws once the batch is over. The pipeline is meant to be closed by
+ * the thread that submitted to it, whose rendering buffers are released there.
+ */
+public class ChartRenderingPipeline implements AutoCloseable {
+    private final ThreadPoolExecutor executor;
+    private final Queue<Exception> failures = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger submitted = new AtomicInteger();
+    private static final ThreadLocal<ChartRaster> rasters = ThreadLocal.withInitial(ChartRaster::new);
+
+    public ChartRenderingPipeline() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ChartRenderingPipeline(int workers) {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers * 2),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "chart-renderer-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public void submit(Supplier<JFreeChart> chartBuilder, Path folderPath, int width, int height) {
+        submitted.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                saveChartToImage(build(chartBuilder), folderPath, width, height);
+            } catch (IOException | RuntimeException e) {
+                failures.add(e);
+            }
+        });
+    }
+
+    /**
+     * Waits for the pending charts.
+     *
+     * @throws IllegalStateException if a chart failed, with the first failure as cause and the others
+     *                               suppressed, or if the wait was interrupted, with the interrupt flag set
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                // keep waiting for the pending charts
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while rendering charts", e);
+        } finally {
+            rasters.remove();
+        }
+
+        Exception first = failures.poll();
+        if (first != null) {
+            IllegalStateException failed = new IllegalStateException((failures.size() + 1) + " of " + submitted.get() + " charts failed", first);
+            failures.forEach(failed::addSuppressed);
+            throw failed;
+        }
+    }
+
+    @SuppressWarnings("try")
+    static JFreeChart build(Supplier<JFreeChart> chartBuilder) {
+        try (Metrics.Span span = Metrics.time("chart.build")) {
+            return chartBuilder.get();
+        }
+    }
+
+    /**
+     * Rasterizes and encodes a chart on the calling thread, with that thread's reusable buffers.
+     */
+    static byte[] encode(JFreeChart chart, int width, int height) throws IOException {
+        return rasters.get().render(chart, width, height).toByteArray();
+    }
+
+    @SuppressWarnings("try")
+    private void saveChartToImage(JFreeChart chart, Path folderPath, int width, int height) throws IOException {
+        Files.createDirectories(folderPath);
+
+        String imageName = chart.getTitle().getText().toLowerCase().replace(" ", "_");
+        imageName = imageName.substring(0, imageName.length() - 6);
+        Path image = folderPath.resolve(imageName + ".jpg");
+        try (OutputStream out = Files.newOutputStream(image)) {
+            ByteArrayOutputStream encoded = rasters.get().render(chart, width, height);
+            try (Metrics.Span span = Metrics.time("chart.write")) {
+                encoded.writeTo(out);
+            }
+        }
+    }
+
+    /**
+     * Per-thread image buffers and JPEG encoder, reused across every chart rendered by that thread.
+     */
+    private static class ChartRaster {
+        private final Map<Long, BufferedImage> images = new HashMap<>();
+        private final ByteArrayOutputStream encoded = new ByteArrayOutputStream(256 * 1024);
+        private final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        private final ImageWriteParam param = writer.getDefaultWriteParam();
+
+        ChartRaster() {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(1f);
+        }
+
+        @SuppressWarnings("try")
+        ByteArrayOutputStream render(JFreeChart chart, int width, int height) throws IOException {
+            BufferedImage image = images.computeIfAbsent(((long) width << 32) | height,
+                    size -> new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB));
+            Graphics2D g2 = image.createGraphics();
+            try (Metrics.Span span = Metrics.time("chart.raster")) {
+                chart.draw(g2, new Rectangle2D.Double(0, 0, width, height), null, null);
+            } finally {
+                g2.dispose();
+            }
+
+            encoded.reset();
+            try (Metrics.Span span = Metrics.time("chart.encode");
+                 ImageOutputStream out = new MemoryCacheImageOutputStream(encoded)) {
+                writer.setOutput(out);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.setOutput(null);
+            }
+            Metrics.increment("chart.images");
+            Metrics.increment("chart.encodedBytes", encoded.size());
+            return encoded;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package it.fed03;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Person;
+import it.unifi.cassandra.scheduling.model.Requirement;
+import org.jfree.chart.JFreeChart;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Local HTTP server holding one solved schedule and rendering its charts only when they are requested:
+ * <pre>
+ * /                          index of the available charts
+ * /total.jpg                 total worked hours
+ * /person/{identifier}.jpg   worked hours of a researcher
+ * /requirement/{name}.jpg    worked hours on a requirement
+ * </pre>
+ * Rendered images are kept in an LRU cache bounded in bytes, which is emptied whenever a new schedule
+ * is shown.
+ */
+public class ChartServer implements AutoCloseable {
+    private static final long DEFAULT_CACHE_BYTES = 64L * 1024 * 1024;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long maxCacheBytes;
+    private final LinkedHashMap<String, byte[]> images = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedBytes;
+    private volatile Snapshot snapshot;
+
+    private ChartServer(HttpServer server, long maxCacheBytes) {
+        this.server = server;
+        this.maxCacheBytes = maxCacheBytes;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors()), runnable -> {
+            Thread thread = new Thread(runnable, "chart-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Listens on the loopback interface only.
+     */
+    public static ChartServer start(int port) throws IOException {
+        return start(port, DEFAULT_CACHE_BYTES);
+    }
+
+    public static ChartServer start(int port, long maxCacheBytes) throws IOException {
+        ChartServer chartServer = new ChartServer(HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0), maxCacheBytes);
+        chartServer.server.start();
+        return chartServer;
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public void show(Set<Requirement> requirements, String type) {
+        try (Stream<Allocation> allocations = ScheduleStream.of(requirements, Algorithm.of(type))) {
+            show(requirements, allocations.iterator(), type);
+        }
+    }
+
+    /**
+     * Replaces the schedule being served. As in {@link GraphGenerator}, researcher charts cover the first
+     * half of the allocations.
+     */
+    @SuppressWarnings("try")
+    public void show(Collection<Requirement> requirements, Collection<Allocation> schedule, String type) {
+        WorkedHoursCube[] cubes;
+        try (Metrics.Span span = Metrics.time("aggregate.cube")) {
+            cubes = WorkedHoursCube.of(schedule, 0.50);
+        }
+        show(requirements, cubes, type);
+    }
+
+    /**
+     * As {@link #show(Collection, Collection, String)} for a schedule streamed in day order, e.g. by
+     * {@link ScheduleStream}, without holding its allocations.
+     */
+    @SuppressWarnings("try")
+    public void show(Collection<Requirement> requirements, Iterator<Allocation> dayOrdered, String type) {
+        WorkedHoursCube[] cubes;
+        try (Metrics.Span span = Metrics.time("aggregate.cube")) {
+            cubes = WorkedHoursCube.ofDayOrdered(dayOrdered, 0.50);
+        }
+        show(requirements, cubes, type);
+    }
+
+    private void show(Collection<Requirement> requirements, WorkedHoursCube[] cubes, String type) {
+        synchronized (images) {
+            Snapshot previous = snapshot;
+            snapshot = new Snapshot(previous == null ? 0 : previous.version + 1, type, cubes[0], cubes[1], requirements);
+            invalidate();
+        }
+    }
+
+    public void invalidate() {
+        synchronized (images) {
+            images.clear();
+            cachedBytes = 0;
+        }
+    }
+
+    long cachedBytes() {
+        synchronized (images) {
+            return cachedBytes;
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                send(exchange, 405, "text/plain", "Method not allowed".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            Snapshot current = snapshot;
+            if (current == null) {
+                send(exchange, 503, "text/plain", "No schedule loaded".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/")) {
+                send(exchange, 200, "text/html; charset=utf-8", current.index().getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            byte[] image = image(current, path);
+            if (image == null) {
+                send(exchange, 404, "text/plain", ("No chart at " + path).getBytes(StandardCharsets.UTF_8));
+            } else {
+                send(exchange, 200, "image/jpeg", image);
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            send(exchange, 500, "text/plain", String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private byte[] image(Snapshot current, String path) throws IOException {
+        String key = current.version + path;
+        synchronized (images) {
+            byte[] cached = images.get(key);
+            if (cached != null) {
+                Metrics.increment("server.cacheHits");
+                return cached;
+            }
+        }
+
+        Supplier<JFreeChart> chart;
+        int height = 672;
+        if (path.equals("/total.jpg")) {
+            chart = () -> GraphGenerator.generateTotalWorkedHours(current.workedHours, current.type);
+            height = 574;
+        } else if (path.startsWith("/person/") && path.endsWith(".jpg")) {
+            Person person = current.people.get(path.substring("/person/".length(), path.length() - 4));
+            if (person == null) {
+                return null;
+            }
+            chart = () -> GraphGenerator.generatePersonWorkedHours(current.splitWorkedHours, person, current.type);
+        } else if (path.startsWith("/requirement/") && path.endsWith(".jpg")) {
+            Requirement requirement = current.requirements.get(path.substring("/requirement/".length(), path.length() - 4));
+            if (requirement == null) {
+                return null;
+            }
+            chart = () -> GraphGenerator.generateRequirementWorkedHours(current.workedHours, requirement, current.type);
+        } else {
+            return null;
+        }
+
+        byte[] image = ChartRenderingPipeline.encode(ChartRenderingPipeline.build(chart), 896, height);
+        synchronized (images) {
+            // a render that raced with a schedule change must not repopulate the cache
+            if (snapshot == current && images.put(key, image) == null) {
+                cachedBytes += image.length;
+                Iterator<byte[]> eldest = images.values().iterator();
+                while (cachedBytes > maxCacheBytes && eldest.hasNext()) {
+                    cachedBytes -= eldest.next().length;
+                    eldest.remove();
+                }
+            }
+        }
+        return image;
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static class Snapshot {
+        final long version;
+        final String type;
+        final WorkedHoursCube splitWorkedHours;
+        final WorkedHoursCube workedHours;
+        final Map<String, Person> people = new TreeMap<>();
+        final Map<String, Requirement> requirements = new TreeMap<>();
+
+        Snapshot(long version, String type, WorkedHoursCube splitWorkedHours, WorkedHoursCube workedHours, Collection<Requirement> requirements) {
+            this.version = version;
+            this.type = type;
+            this.splitWorkedHours = splitWorkedHours;
+            this.workedHours = workedHours;
+            splitWorkedHours.people().forEach(person -> people.put(person.getIdentifier(), person));
+            requirements.forEach(requirement -> this.requirements.put(requirement.name(), requirement));
+        }
+
+        String index() {
+            StringBuilder html = new StringBuilder("<!DOCTYPE html>\n<html><body>\n<h1>Worked hours (")
+                    .append(type.toUpperCase()).append(")</h1>\n<p><a href=\"/total.jpg\">Total</a></p>\n<h2>Researchers</h2>\n<ul>\n");
+            people.keySet().forEach(identifier -> link(html, "/person/", identifier));
+            html.append("</ul>\n<h2>Requirements</h2>\n<ul>\n");
+            requirements.keySet().forEach(name -> link(html, "/requirement/", name));
+            return html.append("</ul>\n</body></html>\n").toString();
+        }
+
+        private static void link(StringBuilder html, String prefix, String name) {
+            String escaped = name.replace("&", "&amp;").replace("<", "&lt;").replace("\"", "&quot;");
+            try {
+                html.append("<li><a href=\"").append(prefix).append(URLEncoder.encode(name, "UTF-8").replace("+", "%20"))
+                        .append(".jpg\">").append(escaped).append("</a></li>\n");
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
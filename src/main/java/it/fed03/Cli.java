@@ -0,0 +1,308 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Requirement;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Command line entry point for scripted, short runs.
+ * <pre>
+ * Cli solve  [-scenario file] [-split] [-capacities file] [-algorithm fed] [schedule file]
+ * Cli stats  [-scenario file] [-split] [-capacities file] [-algorithm fed] [-allocations]
+ * Cli charts [-scenario file [-split] [-capacities file] | -schedule file] [-algorithm fed] folder
+ * Cli export [-scenario file [-split] [-capacities file] | -schedule file] [-algorithm fed] report.{tex,csv,json}
+ * Cli serve  [-scenario file] [-split] [-capacities file] [-algorithm fed] [-port 8080]
+ * Cli compare [-scenario file] [-split] [-capacities file] [-algorithms edf,fed]
+ * Cli robustness [-scenario file] [-split] [-capacities file] [-algorithm fed] [-variants 200] [-seed 1] [-overrun 0.2:0.3] [-slip 0.1:5]
+ * Cli online [-algorithm fed] [-frozen 7] events.csv [schedule file]
+ * Cli batch  &lt;BatchRunner arguments&gt;
+ * </pre>
+ * Without {@code -scenario} the requirements of {@code Main.highDemand()} are used; {@code -split} discards
+ * their assertions and splits every requirement among its researchers with {@link AssertionSplitter},
+ * printing the split, before anything else is done with them. {@code -schedule} reads a
+ * {@link ScheduleFile} written by {@code solve} instead of solving again; without it {@code stats},
+ * {@code charts} and {@code export} read the schedule from a {@link ScheduleStream} as it is solved.
+ * {@code serve} shows the charts through a {@link ChartServer} on the loopback interface until the process
+ * is stopped. {@code compare} solves with every algorithm of {@code -algorithms} at once and prints an
+ * {@link AlgorithmComparison}.
+ * {@code robustness} runs a {@link RobustnessSimulation} with overruns given as probability:sigma and
+ * release slips as probability:maximum days. {@code online} replays an {@link OnlineScheduler} event log,
+ * freezing {@code -frozen} days at every event, and can write the final schedule as {@code solve} does.
+ * <p>
+ * {@code -capacities} reads per-researcher overrides of the daily capacity with {@link CapacityCalendar#load};
+ * feasibility, loads, metrics and robustness outcomes are measured against them, and {@code -algorithm cp}
+ * plans with them too. EDF and FED only know the default daily capacity of the file.
+ * <p>
+ * The JVM runs headless and JFreeChart is only reached through {@link Charts}, so every command but
+ * {@code charts} and {@code serve} starts without loading any chart or AWT class. Together with the class-data-sharing
+ * archive of the {@code cli} Maven profile this keeps short invocations dominated by the work they do.
+ */
+public class Cli {
+    private static final String USAGE = "Usage: Cli solve|stats|charts|export|serve|compare|robustness|online|batch [-scenario file] [-schedule file] [-capacities file] [-algorithm edf|fed|cp]"
+            + " [-algorithms edf,fed,cp] [-split] [-allocations]"
+            + " [-variants n] [-seed n] [-overrun probability:sigma] [-slip probability:days] [-frozen days] [-port n] [target]";
+
+    private final Map<String, String> options = new HashMap<>();
+    private final Set<String> flags = new HashSet<>();
+    private final List<String> positional = new ArrayList<>();
+
+    private Cli(String[] args) {
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "-scenario":
+                case "-schedule":
+                case "-capacities":
+                case "-algorithm":
+                case "-algorithms":
+                case "-variants":
+                case "-seed":
+                case "-overrun":
+                case "-slip":
+                case "-frozen":
+                case "-port":
+                    if (i + 1 == args.length) {
+                        throw new IllegalArgumentException("missing value of " + args[i]);
+                    }
+                    options.put(args[i], args[++i]);
+                    break;
+                case "-allocations":
+                case "-split":
+                    flags.add(args[i]);
+                    break;
+                default:
+                    if (args[i].startsWith("-")) {
+                        throw new IllegalArgumentException("unknown option " + args[i]);
+                    }
+                    positional.add(args[i]);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (System.getProperty("java.awt.headless") == null) {
+            System.setProperty("java.awt.headless", "true");
+        }
+        if (args.length == 0) {
+            usage(null);
+        }
+        if (args[0].equals("batch")) {
+            BatchRunner.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        Cli cli;
+        try {
+            cli = new Cli(args);
+        } catch (IllegalArgumentException e) {
+            usage(e.getMessage());
+            return;
+        }
+        switch (args[0]) {
+            case "solve":
+                cli.solve();
+                break;
+            case "stats":
+                cli.stats();
+                break;
+            case "charts":
+                cli.charts();
+                break;
+            case "export":
+                cli.export();
+                break;
+            case "serve":
+                cli.serve();
+                break;
+            case "compare":
+                cli.compare();
+                break;
+            case "robustness":
+                cli.robustness();
+                break;
+            case "online":
+                cli.online();
+                break;
+            default:
+                usage("unknown command " + args[0]);
+        }
+    }
+
+    private static void usage(String error) {
+        if (error != null) {
+            System.err.println(error);
+        }
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+
+    private void solve() throws IOException {
+        expectPositional(0, 1);
+        Set<Requirement> requirements = requirements();
+        Algorithm algorithm = algorithm();
+        CapacityCalendar capacities = capacities();
+        Collection<Allocation> schedule = ScheduleCache.defaultCache().generateSchedule(requirements, algorithm, capacities);
+        ScheduleMetrics metrics = ScheduleMetrics.of(requirements, schedule, capacities);
+        System.out.println(algorithm.type() + ": " + schedule.size() + " allocations");
+        System.out.println("Fragments: avg " + metrics.averageFragments() + ", max " + metrics.maxFragments());
+        System.out.println("Slack: avg " + metrics.averageSlack() + ", min " + metrics.minSlack());
+        System.out.println("Late assertions: " + metrics.lateAssertions());
+        System.out.println("Unallocated hours: " + metrics.unallocatedHours());
+        if (!positional.isEmpty()) {
+            ScheduleFile.write(Paths.get(positional.get(0)), requirements, schedule);
+        }
+    }
+
+    private void stats() throws IOException {
+        expectPositional(0, 0);
+        Set<Requirement> requirements = requirements();
+        CapacityCalendar capacities = capacities();
+        Main.highDemandStatistics(requirements, capacities);
+        if (flags.contains("-allocations")) {
+            try (Stream<Allocation> allocations = ScheduleStream.of(requirements, algorithm(), capacities)) {
+                AllocationStatistics.print(AllocationStatistics.ofDayOrdered(allocations.iterator(), capacities), System.out);
+            }
+        }
+    }
+
+    private void charts() throws IOException {
+        expectPositional(1, 1);
+        String schedule = options.get("-schedule");
+        if (schedule != null) {
+            Charts.generate(positional.get(0), ScheduleFile.open(Paths.get(schedule)), algorithm().type());
+        } else {
+            Charts.generate(positional.get(0), requirements(), algorithm(), capacities());
+        }
+    }
+
+    private void serve() throws IOException, InterruptedException {
+        expectPositional(0, 0);
+        Charts.serve((int) numbers("-port", "8080", 1)[0], requirements(), algorithm(), capacities());
+    }
+
+    private void export() throws IOException {
+        expectPositional(1, 1);
+        Path target = Paths.get(positional.get(0));
+        String schedule = options.get("-schedule");
+        if (schedule != null) {
+            ReportExporter.export(target, ScheduleFile.open(Paths.get(schedule)));
+        } else {
+            Set<Requirement> requirements = requirements();
+            try (Stream<Allocation> allocations = ScheduleStream.of(requirements, algorithm(), capacities())) {
+                ReportExporter.export(target, requirements, allocations::iterator);
+            }
+        }
+    }
+
+    private void compare() throws IOException {
+        expectPositional(0, 0);
+        AlgorithmComparison.print(AlgorithmComparison.compare(requirements(), capacities(), algorithms()), System.out);
+    }
+
+    private void robustness() throws IOException {
+        expectPositional(0, 0);
+        double[] overrun = numbers("-overrun", "0.2:0.3", 2);
+        double[] slip = numbers("-slip", "0.1:5", 2);
+        RobustnessSimulation simulation = RobustnessSimulation.run(requirements(), algorithm(), (int) numbers("-variants", "200", 1)[0],
+                (long) numbers("-seed", "1", 1)[0], overrun[0], overrun[1], slip[0], (int) slip[1], Runtime.getRuntime().availableProcessors(), capacities());
+        RobustnessSimulation.print(simulation, System.out);
+    }
+
+    private void online() throws IOException {
+        expectPositional(1, 2);
+        OnlineScheduler scheduler = OnlineScheduler.replay(Paths.get(positional.get(0)), algorithm(),
+                (int) numbers("-frozen", String.valueOf(OnlineScheduler.FROZEN_DAYS), 1)[0]);
+        OnlineScheduler.print(scheduler, System.out);
+        if (positional.size() == 2) {
+            ScheduleFile.write(Paths.get(positional.get(1)), scheduler.requirements(), scheduler.schedule());
+        }
+    }
+
+    private Set<Requirement> requirements() throws IOException {
+        String scenario = options.get("-scenario");
+        Set<Requirement> requirements = scenario == null ? Main.highDemand() : ScenarioLoader.load(Paths.get(scenario));
+        if (flags.contains("-split")) {
+            AssertionSplitter.print(AssertionSplitter.split(requirements, Collections.emptySet(), capacities()), System.out);
+        }
+        return requirements;
+    }
+
+    private CapacityCalendar capacities() throws IOException {
+        String capacities = options.get("-capacities");
+        return capacities == null ? CapacityCalendar.standard() : CapacityCalendar.load(Paths.get(capacities));
+    }
+
+    private Algorithm algorithm() {
+        try {
+            return Algorithm.of(options.getOrDefault("-algorithm", "fed"));
+        } catch (IllegalArgumentException e) {
+            usage("unknown algorithm " + options.get("-algorithm"));
+            return null;
+        }
+    }
+
+    private Algorithm[] algorithms() {
+        try {
+            return Arrays.stream(options.getOrDefault("-algorithms", "edf,fed").split(",")).map(String::trim).map(Algorithm::of).toArray(Algorithm[]::new);
+        } catch (IllegalArgumentException e) {
+            usage("unknown algorithm in " + options.get("-algorithms"));
+            return null;
+        }
+    }
+
+    /**
+     * The {@code count} numbers, separated by colons, given as value of {@code option}.
+     */
+    private double[] numbers(String option, String defaultValue, int count) {
+        String value = options.getOrDefault(option, defaultValue);
+        String[] parts = value.split(":", -1);
+        try {
+            if (parts.length != count) {
+                throw new NumberFormatException();
+            }
+            double[] numbers = new double[count];
+            for (int i = 0; i < count; i++) {
+                numbers[i] = Double.parseDouble(parts[i]);
+            }
+            return numbers;
+        } catch (NumberFormatException e) {
+            usage("expected " + count + (count == 1 ? " number" : " numbers separated by ':'") + " as value of " + option + ", found " + value);
+            return null;
+        }
+    }
+
+    private void expectPositional(int min, int max) {
+        if (positional.size() < min || positional.size() > max) {
+            usage("expected " + (min == max ? String.valueOf(min) : min + " to " + max) + " arguments, found " + positional.size());
+        }
+    }
+
+    /**
+     * The only way into {@link GraphGenerator} and {@link ChartServer}; being a class of its own, JFreeChart
+     * is loaded the first time a chart is asked for rather than when {@link Cli} is verified.
+     */
+    private static class Charts {
+        static void generate(String folder, Set<Requirement> requirements, Algorithm algorithm, CapacityCalendar capacities) {
+            try (Stream<Allocation> allocations = ScheduleStream.of(requirements, algorithm, capacities)) {
+                GraphGenerator.generateDiagramFor(folder, allocations.iterator(), requirements, algorithm.type());
+            }
+        }
+
+        static void generate(String folder, ScheduleFile schedule, String type) {
+            GraphGenerator.generateDiagramFor(folder, schedule, type);
+        }
+
+        static void serve(int port, Set<Requirement> requirements, Algorithm algorithm, CapacityCalendar capacities) throws IOException, InterruptedException {
+            ChartServer server = ChartServer.start(port);
+            try (Stream<Allocation> allocations = ScheduleStream.of(requirements, algorithm, capacities)) {
+                server.show(requirements, allocations.iterator(), algorithm.type());
+            }
+            System.out.println("Serving charts on http://localhost:" + server.port() + "/");
+            Thread.currentThread().join();
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.model.Person;
+import it.unifi.cassandra.scheduling.model.Requirement;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Demand-bound test of a requirement set: a researcher's assertions fit iff, for every interval
+ * [release, deadline) spanned by them, the hours of the assertions lying inside it do not exceed their
+ * capacity over it. Capacities come from the {@link CapacityCalendar} in constant time, so the whole test
+ * never touches a schedule.
+ * <p>
+ * A researcher's profile keeps only their assertions ordered by deadline, linear in their number. The
+ * overload is found by one sweep over the deadlines and what-if questions ("can researcher2 absorb 200
+ * more hours in [d1, d2)?") by a sweep restricted to the intervals holding the candidate, both in
+ * O(n log n) time.
+ */
+public class FeasibilityCheck {
+    private final CapacityCalendar capacities;
+    private final Map<Person, Profile> profiles;
+
+    private FeasibilityCheck(CapacityCalendar capacities, Map<Person, Profile> profiles) {
+        this.capacities = capacities;
+        this.profiles = profiles;
+    }
+
+    public static FeasibilityCheck of(Set<Requirement> requirements) {
+        return of(requirements, CapacityCalendar.standard());
+    }
+
+    public static FeasibilityCheck of(Set<Requirement> requirements, int dailyCapacity, WorkingCalendar calendar) {
+        return of(requirements, CapacityCalendar.uniform(dailyCapacity, calendar));
+    }
+
+    public static FeasibilityCheck of(Set<Requirement> requirements, CapacityCalendar capacities) {
+        Map<Person, List<Assertion>> assertionsByPerson = requirements.stream()
+                .flatMap(requirement -> requirement.assertions().stream())
+                .collect(Collectors.groupingBy(Assertion::assignedPerson, LinkedHashMap::new, Collectors.toList()));
+        Map<Person, Profile> profiles = new LinkedHashMap<>();
+        assertionsByPerson.forEach((person, assertions) -> profiles.put(person, new Profile(person, assertions, capacities)));
+        return new FeasibilityCheck(capacities, profiles);
+    }
+
+    /**
+     * The check of the current set plus {@code added}; only the researchers owning them are recomputed.
+     */
+    public FeasibilityCheck with(Collection<? extends Assertion> added) {
+        Map<Person, List<Assertion>> changed = new LinkedHashMap<>();
+        for (Assertion assertion : added) {
+            changed.computeIfAbsent(assertion.assignedPerson(), person -> {
+                Profile profile = profiles.get(person);
+                return profile == null ? new ArrayList<>() : new ArrayList<>(profile.assertions);
+            }).add(assertion);
+        }
+        Map<Person, Profile> updated = new LinkedHashMap<>(profiles);
+        changed.forEach((person, assertions) -> updated.put(person, new Profile(person, assertions, capacities)));
+        return new FeasibilityCheck(capacities, updated);
+    }
+
+    public boolean isFeasible() {
+        return profiles.values().stream().allMatch(profile -> profile.overload == null);
+    }
+
+    public boolean isFeasible(Person person) {
+        Profile profile = profiles.get(person);
+        return profile == null || profile.overload == null;
+    }
+
+    /**
+     * The most overloaded interval of every researcher whose assertions do not fit.
+     */
+    public Map<Person, Overload> overloads() {
+        Map<Person, Overload> overloads = new LinkedHashMap<>();
+        profiles.forEach((person, profile) -> {
+            if (profile.overload != null) {
+                overloads.put(person, profile.overload);
+            }
+        });
+        return overloads;
+    }
+
+    /**
+     * Largest number of extra hours, released at {@code start} and due before {@code endExclusive}, that
+     * {@code person} can take on while keeping every current assertion feasible; 0 if it already is not.
+     */
+    public int absorbableHours(Person person, LocalDate start, LocalDate endExclusive) {
+        Profile profile = profiles.get(person);
+        if (profile == null) {
+            return capacities.capacity(person, start, endExclusive);
+        }
+        return profile.absorbableHours((int) start.toEpochDay(), (int) endExclusive.toEpochDay());
+    }
+
+    public boolean canAbsorb(Person person, int hours, LocalDate start, LocalDate endExclusive) {
+        return hours <= 0 || absorbableHours(person, start, endExclusive) >= hours;
+    }
+
+    /**
+     * Checks every candidate on its own against the current set, none of them is added to it.
+     */
+    public boolean[] canAbsorb(List<? extends Assertion> candidates) {
+        boolean[] result = new boolean[candidates.size()];
+        for (int i = 0; i < result.length; i++) {
+            Assertion candidate = candidates.get(i);
+            result[i] = canAbsorb(candidate.assignedPerson(), candidate.computationTime(), candidate.releaseTime(), candidate.deadline());
+        }
+        return result;
+    }
+
+    public static class Overload {
+        private final LocalDate start;
+        private final LocalDate endExclusive;
+        private final int demand;
+        private final int capacity;
+
+        private Overload(LocalDate start, LocalDate endExclusive, int demand, int capacity) {
+            this.start = start;
+            this.endExclusive = endExclusive;
+            this.demand = demand;
+            this.capacity = capacity;
+        }
+
+        public LocalDate start() {
+            return start;
+        }
+
+        public LocalDate endExclusive() {
+            return endExclusive;
+        }
+
+        public int demand() {
+            return demand;
+        }
+
+        public int capacity() {
+            return capacity;
+        }
+
+        @Override
+        public String toString() {
+            return demand + "h over " + capacity + "h in [" + start + ";" + endExclusive + ")";
+        }
+    }
+
+    private static class Profile {
+        final Person person;
+        final CapacityCalendar capacities;
+        final List<Assertion> assertions;
+        // distinct release days, ascending
+        final int[] releases;
+        // release, deadline and hours of every assertion, ordered by deadline
+        final int[] release;
+        final int[] deadline;
+        final int[] hours;
+        final Overload overload;
+
+        Profile(Person person, List<Assertion> assertions, CapacityCalendar capacities) {
+            this.person = person;
+            this.capacities = capacities;
+            this.assertions = assertions;
+            releases = assertions.stream().mapToInt(assertion -> (int) assertion.releaseTime().toEpochDay()).distinct().sorted().toArray();
+            List<Assertion> byDeadline = new ArrayList<>(assertions);
+            byDeadline.sort(Comparator.comparing(Assertion::deadline));
+            release = new int[byDeadline.size()];
+            deadline = new int[byDeadline.size()];
+            hours = new int[byDeadline.size()];
+            for (int k = 0; k < byDeadline.size(); k++) {
+                release[k] = (int) byDeadline.get(k).releaseTime().toEpochDay();
+                deadline[k] = (int) byDeadline.get(k).deadline().toEpochDay();
+                hours[k] = byDeadline.get(k).computationTime();
+            }
+            overload = worstOverload();
+        }
+
+        /**
+         * Sweeps the deadlines in order keeping, for every release r, capacity(base, r) plus the demand of
+         * [r, deadline) negated; the slack of [r, d) is then capacity(base, d) plus that value.
+         */
+        private Overload worstOverload() {
+            if (releases.length == 0) {
+                return null;
+            }
+            int base = Math.min(releases[0], deadline[0]);
+            int[] values = new int[releases.length];
+            for (int i = 0; i < releases.length; i++) {
+                values[i] = -capacity(base, releases[i]);
+            }
+            MinTree tree = new MinTree(values);
+            Overload worst = null;
+            int worstSlack = 0;
+            for (int k = 0; k < deadline.length; ) {
+                int due = deadline[k];
+                for (; k < deadline.length && deadline[k] == due; k++) {
+                    tree.add(upperBound(releases, release[k]), -hours[k]);
+                }
+                int opened = lowerBound(releases, due);
+                if (opened == 0) {
+                    continue;
+                }
+                int slack = capacity(base, due) + tree.min(opened);
+                if (slack < worstSlack) {
+                    worstSlack = slack;
+                    int start = releases[tree.argMin(opened)];
+                    int capacity = capacity(start, due);
+                    worst = new Overload(LocalDate.ofEpochDay(start), LocalDate.ofEpochDay(due), capacity - slack, capacity);
+                }
+            }
+            return worst;
+        }
+
+        /**
+         * The smallest slack among the intervals holding [start, endExclusive): they start at a release not
+         * after {@code start} or at {@code start} itself and end at a deadline not before {@code endExclusive}
+         * or at {@code endExclusive} itself. Same sweep as {@link #worstOverload()}, restricted to them.
+         */
+        int absorbableHours(int start, int endExclusive) {
+            if (overload != null) {
+                return 0;
+            }
+            int before = upperBound(releases, start);
+            int base = before == 0 ? start : releases[0];
+            int[] values = new int[before + 1];
+            for (int i = 0; i < before; i++) {
+                values[i] = -capacity(base, releases[i]);
+            }
+            values[before] = -capacity(base, start);
+            MinTree tree = new MinTree(values);
+
+            int k = 0;
+            for (; k < deadline.length && deadline[k] <= endExclusive; k++) {
+                tree.add(released(before, start, release[k]), -hours[k]);
+            }
+            int absorbable = capacity(base, endExclusive) + tree.min(values.length);
+            while (k < deadline.length) {
+                int due = deadline[k];
+                for (; k < deadline.length && deadline[k] == due; k++) {
+                    tree.add(released(before, start, release[k]), -hours[k]);
+                }
+                absorbable = Math.min(absorbable, capacity(base, due) + tree.min(values.length));
+            }
+            return Math.max(0, absorbable);
+        }
+
+        /**
+         * How many of the candidate starts, the first {@code before} releases followed by {@code start},
+         * are not after {@code assertionRelease}.
+         */
+        private int released(int before, int start, int assertionRelease) {
+            return start <= assertionRelease ? before + 1 : Math.min(before, upperBound(releases, assertionRelease));
+        }
+
+        private int capacity(int start, int endExclusive) {
+            return capacities.capacity(person, start, endExclusive);
+        }
+
+        private static int lowerBound(int[] values, int key) {
+            int position = Arrays.binarySearch(values, key);
+            return position >= 0 ? position : -position - 1;
+        }
+
+        private static int upperBound(int[] values, int key) {
+            int position = Arrays.binarySearch(values, key);
+            return position >= 0 ? position + 1 : -position - 1;
+        }
+    }
+
+    /**
+     * Values taking additions on a prefix, with the minimum of a prefix and its leftmost position; a
+     * node's minimum includes its own pending addition, which its children's do not.
+     */
+    private static class MinTree {
+        final int size;
+        final int[] min;
+        final int[] pending;
+
+        MinTree(int[] values) {
+            size = values.length;
+            min = new int[4 * Math.max(1, size)];
+            pending = new int[min.length];
+            build(1, 0, size - 1, values);
+        }
+
+        void add(int end, int delta) {
+            if (end > 0) {
+                add(1, 0, size - 1, end, delta);
+            }
+        }
+
+        int min(int end) {
+            return min(1, 0, size - 1, end);
+        }
+
+        int argMin(int end) {
+            return find(1, 0, size - 1, end, min(end));
+        }
+
+        private void build(int node, int low, int high, int[] values) {
+            if (low == high) {
+                min[node] = values[low];
+                return;
+            }
+            int middle = (low + high) >>> 1;
+            build(2 * node, low, middle, values);
+            build(2 * node + 1, middle + 1, high, values);
+            min[node] = Math.min(min[2 * node], min[2 * node + 1]);
+        }
+
+        private void add(int node, int low, int high, int end, int delta) {
+            if (high < end) {
+                min[node] += delta;
+                pending[node] += delta;
+                return;
+            }
+            int middle = (low + high) >>> 1;
+            add(2 * node, low, middle, end, delta);
+            if (middle + 1 < end) {
+                add(2 * node + 1, middle + 1, high, end, delta);
+            }
+            min[node] = Math.min(min[2 * node], min[2 * node + 1]) + pending[node];
+        }
+
+        private int min(int node, int low, int high, int end) {
+            if (high < end) {
+                return min[node];
+            }
+            int middle = (low + high) >>> 1;
+            int result = min(2 * node, low, middle, end);
+            if (middle + 1 < end) {
+                result = Math.min(result, min(2 * node + 1, middle + 1, high, end));
+            }
+            return result + pending[node];
+        }
+
+        private int find(int node, int low, int high, int end, int target) {
+            if (low >= end || min[node] > target) {
+                return -1;
+            }
+            if (low == high) {
+                return low;
+            }
+            int middle = (low + high) >>> 1;
+            int position = find(2 * node, low, middle, end, target - pending[node]);
+            return position >= 0 ? position : find(2 * node + 1, middle + 1, high, end, target - pending[node]);
+        }
+    }
+}
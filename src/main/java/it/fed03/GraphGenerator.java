@@ -1,16 +1,9 @@
 package it.fed03;
 
-import it.unifi.cassandra.scheduling.Problem;
-import it.unifi.cassandra.scheduling.ScheduleGenerator;
 import it.unifi.cassandra.scheduling.model.Allocation;
 import it.unifi.cassandra.scheduling.model.Person;
 import it.unifi.cassandra.scheduling.model.Requirement;
-import it.unifi.cassandra.scheduling.solver.FEDScheduleGenerator;
-import it.unifi.cassandra.scheduling.solver.edf.EDFSchedulabilityAnalysis;
-import it.unifi.cassandra.scheduling.solver.edf.EDFScheduleGenerator;
-import it.unifi.cassandra.scheduling.util.ScheduleManager;
 import org.jfree.chart.ChartFactory;
-import org.jfree.chart.ChartUtilities;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.axis.DateAxis;
 import org.jfree.chart.axis.DateTickUnit;
@@ -18,119 +11,97 @@ import org.jfree.chart.axis.DateTickUnitType;
 import org.jfree.chart.plot.XYPlot;
 import org.jfree.chart.renderer.xy.XYItemRenderer;
 import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
-import org.jfree.data.time.Day;
-import org.jfree.data.time.RegularTimePeriod;
 import org.jfree.data.time.TimeSeries;
 import org.jfree.data.time.TimeSeriesCollection;
 
 import java.awt.*;
-import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
-import java.time.LocalDate;
-import java.time.ZoneId;
 import java.util.*;
 import java.util.List;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class GraphGenerator {
     public static void generateDiagramFor(String folder, Set<Requirement> requirements, String type) {
-        ScheduleGenerator alg = null;
-        if (type.equals("edf")) {
-            alg = new EDFScheduleGenerator();
-        } else if (type.equals("fed")) {
-            alg = new FEDScheduleGenerator();
+        try (Stream<Allocation> allocations = ScheduleStream.of(requirements, Algorithm.of(type))) {
+            generateDiagramFor(folder, allocations.iterator(), requirements, type);
         }
-
-        Problem p = new Problem(requirements, 8, new EDFSchedulabilityAnalysis(), alg);
-        List<Allocation> allocations = new ArrayList<>(p.generateSchedule());
-
-        allocations.sort(Comparator.comparing(Allocation::getDay));
-        List<Allocation> allocationsSplit = allocations.subList(0, (int) Math.ceil(allocations.size() * 0.50));
-        List<Person> people = allocationsSplit.stream().map(Allocation::getPerson).distinct().collect(Collectors.toList());
-        people.forEach(person -> {
-            JFreeChart chart = generatePersonWorkedHours(allocationsSplit, person, type);
-            saveChartToImage(chart, Paths.get(folder, type), 896, 672);
-        });
-
-        requirements.forEach(requirement -> {
-            JFreeChart chart = generateRequirementWorkedHours(allocations, requirement, type);
-            saveChartToImage(chart, Paths.get(folder, type), 896, 672);
-        });
-
-        JFreeChart chart = generateTotalWorkedHours(allocations, type);
-        saveChartToImage(chart, Paths.get(folder, type), 896, 574);
     }
 
-    private static void saveChartToImage(JFreeChart chart, Path folderPath, int width, int height) {
-        if (!Files.exists(folderPath)) {
-            try {
-                Files.createDirectories(folderPath);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+    /**
+     * Charts of a schedule streamed in day order, e.g. by {@link ScheduleStream}, without holding its allocations.
+     */
+    @SuppressWarnings("try")
+    public static void generateDiagramFor(String folder, Iterator<Allocation> dayOrdered, Collection<Requirement> requirements, String type) {
+        WorkedHoursCube[] cubes;
+        try (Metrics.Span span = Metrics.time("aggregate.cube")) {
+            cubes = WorkedHoursCube.ofDayOrdered(dayOrdered, 0.50);
         }
+        generateDiagramFor(folder, cubes[0], cubes[1], requirements, type);
+    }
 
-        String imageName = chart.getTitle().getText().toLowerCase().replace(" ", "_");
-        imageName = imageName.substring(0, imageName.length() - 6);
-        File image = Paths.get(folderPath.toString(), imageName + ".jpg").toFile();
-        try {
-            ChartUtilities.saveChartAsJPEG(image, 1f, chart, width, height);
-        } catch (IOException e) {
-            e.printStackTrace();
+    @SuppressWarnings("try")
+    public static void generateDiagramFor(String folder, ScheduleFile schedule, String type) {
+        WorkedHoursCube workedHours;
+        WorkedHoursCube splitWorkedHours;
+        try (Metrics.Span span = Metrics.time("aggregate.cube")) {
+            workedHours = new WorkedHoursCube(schedule);
+            splitWorkedHours = new WorkedHoursCube(schedule, (int) Math.ceil(schedule.size() * 0.50));
         }
+        generateDiagramFor(folder, splitWorkedHours, workedHours, workedHours.requirements(), type);
     }
 
-    private static JFreeChart generateTotalWorkedHours(List<Allocation> allocations, String type) {
-        ScheduleManager scheduleManager = new ScheduleManager(allocations);
-        Map<Person, Map<LocalDate, Integer>> peopleWorkedHours = scheduleManager.peopleTotalWorkedHours();
-        Map<LocalDate, Integer> totalWorkedHours = scheduleManager.totalWorkedHours();
+    private static void generateDiagramFor(String folder, WorkedHoursCube splitWorkedHours, WorkedHoursCube workedHours, Collection<Requirement> requirements, String type) {
+        Path outputFolder = Paths.get(folder, type);
+        try (ChartRenderingPipeline pipeline = new ChartRenderingPipeline()) {
+            splitWorkedHours.people().forEach(person -> pipeline.submit(() -> generatePersonWorkedHours(splitWorkedHours, person, type), outputFolder, 896, 672));
 
-        TimeSeriesCollection peopleWorkedHoursDataset = generateDataset(Person::getIdentifier, peopleWorkedHours);
-        TimeSeries totalWorkedHoursDataset = createTimeSeries("Total amount", totalWorkedHours);
+            requirements.forEach(requirement -> pipeline.submit(() -> generateRequirementWorkedHours(workedHours, requirement, type), outputFolder, 896, 672));
 
-        return buildChart("Total worked hours by researcher (" + type.toUpperCase() + ")", peopleWorkedHoursDataset, totalWorkedHoursDataset, new DateTickUnit(DateTickUnitType.MONTH, 1));
+            pipeline.submit(() -> generateTotalWorkedHours(workedHours, type), outputFolder, 896, 574);
+        }
     }
 
-    private static JFreeChart generateRequirementWorkedHours(List<Allocation> allocations, Requirement requirement, String type) {
-        ScheduleManager scheduleManager = new ScheduleManager(allocations);
-        Map<Person, Map<LocalDate, Integer>> peopleWorkedHours = scheduleManager.peopleWorkedHoursByRequirement(requirement);
-        Map<LocalDate, Integer> totalWorkedHoursByRequirement = scheduleManager.totalWorkedHoursByRequirement(requirement);
+    static JFreeChart generateTotalWorkedHours(WorkedHoursCube workedHours, String type) {
+        DateTickUnit tickUnit = new DateTickUnit(DateTickUnitType.MONTH, 1);
+        TimeSeriesBuilder series = new TimeSeriesBuilder(tickUnit);
+        TimeSeriesCollection peopleWorkedHoursDataset = generateDataset(series, workedHours.people(), Person::getIdentifier, workedHours::personHours);
+        TimeSeries totalWorkedHoursDataset = series.build("Total amount", workedHours::totalHours);
 
-        TimeSeriesCollection peopleWorkedHoursDataset = generateDataset(Person::getIdentifier, peopleWorkedHours);
-        TimeSeries totalWorkedHoursDataset = createTimeSeries(requirement.name(), totalWorkedHoursByRequirement);
-
-        return buildChart(requirement.name() + " worked hours by researcher (" + type.toUpperCase() + ")", peopleWorkedHoursDataset, totalWorkedHoursDataset);
+        return buildChart("Total worked hours by researcher (" + type.toUpperCase() + ")", peopleWorkedHoursDataset, totalWorkedHoursDataset, tickUnit);
     }
 
-    private static JFreeChart generatePersonWorkedHours(List<Allocation> allocations, Person person, String type) {
-        ScheduleManager scheduleManager = new ScheduleManager(allocations);
-        Map<Requirement, Map<LocalDate, Integer>> requirementsWorkedHours = scheduleManager.peopleWorkedHoursGroupedByRequirement(person);
-        Map<LocalDate, Integer> totalWorkedHoursByPerson = scheduleManager.personWorkedHours(person);
+    static JFreeChart generateRequirementWorkedHours(WorkedHoursCube workedHours, Requirement requirement, String type) {
+        DateTickUnit tickUnit = new DateTickUnit(DateTickUnitType.DAY, 14);
+        TimeSeriesBuilder series = new TimeSeriesBuilder(tickUnit);
+        TimeSeriesCollection peopleWorkedHoursDataset = generateDataset(series, workedHours.peopleOf(requirement), Person::getIdentifier,
+                (person, consumer) -> workedHours.personRequirementHours(person, requirement, consumer));
+        TimeSeries totalWorkedHoursDataset = series.build(requirement.name(), consumer -> workedHours.requirementHours(requirement, consumer));
 
-        TimeSeriesCollection dataset = generateDataset(Requirement::name, requirementsWorkedHours);
-        TimeSeries totalPersonAmount = createTimeSeries(person.getIdentifier(), totalWorkedHoursByPerson);
+        return buildChart(requirement.name() + " worked hours by researcher (" + type.toUpperCase() + ")", peopleWorkedHoursDataset, totalWorkedHoursDataset, tickUnit);
+    }
 
-        return buildChart("Requirements worked hours by " + person.getIdentifier() + " (" + type.toUpperCase() + ")", dataset, totalPersonAmount, new DateTickUnit(DateTickUnitType.MONTH, 1));
+    static JFreeChart generatePersonWorkedHours(WorkedHoursCube workedHours, Person person, String type) {
+        DateTickUnit tickUnit = new DateTickUnit(DateTickUnitType.MONTH, 1);
+        TimeSeriesBuilder series = new TimeSeriesBuilder(tickUnit);
+        TimeSeriesCollection dataset = generateDataset(series, workedHours.requirementsOf(person), Requirement::name,
+                (requirement, consumer) -> workedHours.personRequirementHours(person, requirement, consumer));
+        TimeSeries totalPersonAmount = series.build(person.getIdentifier(), consumer -> workedHours.personHours(person, consumer));
+
+        return buildChart("Requirements worked hours by " + person.getIdentifier() + " (" + type.toUpperCase() + ")", dataset, totalPersonAmount, tickUnit);
     }
 
-    private static <E> TimeSeriesCollection generateDataset(Function<E, String> seriesName, Map<E, Map<LocalDate, Integer>> workedHours) {
+    private static <E> TimeSeriesCollection generateDataset(TimeSeriesBuilder series, List<E> entities, Function<E, String> seriesName, BiConsumer<E, WorkedHoursCube.DailyHoursConsumer> workedHours) {
         TimeSeriesCollection dataset = new TimeSeriesCollection();
-        workedHours.forEach((entity, workedHoursList) -> {
-            dataset.addSeries(createTimeSeries(seriesName.apply(entity), workedHoursList));
+        entities.forEach(entity -> {
+            dataset.addSeries(series.build(seriesName.apply(entity), consumer -> workedHours.accept(entity, consumer)));
         });
         return dataset;
     }
 
-    private static JFreeChart buildChart(String chartTitle, TimeSeriesCollection dataset, TimeSeries totalAmountSeries) {
-        DateTickUnit tickUnit = new DateTickUnit(DateTickUnitType.DAY, 14);
-        return buildChart(chartTitle, dataset, totalAmountSeries, tickUnit);
-    }
-
     private static JFreeChart buildChart(String chartTitle, TimeSeriesCollection dataset, TimeSeries totalAmountSeries, DateTickUnit tickUnit) {
         JFreeChart chart = ChartFactory.createTimeSeriesChart(chartTitle, "Date", "Worked hours", dataset);
         chart.setBackgroundPaint(Color.WHITE);
@@ -167,21 +138,4 @@ public class GraphGenerator {
         plot.setDataset(1, new TimeSeriesCollection(totalAmountSeries));
         plot.setRenderer(1, clonedRender);
     }
-
-    private static TimeSeries createTimeSeries(String seriesName, Map<LocalDate, Integer> allocationsList) {
-        TimeSeries series = new TimeSeries(seriesName);
-        allocationsList.forEach((date, value) -> {
-            series.add(convertToTime(date), value);
-        });
-
-        return series;
-    }
-
-    private static RegularTimePeriod convertToTime(LocalDate date) {
-        return new Day(convertToDate(date));
-    }
-
-    private static Date convertToDate(LocalDate date) {
-        return Date.from(date.atStartOfDay(ZoneId.of("UTC")).toInstant());
-    }
 }
@@ -1,16 +1,7 @@
 package it.fed03;
 
-import it.unifi.cassandra.scheduling.Problem;
 import it.unifi.cassandra.scheduling.model.*;
-import it.unifi.cassandra.scheduling.solver.FEDScheduleGenerator;
-import it.unifi.cassandra.scheduling.solver.edf.EDFSchedulabilityAnalysis;
-import it.unifi.cassandra.scheduling.util.TimeInterval;
-import it.unifi.cassandra.scheduling.util.WorkingDays;
-
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+
 import java.time.LocalDate;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -28,52 +19,17 @@ public class Main {
     }
 
     private static void allocStatistics(Set<Requirement> requirements) {
-        Problem p = new Problem(requirements, 8, new EDFSchedulabilityAnalysis(), new FEDScheduleGenerator());
-        Map<Person, List<Allocation>> alloc = p.generateSchedule().stream().sorted(Comparator.comparing(Allocation::getDay)).collect(Collectors.groupingBy(Allocation::getPerson, Collectors.toList()));
-
-        alloc.forEach(((person, allocations) -> {
-            if (Objects.equals(person.getIdentifier(), "researcher2")) {
-                Map<Assertion, List<Allocation>> allocByReq = allocations.stream().collect(Collectors.groupingBy(Allocation::assertion));
-                for (Assertion assertion : allocByReq.keySet().stream().sorted(Comparator.comparing(assertion -> assertion.requirement().name())).collect(Collectors.toList())) {
-                    List<Allocation> allocations1 = allocByReq.get(assertion);
-                    System.out.println(assertion.requirement().name() + ": " + assertion.computationTime());
-
-                    int totalCapacity = allocations1.size() * 8;
-                    int workedHours = allocations1.stream().mapToInt(Allocation::getHoursAmount).sum();
-                    double load = ((double) workedHours / totalCapacity);
-                    System.out.println("Load for " + assertion.requirement().name() + ": " + load);
-
-                    double wd = ((double) allocations1.size() / assertion.requirement().timeInterval().workingDays());
-
-                    System.out.println("WD for " + assertion.requirement().name() + ": " + wd);
-                }
-
-            }
-        }));
-
-        p.generateSchedule();
-
-        requirements.forEach(requirement -> {
-            if (requirement.name().equals("proj07")) {
-                Map<Person, List<Assertion>> assertionsByPerson = requirement.assertions().stream().collect(Collectors.groupingBy(Assertion::assignedPerson));
-                assertionsByPerson.forEach((person, assertions) -> {
-                    Assertion assertion = assertions.get(0);
-                    Set<Allocation> allocations = assertion.allocations();
-                    int totalCapacity = allocations.size() * 8;
-                    int workedHours = allocations.stream().mapToInt(Allocation::getHoursAmount).sum();
-                    double load = ((double) workedHours / totalCapacity);
-                    System.out.println(assertion.computationTime());
-                    System.out.println("Load for " + person.getIdentifier() + ": " + load);
-
-                    double wd = ((double) allocations.size() / assertion.requirement().timeInterval().workingDays());
-
-                    System.out.println("WD for " + assertion.requirement().name() + ": " + wd);
-                });
-            }
-        });
+        Collection<Allocation> schedule = ScheduleCache.defaultCache().generateSchedule(requirements, Algorithm.FED);
+        AllocationStatistics.print(AllocationStatistics.of(schedule), System.out);
+    }
+
+    static void highDemandStatistics(Set<Requirement> requirements) {
+        highDemandStatistics(requirements, CapacityCalendar.standard());
     }
 
-    private static void highDemandStatistics(Set<Requirement> requirements) {
+    static void highDemandStatistics(Set<Requirement> requirements, CapacityCalendar capacities) {
+        FeasibilityCheck feasibility = FeasibilityCheck.of(requirements, capacities);
+        System.out.println("Feasible: " + feasibility.isFeasible() + " " + feasibility.overloads());
         Map<Person, List<Assertion>> assertionByPerson = requirements.stream().flatMap(requirement -> requirement.assertions().stream()).collect(Collectors.groupingBy(Assertion::assignedPerson));
         assertionByPerson.forEach((person, assertions) -> {
             System.out.println("--------------------------------------------------");
@@ -83,64 +39,24 @@ public class Main {
 
             System.out.println("Min: " + min);
             System.out.println("Max: " + max);
-            int workingDays = WorkingDays.between(min, max);
+            int workingDays = capacities.calendar().workingDays(min, max);
+            int capacity = capacities.capacity(person, min, max);
             int toBeAllocated = assertions.stream().mapToInt(Assertion::computationTime).sum();
             System.out.println("Working Days: " + workingDays);
             System.out.println("To be allocated: " + toBeAllocated);
-            System.out.println("Working rate: " + (double) toBeAllocated / (workingDays * 8));
-
-
-            int intersections = 0;
-            int intersectionsSize = 0;
-            List<Assertion> sorted = new ArrayList<>(assertions);
-            sorted.sort(Comparator.comparing(Assertion::releaseTime));
-            Assertion toCheck = sorted.remove(0);
-            while (sorted.size() > 0) {
-                for (Assertion assertion : sorted) {
-                    TimeInterval intersectInterval = toCheck.timeInterval().intersect(assertion.timeInterval());
-                    if (intersectInterval != null) {
-                        intersections++;
-                        intersectionsSize += intersectInterval.workingDays();
-                    }
-                }
-                toCheck = sorted.remove(0);
-            }
-
-            System.out.println("Intersections: " + intersections);
-            System.out.println("AVG Intersections size: " + (double) intersectionsSize / (double) intersections);
-            System.out.println("AVG Intersections per assertion: " + (double) intersections / (double) assertions.size());
-        });
-    }
+            System.out.println("Working rate: " + (double) toBeAllocated / capacity);
 
-    private static void highDemandTexFile(Set<Requirement> requirements) {
-        String result = "\\begin{itemize}\n";
-        int i = 1;
-        for (Requirement requirement : requirements.stream().sorted(Comparator.comparing(Requirement::name)).collect(Collectors.toList())) {
-            List<String> peopleName = requirement.assignedPeople().stream().map(Person::getIdentifier).sorted().collect(Collectors.toList());
-            result = result.concat(String.format("\\item Requirement %s - %s - %s ore - [%s;%s) - assegnato a %s\\\\\n",
-                    i,
-                    requirement.name(), requirement.computationTime(),
-                    requirement.timeInterval().getStartInclusive(), requirement.timeInterval().getEndExclusive(),
-                    String.join(", ", peopleName)
-            ));
-            result = result.concat("Assertion:\n\\begin{itemize}\n");
-            for (Assertion assertion : requirement.assertions()) {
-                result = result.concat(String.format("\\item %s ore - [%s;%s) - assegnato a %s\n", assertion.computationTime(), assertion.releaseTime(), assertion.deadline(), assertion.assignedPerson().getIdentifier()));
-            }
-            result = result.concat("\\end{itemize}\n");
-            i++;
-        }
-        result = result.concat("\\end{itemize}");
-
-        try {
-            Files.write(Paths.get("C:\\Users\\templ\\Google Drive\\tesi\\thesis-template\\files\\highDemandEx.tex"),
-                    result.getBytes(), StandardOpenOption.CREATE);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+
+            OverlapAnalysis overlaps = OverlapAnalysis.of(assertions);
+            System.out.println("Intersections: " + overlaps.intersections());
+            System.out.println("AVG Intersections size: " + (double) overlaps.intersectionsWorkingDays() / (double) overlaps.intersections());
+            System.out.println("AVG Intersections per assertion: " + (double) overlaps.intersections() / (double) assertions.size());
+            System.out.println("Peak concurrency: " + overlaps.peakConcurrency() + " (" + overlaps.peakDay() + ")");
+            System.out.println("Absorbable hours in [" + min + ";" + max + "): " + feasibility.absorbableHours(person, min, max));
+        });
     }
 
-    private static Set<Requirement> highDemand() {
+    static Set<Requirement> highDemand() {
         Person researcher1 = new Researcher("researcher1");
         Person researcher2 = new Researcher("researcher2");
         Person researcher3 = new Researcher("researcher3");
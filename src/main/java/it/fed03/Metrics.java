@@ -0,0 +1,169 @@
+package it.fed03;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * In-process registry of timers and counters for the solve, aggregation and rendering paths.
+ * A timer records how many times a phase ran, its total and longest wall time and the bytes the running
+ * thread allocated meanwhile, when the JVM can measure them.
+ * <p>
+ * {@code -Dmetrics.summary=<file>} writes a JSON summary of the run to that file at exit,
+ * {@code -Dmetrics.enabled=false} turns every timer and counter into a no-op.
+ * <p>
+ * On a runtime with Flight Recorder, builds made on JDK 11+ also emit every timer as an
+ * {@code it.fed03.Phase} event of the same name, see {@code FlightRecorderPhases}; the class is looked up
+ * by name, so Java 8 builds and runtimes go without it.
+ */
+public class Metrics {
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("metrics.enabled", "true"));
+    private static final Span NO_SPAN = () -> {
+    };
+    private static final Instant STARTED = Instant.now();
+    private static final long STARTED_NANOS = System.nanoTime();
+    private static final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final com.sun.management.ThreadMXBean allocations = allocationCounter();
+    private static final Function<String, Span> flightRecorder = flightRecorder();
+
+    static {
+        String summary = System.getProperty("metrics.summary");
+        if (ENABLED && summary != null && !summary.isEmpty()) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> writeSummary(Paths.get(summary)), "metrics-summary"));
+        }
+    }
+
+    /**
+     * Starts timing {@code name} on the calling thread until the returned span is closed.
+     */
+    public static Span time(String name) {
+        Span event = flightRecorder == null ? null : flightRecorder.apply(name);
+        if (!ENABLED) {
+            return event == null ? NO_SPAN : event;
+        }
+        Timer timer = timers.computeIfAbsent(name, key -> new Timer());
+        long threadId = Thread.currentThread().getId();
+        long startBytes = allocatedBytes(threadId);
+        long start = System.nanoTime();
+        return () -> {
+            timer.record(System.nanoTime() - start, startBytes < 0 ? 0 : allocatedBytes(threadId) - startBytes);
+            if (event != null) {
+                event.close();
+            }
+        };
+    }
+
+    public static void increment(String name) {
+        increment(name, 1);
+    }
+
+    public static void increment(String name, long delta) {
+        if (ENABLED) {
+            counters.computeIfAbsent(name, key -> new LongAdder()).add(delta);
+        }
+    }
+
+    public static void reset() {
+        timers.clear();
+        counters.clear();
+    }
+
+    public static void writeSummary(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+                 JsonGenerator json = new JsonFactory().createGenerator(out)) {
+                json.useDefaultPrettyPrinter();
+                json.writeStartObject();
+                json.writeStringField("started", STARTED.toString());
+                json.writeNumberField("wallMillis", (System.nanoTime() - STARTED_NANOS) / 1_000_000);
+                json.writeObjectFieldStart("timers");
+                for (Map.Entry<String, Timer> entry : new TreeMap<>(timers).entrySet()) {
+                    Timer timer = entry.getValue();
+                    json.writeObjectFieldStart(entry.getKey());
+                    json.writeNumberField("count", timer.count.sum());
+                    json.writeNumberField("totalMillis", timer.nanos.sum() / 1e6);
+                    json.writeNumberField("maxMillis", timer.maxNanos.get() / 1e6);
+                    json.writeNumberField("allocatedBytes", timer.allocatedBytes.sum());
+                    json.writeEndObject();
+                }
+                json.writeEndObject();
+                json.writeObjectFieldStart("counters");
+                for (Map.Entry<String, LongAdder> entry : new TreeMap<>(counters).entrySet()) {
+                    json.writeNumberField(entry.getKey(), entry.getValue().sum());
+                }
+                json.writeEndObject();
+                json.writeEndObject();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static long allocatedBytes(long threadId) {
+        return allocations == null ? -1 : allocations.getThreadAllocatedBytes(threadId);
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+            if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled()) {
+                return counter;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A function from timer name to a span recording a JFR event, or null while no recording wants it;
+     * null itself when the runtime has no Flight Recorder or the build has no {@code FlightRecorderPhases}.
+     */
+    @SuppressWarnings("unchecked")
+    private static Function<String, Span> flightRecorder() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (Function<String, Span>) Class.forName("it.fed03.FlightRecorderPhases").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Span extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static class Timer {
+        final LongAdder count = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder allocatedBytes = new LongAdder();
+
+        void record(long elapsed, long bytes) {
+            count.increment();
+            nanos.add(elapsed);
+            maxNanos.accumulate(elapsed);
+            allocatedBytes.add(bytes);
+        }
+    }
+}
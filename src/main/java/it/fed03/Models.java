@@ -0,0 +1,41 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.model.AssertionCollection;
+import it.unifi.cassandra.scheduling.model.Requirement;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Copies of the requirement/assertion model that share nothing mutable with the original.
+ * People are shared, they carry no scheduling state.
+ */
+public class Models {
+
+    public static Set<Requirement> copy(Set<Requirement> requirements) {
+        Set<Requirement> copy = new LinkedHashSet<>();
+        for (Requirement requirement : requirements) {
+            copy.add(copy(requirement, assertion -> true));
+        }
+        return copy;
+    }
+
+    public static Requirement copy(Requirement requirement, Predicate<Assertion> keep) {
+        Requirement copy = new Requirement(
+                requirement.name(),
+                requirement.computationTime(),
+                requirement.timeInterval().getStartInclusive(),
+                requirement.timeInterval().getEndExclusive(),
+                new ArrayList<>(requirement.assignedPeople())
+        );
+        AssertionCollection<Assertion> assertions = new AssertionCollection<>();
+        for (Assertion assertion : requirement.assertions()) {
+            if (keep.test(assertion)) {
+                assertions.add(new Assertion(copy, assertion.computationTime(), assertion.releaseTime(), assertion.deadline(), assertion.assignedPerson()));
+            }
+        }
+        copy.setAssertions(assertions);
+        return copy;
+    }
+}
@@ -0,0 +1,334 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Rolling-horizon scheduling of requirements that arrive, change and are cancelled over time.
+ * <p>
+ * Every event moves the clock to its day and commits the planned allocations of the frozen window, the
+ * {@code frozenDays} days starting there, which no later event can change. The people owning an assertion
+ * the event touched are then re-planned with {@link Rescheduling#replan} from the end of the window
+ * onwards, net of the hours they already committed; everyone else keeps their plan. An assertion due
+ * inside the frozen window keeps only the hours it has committed.
+ * <p>
+ * Event logs are CSV files, in day order, with one of these rows per line:
+ * <pre>
+ * day,requirement,name,computationTime,start,end,person;person...
+ * day,assertion,requirementName,computationTime,releaseTime,deadline,person
+ * day,change,requirementName,person,computationTime,releaseTime,deadline
+ * day,cancel,requirementName[,person]
+ * </pre>
+ * Blank lines and lines starting with {@code #} are skipped. Once a requirement has assertions its
+ * computation time is the sum of theirs.
+ */
+public class OnlineScheduler {
+    public static final int FROZEN_DAYS = 7;
+
+    private final Algorithm algorithm;
+    private final int frozenDays;
+    private final Map<String, Person> researchers = new HashMap<>();
+    private final Map<String, Requirement> requirements = new LinkedHashMap<>();
+    private final List<Allocation> committed = new ArrayList<>();
+    private final Map<Assertion, Integer> committedHours = new IdentityHashMap<>();
+    private final Map<Person, List<Allocation>> plan = new HashMap<>();
+    private long[] latencies = new long[64];
+    private int events;
+    private LocalDate now;
+
+    public OnlineScheduler(Algorithm algorithm) {
+        this(algorithm, FROZEN_DAYS);
+    }
+
+    public OnlineScheduler(Algorithm algorithm, int frozenDays) {
+        if (frozenDays < 0) {
+            throw new IllegalArgumentException("Negative frozen window");
+        }
+        this.algorithm = algorithm;
+        this.frozenDays = frozenDays;
+    }
+
+    public static OnlineScheduler replay(Path log, Algorithm algorithm) throws IOException {
+        return replay(log, algorithm, FROZEN_DAYS);
+    }
+
+    public static OnlineScheduler replay(Path log, Algorithm algorithm, int frozenDays) throws IOException {
+        OnlineScheduler scheduler = new OnlineScheduler(algorithm, frozenDays);
+        try (BufferedReader lines = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = lines.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    scheduler.apply(line.split(",", -1));
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("Malformed event line " + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    /**
+     * Applies one event, given as the fields of an event log row.
+     */
+    @SuppressWarnings("try")
+    public void apply(String... event) {
+        LocalDate day = LocalDate.parse(event[0]);
+        if (now != null && day.isBefore(now)) {
+            throw new IllegalArgumentException("event of " + day + " after one of " + now);
+        }
+
+        long start = System.nanoTime();
+        try (Metrics.Span span = Metrics.time("online.event")) {
+            now = day;
+            LocalDate frozenEnd = day.plusDays(frozenDays);
+            commitBefore(frozenEnd);
+
+            Set<Person> affected = change(event);
+            if (!affected.isEmpty()) {
+                affected.forEach(plan::remove);
+                List<Allocation> replanned = Rescheduling.replan(new LinkedHashSet<>(requirements.values()), affected, committedHours, frozenEnd, false, algorithm);
+                for (Allocation allocation : replanned) {
+                    plan.computeIfAbsent(allocation.getPerson(), person -> new ArrayList<>()).add(allocation);
+                }
+                affected.forEach(person -> plan.getOrDefault(person, Collections.emptyList()).sort(Comparator.comparing(Allocation::getDay)));
+            }
+        }
+        if (events == latencies.length) {
+            latencies = Arrays.copyOf(latencies, events * 2);
+        }
+        latencies[events++] = System.nanoTime() - start;
+    }
+
+    private void commitBefore(LocalDate frozenEnd) {
+        for (List<Allocation> allocations : plan.values()) {
+            int frozen = 0;
+            while (frozen < allocations.size() && allocations.get(frozen).getDay().isBefore(frozenEnd)) {
+                Allocation allocation = allocations.get(frozen++);
+                committed.add(allocation);
+                committedHours.merge(allocation.assertion(), allocation.getHoursAmount(), Integer::sum);
+            }
+            allocations.subList(0, frozen).clear();
+        }
+    }
+
+    /**
+     * Applies the event to the requirement set.
+     *
+     * @return the people to re-plan
+     */
+    private Set<Person> change(String[] event) {
+        Set<Person> affected = new HashSet<>();
+        switch (event[1]) {
+            case "requirement": {
+                expectFields(event, 7);
+                if (requirements.containsKey(event[2])) {
+                    throw new IllegalArgumentException("duplicate requirement " + event[2]);
+                }
+                List<Person> people = new ArrayList<>();
+                for (String person : event[6].split(";")) {
+                    people.add(researcher(person));
+                }
+                Requirement requirement = new Requirement(event[2], Integer.parseInt(event[3]), LocalDate.parse(event[4]), LocalDate.parse(event[5]), people);
+                requirement.setAssertions(new AssertionCollection<>());
+                requirements.put(requirement.name(), requirement);
+                break;
+            }
+            case "assertion": {
+                expectFields(event, 7);
+                Requirement requirement = requirement(event[2]);
+                List<Draft> drafts = drafts(requirement);
+                Person person = researcher(event[6]);
+                drafts.add(new Draft(null, Integer.parseInt(event[3]), LocalDate.parse(event[4]), LocalDate.parse(event[5]), person));
+                replace(requirement, drafts);
+                affected.add(person);
+                break;
+            }
+            case "change": {
+                expectFields(event, 7);
+                Requirement requirement = requirement(event[2]);
+                Person person = researcher(event[3]);
+                List<Draft> drafts = drafts(requirement);
+                Draft draft = drafts.stream().filter(candidate -> candidate.person == person).findFirst()
+                        .orElseThrow(() -> new IllegalArgumentException("no assertion of " + event[3] + " in " + event[2]));
+                drafts.set(drafts.indexOf(draft), new Draft(draft.previous, Integer.parseInt(event[4]), LocalDate.parse(event[5]), LocalDate.parse(event[6]), person));
+                replace(requirement, drafts);
+                affected.add(person);
+                break;
+            }
+            case "cancel": {
+                if (event.length == 3) {
+                    Requirement requirement = requirement(event[2]);
+                    requirement.assertions().forEach(assertion -> affected.add(assertion.assignedPerson()));
+                    requirements.remove(requirement.name());
+                } else {
+                    expectFields(event, 4);
+                    Requirement requirement = requirement(event[2]);
+                    Person person = researcher(event[3]);
+                    List<Draft> drafts = drafts(requirement);
+                    if (!drafts.removeIf(draft -> draft.person == person)) {
+                        throw new IllegalArgumentException("no assertion of " + event[3] + " in " + event[2]);
+                    }
+                    replace(requirement, drafts);
+                    affected.add(person);
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("unknown event " + event[1]);
+        }
+        return affected;
+    }
+
+    /**
+     * Swaps {@code requirement} for a copy holding {@code drafts}, moving committed hours and planned
+     * allocations over to the new assertions.
+     */
+    private void replace(Requirement requirement, List<Draft> drafts) {
+        LocalDate start = requirement.timeInterval().getStartInclusive();
+        LocalDate end = requirement.timeInterval().getEndExclusive();
+        Set<Person> people = new LinkedHashSet<>(requirement.assignedPeople());
+        int computationTime = 0;
+        for (Draft draft : drafts) {
+            start = draft.releaseTime.isBefore(start) ? draft.releaseTime : start;
+            end = draft.deadline.isAfter(end) ? draft.deadline : end;
+            people.add(draft.person);
+            computationTime += draft.computationTime;
+        }
+
+        Requirement copy = new Requirement(requirement.name(), drafts.isEmpty() ? requirement.computationTime() : computationTime, start, end, new ArrayList<>(people));
+        AssertionCollection<Assertion> assertions = new AssertionCollection<>();
+        Map<Assertion, Assertion> replacements = new IdentityHashMap<>();
+        for (Draft draft : drafts) {
+            Assertion assertion = new Assertion(copy, draft.computationTime, draft.releaseTime, draft.deadline, draft.person);
+            assertions.add(assertion);
+            if (draft.previous != null) {
+                replacements.put(draft.previous, assertion);
+                Integer hours = committedHours.remove(draft.previous);
+                if (hours != null) {
+                    committedHours.put(assertion, hours);
+                }
+            }
+        }
+        copy.setAssertions(assertions);
+        requirements.put(copy.name(), copy);
+
+        for (Person person : people) {
+            List<Allocation> allocations = plan.get(person);
+            if (allocations == null) {
+                continue;
+            }
+            for (ListIterator<Allocation> iterator = allocations.listIterator(); iterator.hasNext(); ) {
+                Allocation allocation = iterator.next();
+                Assertion replacement = replacements.get(allocation.assertion());
+                if (replacement != null) {
+                    iterator.set(new Allocation(replacement, allocation.getDay(), allocation.getHoursAmount()));
+                }
+            }
+        }
+    }
+
+    private static List<Draft> drafts(Requirement requirement) {
+        List<Draft> drafts = new ArrayList<>();
+        for (Assertion assertion : requirement.assertions()) {
+            drafts.add(new Draft(assertion, assertion.computationTime(), assertion.releaseTime(), assertion.deadline(), assertion.assignedPerson()));
+        }
+        return drafts;
+    }
+
+    private static void expectFields(String[] event, int fields) {
+        if (event.length != fields) {
+            throw new IllegalArgumentException(event[1] + " event with " + event.length + " fields instead of " + fields);
+        }
+    }
+
+    private Person researcher(String name) {
+        return researchers.computeIfAbsent(name, Researcher::new);
+    }
+
+    private Requirement requirement(String name) {
+        Requirement requirement = requirements.get(name);
+        if (requirement == null) {
+            throw new IllegalArgumentException("undeclared requirement " + name);
+        }
+        return requirement;
+    }
+
+    public static void print(OnlineScheduler scheduler, PrintStream out) {
+        out.println("Events: " + scheduler.events() + " (last on " + scheduler.now() + ")");
+        out.println("Committed allocations: " + scheduler.committed().size());
+        out.println("Planned allocations: " + (scheduler.schedule().size() - scheduler.committed().size()));
+        out.println("Re-plan latency (ms): " + scheduler.latencies());
+    }
+
+    /**
+     * The requirement set after the last event.
+     */
+    public Set<Requirement> requirements() {
+        return new LinkedHashSet<>(requirements.values());
+    }
+
+    /**
+     * Allocations frozen so far, bound to the assertions current when they were committed.
+     */
+    public List<Allocation> committed() {
+        return Collections.unmodifiableList(committed);
+    }
+
+    /**
+     * Committed allocations followed by the current plan.
+     */
+    public List<Allocation> schedule() {
+        List<Allocation> schedule = new ArrayList<>(committed);
+        plan.values().forEach(schedule::addAll);
+        return schedule;
+    }
+
+    public int events() {
+        return events;
+    }
+
+    public LocalDate now() {
+        return now;
+    }
+
+    /**
+     * Time taken by each event, re-plan included, in milliseconds.
+     */
+    public RobustnessSimulation.Distribution latencies() {
+        double[] millis = new double[events];
+        for (int i = 0; i < events; i++) {
+            millis[i] = latencies[i] / 1e6;
+        }
+        return RobustnessSimulation.Distribution.of(millis);
+    }
+
+    private static class Draft {
+        final Assertion previous;
+        final int computationTime;
+        final LocalDate releaseTime;
+        final LocalDate deadline;
+        final Person person;
+
+        Draft(Assertion previous, int computationTime, LocalDate releaseTime, LocalDate deadline, Person person) {
+            this.previous = previous;
+            this.computationTime = computationTime;
+            this.releaseTime = releaseTime;
+            this.deadline = deadline;
+            this.person = person;
+        }
+    }
+}
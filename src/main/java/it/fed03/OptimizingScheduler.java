@@ -0,0 +1,363 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.ScheduleGenerator;
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.model.Person;
+import it.unifi.cassandra.scheduling.model.Requirement;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.ParallelPortfolio;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.search.limits.FailCounter;
+import org.chocosolver.solver.search.loop.lns.neighbors.RandomNeighborhood;
+import org.chocosolver.solver.search.loop.monitors.IMonitorSolution;
+import org.chocosolver.solver.search.strategy.Search;
+import org.chocosolver.solver.search.strategy.selectors.variables.InputOrder;
+import org.chocosolver.solver.variables.BoolVar;
+import org.chocosolver.solver.variables.IntVar;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Constraint-programming scheduler built on choco-solver. Assertions of different people never compete
+ * for capacity, so every person is one model: an hours variable per assertion and working day of its
+ * [release, deadline) window, the assertion's computation time as the sum of its row and the person's
+ * {@link CapacityCalendar} capacity of the day as the bound of every column.
+ * <p>
+ * The EDF schedule is the starting incumbent and guides the first portfolio worker, the other workers
+ * search with different heuristics and restarts. Each person gets a share of the wall-clock budget and
+ * keeps the best schedule found when time runs out, which is never worse than EDF. EDF only knows a
+ * uniform capacity, so an EDF schedule overrunning a reduced day is kept only until the search finds
+ * any schedule that fits. A person whose EDF schedule is incomplete or has hours outside the model,
+ * after a deadline or on a closed day, keeps the EDF allocations as they are.
+ * <p>
+ * {@link Algorithm#CP} runs it with the fragmentation objective and {@value #DEFAULT_BUDGET_MILLIS} ms.
+ */
+public class OptimizingScheduler implements ScheduleGenerator, ScheduleCache.Keyed {
+    public static final long DEFAULT_BUDGET_MILLIS = 10_000;
+
+    public enum Objective {
+        FRAGMENTATION,
+        PEAK_LOAD
+    }
+
+    private final Objective objective;
+    private final long budgetMillis;
+    private final int workers;
+    private final CapacityCalendar capacities;
+
+    public OptimizingScheduler(Objective objective, long budgetMillis) {
+        this(objective, budgetMillis, CapacityCalendar.standard());
+    }
+
+    public OptimizingScheduler(Objective objective, long budgetMillis, int workers) {
+        this(objective, budgetMillis, workers, CapacityCalendar.standard());
+    }
+
+    public OptimizingScheduler(Objective objective, long budgetMillis, CapacityCalendar capacities) {
+        this(objective, budgetMillis, Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())), capacities);
+    }
+
+    public OptimizingScheduler(Objective objective, long budgetMillis, int workers, CapacityCalendar capacities) {
+        this.objective = objective;
+        this.budgetMillis = budgetMillis;
+        this.workers = workers;
+        this.capacities = capacities;
+    }
+
+    @Override
+    public String cacheKey() {
+        return objective + "|" + budgetMillis + "|" + workers + "|" + capacities.cacheKey();
+    }
+
+    @SuppressWarnings("try")
+    public Collection<Allocation> generateSchedule(Set<Requirement> requirements) {
+        try (Metrics.Span span = Metrics.time("solve.cp")) {
+            return optimize(requirements);
+        }
+    }
+
+    /**
+     * The capacity calendar given at construction decides the capacities, {@code dailyCapacity} has to
+     * be its default.
+     */
+    @Override
+    public Set<Allocation> generate(Set<Requirement> requirements, int dailyCapacity) {
+        if (dailyCapacity != capacities.dailyCapacity()) {
+            throw new IllegalArgumentException("Daily capacity " + dailyCapacity + " instead of " + capacities.dailyCapacity());
+        }
+        return new LinkedHashSet<>(optimize(requirements));
+    }
+
+    private Collection<Allocation> optimize(Set<Requirement> requirements) {
+        long deadline = System.currentTimeMillis() + budgetMillis;
+        Map<Assertion, Map<LocalDate, Integer>> edf = edfSchedule(requirements);
+
+        Map<Person, List<Assertion>> assertionsByPerson = requirements.stream()
+                .flatMap(requirement -> requirement.assertions().stream())
+                .collect(Collectors.groupingBy(Assertion::assignedPerson, LinkedHashMap::new, Collectors.toList()));
+
+        List<Allocation> schedule = new ArrayList<>();
+        int remainingPeople = assertionsByPerson.size();
+        for (List<Assertion> assertions : assertionsByPerson.values()) {
+            long personBudget = Math.max(0, (deadline - System.currentTimeMillis()) / remainingPeople--);
+            PersonModel person = new PersonModel(assertions);
+            int[][] best = person.optimize(edf, personBudget);
+            if (best == null) {
+                for (Assertion assertion : assertions) {
+                    edf.getOrDefault(assertion, Collections.emptyMap()).forEach((day, hours) -> schedule.add(new Allocation(assertion, day, hours)));
+                }
+                continue;
+            }
+            for (int a = 0; a < assertions.size(); a++) {
+                for (int k = 0; k < best[a].length; k++) {
+                    if (best[a][k] > 0) {
+                        schedule.add(new Allocation(assertions.get(a), person.days[person.firstDay[a] + k], best[a][k]));
+                    }
+                }
+            }
+        }
+        return schedule;
+    }
+
+    private static Map<Assertion, Map<LocalDate, Integer>> edfSchedule(Set<Requirement> requirements) {
+        Set<Requirement> copy = Models.copy(requirements);
+        Map<Assertion, Assertion> originals = new IdentityHashMap<>();
+        Iterator<Requirement> copies = copy.iterator();
+        for (Requirement requirement : requirements) {
+            Iterator<Assertion> copiedAssertions = copies.next().assertions().iterator();
+            for (Assertion assertion : requirement.assertions()) {
+                originals.put(copiedAssertions.next(), assertion);
+            }
+        }
+
+        Map<Assertion, Map<LocalDate, Integer>> edf = new IdentityHashMap<>();
+        for (Allocation allocation : PartitionedSolver.generateSchedule(copy, Algorithm.EDF)) {
+            edf.computeIfAbsent(originals.get(allocation.assertion()), assertion -> new HashMap<>())
+                    .merge(allocation.getDay(), allocation.getHoursAmount(), Integer::sum);
+        }
+        return edf;
+    }
+
+    private class PersonModel {
+        final List<Assertion> assertions;
+        final LocalDate[] days;
+        final int[] firstDay;
+        final int[] windowLength;
+        final int[] capacity;
+
+        PersonModel(List<Assertion> assertions) {
+            this.assertions = assertions;
+            LocalDate start = assertions.stream().map(Assertion::releaseTime).min(LocalDate::compareTo).get();
+            LocalDate end = assertions.stream().map(Assertion::deadline).max(LocalDate::compareTo).get();
+            List<LocalDate> workingDays = new ArrayList<>();
+            for (LocalDate day = start; day.isBefore(end); day = day.plusDays(1)) {
+                if (capacities.calendar().isWorkingDay(day)) {
+                    workingDays.add(day);
+                }
+            }
+            days = workingDays.toArray(new LocalDate[0]);
+            Person person = assertions.get(0).assignedPerson();
+            capacity = new int[days.length];
+            for (int d = 0; d < days.length; d++) {
+                capacity[d] = capacities.capacity(person, days[d]);
+            }
+            firstDay = new int[assertions.size()];
+            windowLength = new int[assertions.size()];
+            for (int a = 0; a < assertions.size(); a++) {
+                firstDay[a] = lowerBound(assertions.get(a).releaseTime());
+                windowLength[a] = Math.max(0, lowerBound(assertions.get(a).deadline()) - firstDay[a]);
+            }
+        }
+
+        /**
+         * @return null if the EDF hours do not fit the model, so EDF has to be kept as it is
+         */
+        int[][] optimize(Map<Assertion, Map<LocalDate, Integer>> edf, long budget) {
+            int[][] incumbent = new int[assertions.size()][];
+            for (int a = 0; a < assertions.size(); a++) {
+                incumbent[a] = new int[windowLength[a]];
+                Map<LocalDate, Integer> hours = edf.getOrDefault(assertions.get(a), Collections.emptyMap());
+                for (int k = 0; k < windowLength[a]; k++) {
+                    incumbent[a][k] = hours.getOrDefault(days[firstDay[a] + k], 0);
+                }
+            }
+            if (!isComplete(incumbent)) {
+                // EDF left hours unplaced or placed them late or on closed days, the model cannot hold them
+                return null;
+            }
+            if (budget <= 0) {
+                return incumbent;
+            }
+
+            Incumbent best = new Incumbent(incumbent, fitsCapacity(incumbent) ? objectiveOf(incumbent) : Integer.MAX_VALUE);
+            ParallelPortfolio portfolio = new ParallelPortfolio(false);
+            for (int worker = 0; worker < workers; worker++) {
+                portfolio.addModel(build(worker, incumbent, best, budget));
+            }
+            while (portfolio.solve()) {
+                // every improving solution is recorded by the workers' monitors
+            }
+            return best.hours;
+        }
+
+        private Model build(int worker, int[][] edf, Incumbent best, long budget) {
+            Model model = new Model("person-" + worker);
+            int maxCapacity = Arrays.stream(capacity).max().orElse(0);
+            IntVar[][] hours = new IntVar[assertions.size()][];
+            List<IntVar> flat = new ArrayList<>();
+            List<List<IntVar>> byDay = new ArrayList<>(days.length);
+            for (int d = 0; d < days.length; d++) {
+                byDay.add(new ArrayList<>());
+            }
+            for (int a = 0; a < assertions.size(); a++) {
+                int computationTime = assertions.get(a).computationTime();
+                hours[a] = model.intVarArray("h" + a, windowLength[a], 0, Math.min(maxCapacity, computationTime));
+                model.sum(hours[a], "=", computationTime).post();
+                for (int k = 0; k < windowLength[a]; k++) {
+                    flat.add(hours[a][k]);
+                    byDay.get(firstDay[a] + k).add(hours[a][k]);
+                }
+            }
+            IntVar[] loads = new IntVar[days.length];
+            for (int d = 0; d < days.length; d++) {
+                loads[d] = model.intVar("load" + d, 0, capacity[d]);
+                model.sum(byDay.get(d).toArray(new IntVar[0]), "=", loads[d]).post();
+            }
+
+            IntVar cost;
+            if (objective == Objective.PEAK_LOAD) {
+                cost = model.intVar("peak", 0, maxCapacity);
+                model.max(cost, loads).post();
+            } else {
+                List<IntVar> runStarts = new ArrayList<>();
+                for (IntVar[] row : hours) {
+                    BoolVar previous = null;
+                    for (IntVar value : row) {
+                        BoolVar active = model.arithm(value, ">", 0).reify();
+                        if (previous == null) {
+                            runStarts.add(active);
+                        } else {
+                            BoolVar start = model.boolVar();
+                            model.scalar(new IntVar[]{start, active, previous}, new int[]{1, -1, 1}, ">=", 0).post();
+                            runStarts.add(start);
+                        }
+                        previous = active;
+                    }
+                }
+                cost = model.intVar("fragments", 0, Math.max(0, runStarts.size()));
+                model.sum(runStarts.toArray(new IntVar[0]), "=", cost).post();
+            }
+            model.arithm(cost, "<", best.cost).post();
+            model.setObjective(Model.MINIMIZE, cost);
+
+            IntVar[] variables = flat.toArray(new IntVar[0]);
+            Solver solver = model.getSolver();
+            switch (worker % 4) {
+                case 0:
+                    Map<IntVar, Integer> hints = new IdentityHashMap<>();
+                    for (int a = 0; a < hours.length; a++) {
+                        for (int k = 0; k < hours[a].length; k++) {
+                            hints.put(hours[a][k], edf[a][k]);
+                        }
+                    }
+                    solver.setSearch(Search.intVarSearch(new InputOrder<>(model),
+                            variable -> variable.contains(hints.get(variable)) ? hints.get(variable) : variable.getLB(), variables));
+                    solver.setLNS(new RandomNeighborhood(variables, 3, worker), new FailCounter(model, 200));
+                    break;
+                case 1:
+                    solver.setSearch(Search.domOverWDegSearch(variables));
+                    solver.setLubyRestart(500, new FailCounter(model, 0), 5000);
+                    break;
+                case 2:
+                    solver.setSearch(Search.activityBasedSearch(variables));
+                    break;
+                default:
+                    solver.setSearch(Search.randomSearch(variables, worker));
+                    solver.setLubyRestart(500, new FailCounter(model, 0), 5000);
+            }
+            solver.limitTime(budget);
+            solver.plugMonitor((IMonitorSolution) () -> {
+                int[][] solution = new int[hours.length][];
+                for (int a = 0; a < hours.length; a++) {
+                    solution[a] = new int[hours[a].length];
+                    for (int k = 0; k < hours[a].length; k++) {
+                        solution[a][k] = hours[a][k].getValue();
+                    }
+                }
+                best.offer(solution, cost.getValue());
+            });
+            return model;
+        }
+
+        private int objectiveOf(int[][] hours) {
+            if (objective == Objective.PEAK_LOAD) {
+                int[] loads = new int[days.length];
+                for (int a = 0; a < hours.length; a++) {
+                    for (int k = 0; k < hours[a].length; k++) {
+                        loads[firstDay[a] + k] += hours[a][k];
+                    }
+                }
+                return Arrays.stream(loads).max().orElse(0);
+            }
+            int runs = 0;
+            for (int[] row : hours) {
+                for (int k = 0; k < row.length; k++) {
+                    if (row[k] > 0 && (k == 0 || row[k - 1] == 0)) {
+                        runs++;
+                    }
+                }
+            }
+            return runs;
+        }
+
+        private boolean isComplete(int[][] hours) {
+            for (int a = 0; a < hours.length; a++) {
+                if (Arrays.stream(hours[a]).sum() != assertions.get(a).computationTime()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean fitsCapacity(int[][] hours) {
+            int[] loads = new int[days.length];
+            for (int a = 0; a < hours.length; a++) {
+                for (int k = 0; k < hours[a].length; k++) {
+                    loads[firstDay[a] + k] += hours[a][k];
+                }
+            }
+            for (int d = 0; d < days.length; d++) {
+                if (loads[d] > capacity[d]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int lowerBound(LocalDate day) {
+            int position = Arrays.binarySearch(days, day);
+            return position >= 0 ? position : -position - 1;
+        }
+    }
+
+    private static class Incumbent {
+        int[][] hours;
+        int cost;
+
+        Incumbent(int[][] hours, int cost) {
+            this.hours = hours;
+            this.cost = cost;
+        }
+
+        synchronized void offer(int[][] solution, int solutionCost) {
+            if (solutionCost < cost) {
+                Metrics.increment("cp.improvements");
+                hours = solution;
+                cost = solutionCost;
+            }
+        }
+    }
+}
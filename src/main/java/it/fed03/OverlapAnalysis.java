@@ -0,0 +1,95 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Assertion;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Pairwise overlap statistics of a set of assertions, computed with a single sweep over their
+ * [release, deadline) intervals instead of intersecting every pair.
+ */
+public class OverlapAnalysis {
+    private final int assertions;
+    private final int intersections;
+    private final long intersectionsWorkingDays;
+    private final int peakConcurrency;
+    private final LocalDate peakDay;
+
+    private OverlapAnalysis(int assertions, int intersections, long intersectionsWorkingDays, int peakConcurrency, LocalDate peakDay) {
+        this.assertions = assertions;
+        this.intersections = intersections;
+        this.intersectionsWorkingDays = intersectionsWorkingDays;
+        this.peakConcurrency = peakConcurrency;
+        this.peakDay = peakDay;
+    }
+
+    public static OverlapAnalysis of(Collection<? extends Assertion> assertions) {
+        return of(assertions, WorkingCalendar.standard());
+    }
+
+    public static OverlapAnalysis of(Collection<? extends Assertion> assertions, WorkingCalendar calendar) {
+        long[] events = new long[assertions.size() * 2];
+        int size = 0;
+        for (Assertion assertion : assertions) {
+            long release = assertion.releaseTime().toEpochDay();
+            long deadline = assertion.deadline().toEpochDay();
+            if (release < deadline) {
+                // ends sort before starts on the same day, intervals are half-open
+                events[size++] = release << 1 | 1;
+                events[size++] = deadline << 1;
+            }
+        }
+        Arrays.sort(events, 0, size);
+
+        int intersections = 0;
+        long intersectionsWorkingDays = 0;
+        int active = 0;
+        int peak = 0;
+        long peakEpochDay = 0;
+        for (int i = 0; i < size; i++) {
+            long day = events[i] >> 1;
+            if ((events[i] & 1) == 1) {
+                intersections += active;
+                active++;
+                if (active > peak) {
+                    peak = active;
+                    peakEpochDay = day;
+                }
+            } else {
+                active--;
+            }
+
+            if (i + 1 < size && active > 1) {
+                long nextDay = events[i + 1] >> 1;
+                if (nextDay > day) {
+                    long pairs = (long) active * (active - 1) / 2;
+                    intersectionsWorkingDays += pairs * calendar.workingDays(day, nextDay);
+                }
+            }
+        }
+
+        return new OverlapAnalysis(assertions.size(), intersections, intersectionsWorkingDays, peak, peak > 0 ? LocalDate.ofEpochDay(peakEpochDay) : null);
+    }
+
+    public int assertions() {
+        return assertions;
+    }
+
+    public int intersections() {
+        return intersections;
+    }
+
+    public long intersectionsWorkingDays() {
+        return intersectionsWorkingDays;
+    }
+
+    public int peakConcurrency() {
+        return peakConcurrency;
+    }
+
+    public LocalDate peakDay() {
+        return peakDay;
+    }
+}
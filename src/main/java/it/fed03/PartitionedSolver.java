@@ -0,0 +1,112 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.model.Person;
+import it.unifi.cassandra.scheduling.model.Requirement;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Splits a requirement set into the connected components of the person-requirement graph and solves
+ * every component as its own {@code Problem} on a fork-join pool. Components share no person and no
+ * requirement, so their schedules are independent and are simply concatenated.
+ */
+public class PartitionedSolver {
+
+    public static Collection<Allocation> generateSchedule(Set<Requirement> requirements, Algorithm algorithm) {
+        return generateSchedule(requirements, algorithm, ForkJoinPool.commonPool());
+    }
+
+    public static Collection<Allocation> generateSchedule(Set<Requirement> requirements, Algorithm algorithm, CapacityCalendar capacities) {
+        return generateSchedule(requirements, algorithm, capacities, ForkJoinPool.commonPool());
+    }
+
+    public static Collection<Allocation> generateSchedule(Set<Requirement> requirements, Algorithm algorithm, ForkJoinPool pool) {
+        return generateSchedule(requirements, algorithm, CapacityCalendar.standard(), pool);
+    }
+
+    public static Collection<Allocation> generateSchedule(Set<Requirement> requirements, Algorithm algorithm, CapacityCalendar capacities, ForkJoinPool pool) {
+        List<Set<Requirement>> components = components(requirements);
+        Metrics.increment("solve.components", components.size());
+        if (components.size() <= 1) {
+            return algorithm.generateSchedule(requirements, capacities);
+        }
+
+        List<ForkJoinTask<Collection<Allocation>>> tasks = new ArrayList<>(components.size());
+        for (Set<Requirement> component : components) {
+            tasks.add(pool.submit(() -> algorithm.generateSchedule(component, capacities)));
+        }
+        List<Allocation> schedule = new ArrayList<>();
+        for (ForkJoinTask<Collection<Allocation>> task : tasks) {
+            schedule.addAll(task.join());
+        }
+        return schedule;
+    }
+
+    /**
+     * Connected components, largest first, so the biggest sub-problems start solving earliest.
+     */
+    public static List<Set<Requirement>> components(Set<Requirement> requirements) {
+        Map<Person, Integer> personIndex = new HashMap<>();
+        List<Requirement> requirementList = new ArrayList<>(requirements);
+        int[][] requirementPeople = new int[requirementList.size()][];
+        for (int r = 0; r < requirementList.size(); r++) {
+            Requirement requirement = requirementList.get(r);
+            Set<Person> people = new LinkedHashSet<>(requirement.assignedPeople());
+            for (Assertion assertion : requirement.assertions()) {
+                people.add(assertion.assignedPerson());
+            }
+            requirementPeople[r] = new int[people.size()];
+            int i = 0;
+            for (Person person : people) {
+                Integer index = personIndex.get(person);
+                if (index == null) {
+                    index = personIndex.size();
+                    personIndex.put(person, index);
+                }
+                requirementPeople[r][i++] = index;
+            }
+        }
+
+        int[] parent = new int[personIndex.size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (int[] people : requirementPeople) {
+            for (int i = 1; i < people.length; i++) {
+                int a = find(parent, people[0]);
+                int b = find(parent, people[i]);
+                if (a != b) {
+                    parent[b] = a;
+                }
+            }
+        }
+
+        Map<Integer, Set<Requirement>> components = new HashMap<>();
+        List<Set<Requirement>> result = new ArrayList<>();
+        for (int r = 0; r < requirementList.size(); r++) {
+            // requirements nobody works on have no component to join, they form their own
+            Integer root = requirementPeople[r].length == 0 ? -(r + 1) : find(parent, requirementPeople[r][0]);
+            Set<Requirement> component = components.get(root);
+            if (component == null) {
+                component = new LinkedHashSet<>();
+                components.put(root, component);
+                result.add(component);
+            }
+            component.add(requirementList.get(r));
+        }
+        result.sort(Comparator.comparingInt((Set<Requirement> component) -> component.size()).reversed());
+        return result;
+    }
+
+    private static int find(int[] parent, int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+}
@@ -0,0 +1,415 @@
+package it.fed03;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.model.Person;
+import it.unifi.cassandra.scheduling.model.Requirement;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Writes requirements, their assertions and optionally a schedule as LaTeX, CSV or JSON, one record at a
+ * time through a buffered file channel, so memory stays flat whatever the size of the instance.
+ * <p>
+ * CSV and JSON reports use the record layout of {@link ScenarioLoader} and load back as scenarios; the
+ * extra {@code allocation} records are ignored by it.
+ */
+public class ReportExporter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final JsonFactory JSON = new JsonFactory();
+
+    public enum Format {
+        LATEX,
+        CSV,
+        JSON;
+
+        public static Format of(Path path) {
+            String name = path.getFileName().toString().toLowerCase();
+            if (name.endsWith(".tex")) {
+                return LATEX;
+            }
+            if (name.endsWith(".json")) {
+                return JSON;
+            }
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            throw new IllegalArgumentException("Unknown report format for " + path);
+        }
+    }
+
+    /**
+     * @param schedule allocations to append to the report, or {@code null} to export the scenario only;
+     *                 read once, so a lazy {@link ScheduleStream} is written without being held
+     */
+    public static void export(Path target, Set<Requirement> requirements, Iterable<Allocation> schedule) throws IOException {
+        export(target, Format.of(target), requirements, schedule);
+    }
+
+    public static void export(Path target, Format format, Set<Requirement> requirements, Iterable<Allocation> schedule) throws IOException {
+        try (Writer out = open(target)) {
+            Sink sink = sink(format, out);
+            sink.begin();
+            List<Requirement> sorted = new ArrayList<>(requirements);
+            sorted.sort(Comparator.comparing(Requirement::name));
+            for (Requirement requirement : sorted) {
+                sink.requirement(requirement.name(), requirement.computationTime(),
+                        requirement.timeInterval().getStartInclusive(), requirement.timeInterval().getEndExclusive(),
+                        requirement.assignedPeople().stream().map(Person::getIdentifier).sorted().collect(Collectors.toList()));
+                for (Assertion assertion : requirement.assertions()) {
+                    sink.assertion(requirement.name(), assertion.computationTime(), assertion.releaseTime(), assertion.deadline(),
+                            assertion.assignedPerson().getIdentifier());
+                }
+                sink.endRequirement();
+            }
+            if (schedule != null) {
+                sink.beginAllocations();
+                for (Allocation allocation : schedule) {
+                    sink.allocation(allocation.assertion().requirement().name(), allocation.getPerson().getIdentifier(),
+                            allocation.getDay(), allocation.getHoursAmount());
+                }
+            }
+            sink.end();
+        }
+    }
+
+    /**
+     * Exports a persisted schedule straight from its columns. Requirements list as assigned people the
+     * owners of their assertions, the only people the file keeps.
+     */
+    public static void export(Path target, ScheduleFile schedule) throws IOException {
+        export(target, Format.of(target), schedule);
+    }
+
+    public static void export(Path target, Format format, ScheduleFile schedule) throws IOException {
+        // assertion ids grouped by requirement id with a counting sort
+        int[] first = new int[schedule.requirementCount() + 1];
+        for (int a = 0; a < schedule.assertionCount(); a++) {
+            first[schedule.assertionRequirement(a) + 1]++;
+        }
+        for (int r = 0; r < schedule.requirementCount(); r++) {
+            first[r + 1] += first[r];
+        }
+        int[] assertions = new int[schedule.assertionCount()];
+        int[] next = Arrays.copyOf(first, first.length - 1);
+        for (int a = 0; a < schedule.assertionCount(); a++) {
+            assertions[next[schedule.assertionRequirement(a)]++] = a;
+        }
+        Integer[] requirements = new Integer[schedule.requirementCount()];
+        for (int r = 0; r < requirements.length; r++) {
+            requirements[r] = r;
+        }
+        Arrays.sort(requirements, Comparator.comparing(schedule::requirementName));
+
+        try (Writer out = open(target)) {
+            Sink sink = sink(format, out);
+            sink.begin();
+            for (int r : requirements) {
+                Set<String> people = new TreeSet<>();
+                for (int i = first[r]; i < first[r + 1]; i++) {
+                    people.add(schedule.person(schedule.assertionPerson(assertions[i])));
+                }
+                sink.requirement(schedule.requirementName(r), schedule.requirementComputationTime(r),
+                        schedule.requirementStart(r), schedule.requirementEnd(r), new ArrayList<>(people));
+                for (int i = first[r]; i < first[r + 1]; i++) {
+                    int a = assertions[i];
+                    sink.assertion(schedule.requirementName(r), schedule.assertionComputationTime(a), schedule.assertionReleaseTime(a),
+                            schedule.assertionDeadline(a), schedule.person(schedule.assertionPerson(a)));
+                }
+                sink.endRequirement();
+            }
+            sink.beginAllocations();
+            for (int row = 0; row < schedule.size(); row++) {
+                sink.allocation(schedule.requirementName(schedule.assertionRequirement(schedule.assertionId(row))),
+                        schedule.person(schedule.personId(row)), schedule.day(row), schedule.hours(row));
+            }
+            sink.end();
+        }
+    }
+
+    private static Writer open(Path target) throws IOException {
+        FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        return new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE);
+    }
+
+    private static Sink sink(Format format, Writer out) throws IOException {
+        switch (format) {
+            case LATEX:
+                return new LatexSink(out);
+            case JSON:
+                return new JsonSink(out);
+            default:
+                return new CsvSink(out);
+        }
+    }
+
+    private interface Sink {
+        void begin() throws IOException;
+
+        void requirement(String name, int computationTime, LocalDate start, LocalDate end, List<String> people) throws IOException;
+
+        void assertion(String requirement, int computationTime, LocalDate releaseTime, LocalDate deadline, String person) throws IOException;
+
+        void endRequirement() throws IOException;
+
+        void beginAllocations() throws IOException;
+
+        void allocation(String requirement, String person, LocalDate day, int hours) throws IOException;
+
+        void end() throws IOException;
+    }
+
+    private static class LatexSink implements Sink {
+        private final Writer out;
+        private int requirements;
+        private boolean allocations;
+
+        LatexSink(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void begin() throws IOException {
+            out.write("\\begin{itemize}\n");
+        }
+
+        @Override
+        public void requirement(String name, int computationTime, LocalDate start, LocalDate end, List<String> people) throws IOException {
+            List<String> escaped = people.stream().map(LatexSink::escape).collect(Collectors.toList());
+            out.write(String.format("\\item Requirement %s - %s - %s ore - [%s;%s) - assegnato a %s\\\\\n",
+                    ++requirements, escape(name), computationTime, start, end, String.join(", ", escaped)));
+            out.write("Assertion:\n\\begin{itemize}\n");
+        }
+
+        @Override
+        public void assertion(String requirement, int computationTime, LocalDate releaseTime, LocalDate deadline, String person) throws IOException {
+            out.write(String.format("\\item %s ore - [%s;%s) - assegnato a %s\n", computationTime, releaseTime, deadline, escape(person)));
+        }
+
+        @Override
+        public void endRequirement() throws IOException {
+            out.write("\\end{itemize}\n");
+        }
+
+        @Override
+        public void beginAllocations() throws IOException {
+            allocations = true;
+            out.write("\\end{itemize}\n\n\\begin{longtable}{llrr}\nRequirement & Persona & Giorno & Ore\\\\\n\\hline\n\\endhead\n");
+        }
+
+        @Override
+        public void allocation(String requirement, String person, LocalDate day, int hours) throws IOException {
+            out.write(escape(requirement));
+            out.write(" & ");
+            out.write(escape(person));
+            out.write(" & ");
+            out.write(day.toString());
+            out.write(" & ");
+            out.write(Integer.toString(hours));
+            out.write("\\\\\n");
+        }
+
+        @Override
+        public void end() throws IOException {
+            out.write(allocations ? "\\end{longtable}\n" : "\\end{itemize}");
+        }
+
+        private static String escape(String text) {
+            StringBuilder escaped = null;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                String replacement = null;
+                if ("&%$#_{}".indexOf(c) >= 0) {
+                    replacement = "\\" + c;
+                } else if (c == '~') {
+                    replacement = "\\textasciitilde{}";
+                } else if (c == '^') {
+                    replacement = "\\textasciicircum{}";
+                } else if (c == '\\') {
+                    replacement = "\\textbackslash{}";
+                }
+                if (replacement != null && escaped == null) {
+                    escaped = new StringBuilder(text.length() + 16).append(text, 0, i);
+                }
+                if (escaped != null) {
+                    if (replacement != null) {
+                        escaped.append(replacement);
+                    } else {
+                        escaped.append(c);
+                    }
+                }
+            }
+            return escaped == null ? text : escaped.toString();
+        }
+    }
+
+    private static class CsvSink implements Sink {
+        private final Writer out;
+
+        CsvSink(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void begin() throws IOException {
+            out.write("# requirement,name,computationTime,start,end,people\n");
+            out.write("# assertion,requirement,computationTime,releaseTime,deadline,person\n");
+        }
+
+        @Override
+        public void requirement(String name, int computationTime, LocalDate start, LocalDate end, List<String> people) throws IOException {
+            out.write("requirement,");
+            field(name);
+            out.write(',');
+            out.write(Integer.toString(computationTime));
+            out.write(',');
+            out.write(start.toString());
+            out.write(',');
+            out.write(end.toString());
+            out.write(',');
+            field(String.join(";", people));
+            out.write('\n');
+        }
+
+        @Override
+        public void assertion(String requirement, int computationTime, LocalDate releaseTime, LocalDate deadline, String person) throws IOException {
+            out.write("assertion,");
+            field(requirement);
+            out.write(',');
+            out.write(Integer.toString(computationTime));
+            out.write(',');
+            out.write(releaseTime.toString());
+            out.write(',');
+            out.write(deadline.toString());
+            out.write(',');
+            field(person);
+            out.write('\n');
+        }
+
+        @Override
+        public void endRequirement() {
+        }
+
+        @Override
+        public void beginAllocations() throws IOException {
+            out.write("# allocation,requirement,person,day,hours\n");
+        }
+
+        @Override
+        public void allocation(String requirement, String person, LocalDate day, int hours) throws IOException {
+            out.write("allocation,");
+            field(requirement);
+            out.write(',');
+            field(person);
+            out.write(',');
+            out.write(day.toString());
+            out.write(',');
+            out.write(Integer.toString(hours));
+            out.write('\n');
+        }
+
+        @Override
+        public void end() {
+        }
+
+        /**
+         * Writes a field as RFC 4180 does: quoted, with quotes doubled, when it holds a comma, a quote or a
+         * line break, or when it starts or ends with a space that trimming the line would lose on reading.
+         */
+        private void field(String value) throws IOException {
+            boolean quote = !value.isEmpty() && (value.charAt(0) == ' ' || value.charAt(value.length() - 1) == ' ');
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+    }
+
+    private static class JsonSink implements Sink {
+        private final JsonGenerator json;
+
+        JsonSink(Writer out) throws IOException {
+            json = JSON.createGenerator(out);
+        }
+
+        @Override
+        public void begin() throws IOException {
+            json.writeStartObject();
+            json.writeArrayFieldStart("requirements");
+        }
+
+        @Override
+        public void requirement(String name, int computationTime, LocalDate start, LocalDate end, List<String> people) throws IOException {
+            json.writeStartObject();
+            json.writeStringField("name", name);
+            json.writeNumberField("computationTime", computationTime);
+            json.writeStringField("start", start.toString());
+            json.writeStringField("end", end.toString());
+            json.writeArrayFieldStart("assignedPeople");
+            for (String person : people) {
+                json.writeString(person);
+            }
+            json.writeEndArray();
+            json.writeArrayFieldStart("assertions");
+        }
+
+        @Override
+        public void assertion(String requirement, int computationTime, LocalDate releaseTime, LocalDate deadline, String person) throws IOException {
+            json.writeStartObject();
+            json.writeNumberField("computationTime", computationTime);
+            json.writeStringField("releaseTime", releaseTime.toString());
+            json.writeStringField("deadline", deadline.toString());
+            json.writeStringField("assignedPerson", person);
+            json.writeEndObject();
+        }
+
+        @Override
+        public void endRequirement() throws IOException {
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+
+        @Override
+        public void beginAllocations() throws IOException {
+            json.writeEndArray();
+            json.writeArrayFieldStart("allocations");
+        }
+
+        @Override
+        public void allocation(String requirement, String person, LocalDate day, int hours) throws IOException {
+            json.writeStartObject();
+            json.writeStringField("requirement", requirement);
+            json.writeStringField("person", person);
+            json.writeStringField("day", day.toString());
+            json.writeNumberField("hours", hours);
+            json.writeEndObject();
+        }
+
+        @Override
+        public void end() throws IOException {
+            // closes the open requirements or allocations array and the root object
+            json.writeEndArray();
+            json.writeEndObject();
+            json.flush();
+        }
+    }
+}
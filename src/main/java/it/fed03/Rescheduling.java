@@ -0,0 +1,152 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.*;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Applies a {@link ScheduleDelta} to an existing schedule re-planning only what it can reach: the people
+ * owning a changed assertion, from the earliest release time among the changed assertions onwards.
+ * Allocations of every other person, and of the affected people before that day, are kept as they are.
+ * Hours an affected person had allocated from that day on are always planned again, also for an
+ * assertion already due by then: it gets a window starting that day, so its hours come back late
+ * rather than being lost.
+ */
+public class Rescheduling {
+    private final List<Allocation> schedule;
+    private final Set<Person> affectedPeople;
+    private final LocalDate windowStart;
+    private final int keptAllocations;
+    private final int removedAllocations;
+    private final int addedAllocations;
+
+    private Rescheduling(List<Allocation> schedule, Set<Person> affectedPeople, LocalDate windowStart, int keptAllocations, int removedAllocations, int addedAllocations) {
+        this.schedule = schedule;
+        this.affectedPeople = affectedPeople;
+        this.windowStart = windowStart;
+        this.keptAllocations = keptAllocations;
+        this.removedAllocations = removedAllocations;
+        this.addedAllocations = addedAllocations;
+    }
+
+    /**
+     * @param requirements the requirement set after the change
+     * @param schedule     the schedule of the requirement set before the change
+     */
+    public static Rescheduling apply(Set<Requirement> requirements, Collection<Allocation> schedule, ScheduleDelta delta, Algorithm algorithm) {
+        if (delta.isEmpty()) {
+            return new Rescheduling(new ArrayList<>(schedule), Collections.emptySet(), null, schedule.size(), 0, 0);
+        }
+
+        Set<Person> affectedPeople = new HashSet<>();
+        Set<Assertion> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        LocalDate windowStart = null;
+        for (List<Assertion> changed : Arrays.asList(delta.removed(), delta.added())) {
+            for (Assertion assertion : changed) {
+                affectedPeople.add(assertion.assignedPerson());
+                windowStart = windowStart == null || assertion.releaseTime().isBefore(windowStart) ? assertion.releaseTime() : windowStart;
+            }
+        }
+        removed.addAll(delta.removed());
+
+        List<Allocation> result = new ArrayList<>(schedule.size());
+        Map<Assertion, Integer> hoursBefore = new IdentityHashMap<>();
+        for (Allocation allocation : schedule) {
+            boolean affected = affectedPeople.contains(allocation.getPerson());
+            if (!affected || (allocation.getDay().isBefore(windowStart) && !removed.contains(allocation.assertion()))) {
+                result.add(allocation);
+                if (affected) {
+                    hoursBefore.merge(allocation.assertion(), allocation.getHoursAmount(), Integer::sum);
+                }
+            }
+        }
+        int kept = result.size();
+
+        List<Allocation> replanned = replan(requirements, affectedPeople, hoursBefore, windowStart, true, algorithm);
+        result.addAll(replanned);
+        return new Rescheduling(result, affectedPeople, windowStart, kept, schedule.size() - kept, replanned.size());
+    }
+
+    /**
+     * Solves, from {@code windowStart} onwards, the hours of {@code people}'s assertions that are not
+     * covered by {@code hoursBefore}, and returns allocations bound to the original assertions.
+     *
+     * @param replanDue whether assertions due by {@code windowStart} are planned late, from that day, rather
+     *                  than left with the hours they have
+     */
+    static List<Allocation> replan(Set<Requirement> requirements, Set<Person> people, Map<Assertion, Integer> hoursBefore, LocalDate windowStart,
+                                   boolean replanDue, Algorithm algorithm) {
+        Map<Assertion, Assertion> originals = new IdentityHashMap<>();
+        Set<Requirement> remaining = new LinkedHashSet<>();
+        for (Requirement requirement : requirements) {
+            List<Assertion> pending = new ArrayList<>();
+            int remainingHours = 0;
+            for (Assertion assertion : requirement.assertions()) {
+                int hours = assertion.computationTime() - hoursBefore.getOrDefault(assertion, 0);
+                if (people.contains(assertion.assignedPerson()) && hours > 0 && (replanDue || assertion.deadline().isAfter(windowStart))) {
+                    pending.add(assertion);
+                    remainingHours += hours;
+                }
+            }
+            if (pending.isEmpty()) {
+                continue;
+            }
+
+            Requirement copy = new Requirement(requirement.name(), remainingHours,
+                    requirement.timeInterval().getStartInclusive(), requirement.timeInterval().getEndExclusive(),
+                    new ArrayList<>(requirement.assignedPeople()));
+            AssertionCollection<Assertion> assertions = new AssertionCollection<>();
+            for (Assertion assertion : pending) {
+                LocalDate releaseTime = assertion.releaseTime().isBefore(windowStart) ? windowStart : assertion.releaseTime();
+                LocalDate deadline = assertion.deadline().isAfter(releaseTime) ? assertion.deadline() : releaseTime.plusDays(1);
+                Assertion remainder = new Assertion(copy, assertion.computationTime() - hoursBefore.getOrDefault(assertion, 0),
+                        releaseTime, deadline, assertion.assignedPerson());
+                assertions.add(remainder);
+                originals.put(remainder, assertion);
+            }
+            copy.setAssertions(assertions);
+            remaining.add(copy);
+        }
+        if (remaining.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Allocation> replanned = new ArrayList<>();
+        for (Allocation allocation : algorithm.generateSchedule(remaining)) {
+            replanned.add(new Allocation(originals.get(allocation.assertion()), allocation.getDay(), allocation.getHoursAmount()));
+        }
+        return replanned;
+    }
+
+    public List<Allocation> schedule() {
+        return Collections.unmodifiableList(schedule);
+    }
+
+    public Set<Person> affectedPeople() {
+        return Collections.unmodifiableSet(affectedPeople);
+    }
+
+    public LocalDate windowStart() {
+        return windowStart;
+    }
+
+    public int keptAllocations() {
+        return keptAllocations;
+    }
+
+    public int removedAllocations() {
+        return removedAllocations;
+    }
+
+    public int addedAllocations() {
+        return addedAllocations;
+    }
+
+    /**
+     * Share of the resulting schedule that was re-planned.
+     */
+    public double touchedRatio() {
+        return schedule.isEmpty() ? 0 : (double) addedAllocations / schedule.size();
+    }
+}
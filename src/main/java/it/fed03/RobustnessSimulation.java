@@ -0,0 +1,327 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.*;
+
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * Monte Carlo estimate of how fragile a schedule is. Every variant perturbs the base assertions with its
+ * own random source, split in variant order from one source seeded with {@code seed}: an assertion overruns its computation time with probability
+ * {@code overrunProbability}, by a factor {@code 1 + |N(0, overrunSigma)|}, and its release slips later
+ * by up to {@code maxSlipDays} days with probability {@code slipProbability}.
+ * <p>
+ * Researchers do not share capacity, so a variant re-solves only the researchers owning a perturbed
+ * assertion, on copies holding just their assertions; everyone else keeps the outcome of the base
+ * schedule, which is solved once. Variants run in parallel and are reproducible from the seed alone.
+ */
+public class RobustnessSimulation {
+    private final int variants;
+    private final Distribution lateAssertions;
+    private final Distribution unallocatedHours;
+    private final Distribution maxLatenessDays;
+    private final Distribution peakLoad;
+    private final double infeasibilityRate;
+    private final double resolvedPeopleRatio;
+
+    private RobustnessSimulation(int variants, Distribution lateAssertions, Distribution unallocatedHours, Distribution maxLatenessDays,
+                                 Distribution peakLoad, double infeasibilityRate, double resolvedPeopleRatio) {
+        this.variants = variants;
+        this.lateAssertions = lateAssertions;
+        this.unallocatedHours = unallocatedHours;
+        this.maxLatenessDays = maxLatenessDays;
+        this.peakLoad = peakLoad;
+        this.infeasibilityRate = infeasibilityRate;
+        this.resolvedPeopleRatio = resolvedPeopleRatio;
+    }
+
+    public static RobustnessSimulation run(Set<Requirement> requirements, Algorithm algorithm, int variants, long seed,
+                                           double overrunProbability, double overrunSigma, double slipProbability, int maxSlipDays) {
+        return run(requirements, algorithm, variants, seed, overrunProbability, overrunSigma, slipProbability, maxSlipDays,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    public static RobustnessSimulation run(Set<Requirement> requirements, Algorithm algorithm, int variants, long seed,
+                                           double overrunProbability, double overrunSigma, double slipProbability, int maxSlipDays, int workers) {
+        return run(requirements, algorithm, variants, seed, overrunProbability, overrunSigma, slipProbability, maxSlipDays, workers, CapacityCalendar.standard());
+    }
+
+    /**
+     * @param capacities capacities the variants are solved with and feasibility and peak load are measured against
+     */
+    public static RobustnessSimulation run(Set<Requirement> requirements, Algorithm algorithm, int variants, long seed,
+                                           double overrunProbability, double overrunSigma, double slipProbability, int maxSlipDays, int workers,
+                                           CapacityCalendar capacities) {
+        Set<Requirement> base = Models.copy(requirements);
+        List<Assertion> assertions = ScheduleCache.canonicalAssertions(base);
+        Map<Person, Outcome> baseOutcomes = outcomes(base, algorithm.generateSchedule(base, capacities), capacities);
+        FeasibilityCheck baseFeasibility = FeasibilityCheck.of(base, capacities);
+
+        double[] late = new double[variants];
+        double[] unallocated = new double[variants];
+        double[] lateness = new double[variants];
+        double[] peak = new double[variants];
+        int[] infeasible = new int[variants];
+        int[] resolvedPeople = new int[variants];
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> tasks = new ArrayList<>(variants);
+            SplittableRandom source = new SplittableRandom(seed);
+            for (int v = 0; v < variants; v++) {
+                int variant = v;
+                // split here, in order, so each variant's stream does not depend on the scheduling of the workers
+                SplittableRandom random = source.split();
+                tasks.add(executor.submit(() -> {
+                    Map<Assertion, int[]> perturbed = new IdentityHashMap<>();
+                    for (Assertion assertion : assertions) {
+                        int computationTime = assertion.computationTime();
+                        long release = assertion.releaseTime().toEpochDay();
+                        long deadline = assertion.deadline().toEpochDay();
+                        boolean changed = false;
+                        if (random.nextDouble() < overrunProbability) {
+                            computationTime = (int) Math.ceil(computationTime * (1 + Math.abs(gaussian(random)) * overrunSigma));
+                            changed = true;
+                        }
+                        if (maxSlipDays > 0 && random.nextDouble() < slipProbability) {
+                            release = Math.min(deadline - 1, release + 1 + random.nextInt(maxSlipDays));
+                            changed = true;
+                        }
+                        if (changed) {
+                            perturbed.put(assertion, new int[]{computationTime, (int) release});
+                        }
+                    }
+
+                    Set<Person> affected = perturbed.keySet().stream().map(Assertion::assignedPerson).collect(Collectors.toSet());
+                    Set<Requirement> copies = copy(base, affected, perturbed);
+                    Map<Person, Outcome> outcomes = new HashMap<>(baseOutcomes);
+                    outcomes.keySet().removeAll(affected);
+                    outcomes.putAll(outcomes(copies, algorithm.generateSchedule(copies, capacities), capacities));
+
+                    FeasibilityCheck feasibility = FeasibilityCheck.of(copies, capacities);
+                    boolean feasible = feasibility.isFeasible();
+                    for (Person person : baseOutcomes.keySet()) {
+                        feasible &= affected.contains(person) || baseFeasibility.isFeasible(person);
+                    }
+
+                    for (Outcome outcome : outcomes.values()) {
+                        late[variant] += outcome.lateAssertions;
+                        unallocated[variant] += outcome.unallocatedHours;
+                        lateness[variant] = Math.max(lateness[variant], outcome.maxLatenessDays);
+                        peak[variant] = Math.max(peak[variant], outcome.peakLoad);
+                    }
+                    infeasible[variant] = feasible ? 0 : 1;
+                    resolvedPeople[variant] = affected.size();
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int people = Math.max(1, baseOutcomes.size());
+        return new RobustnessSimulation(variants, Distribution.of(late), Distribution.of(unallocated), Distribution.of(lateness), Distribution.of(peak),
+                variants == 0 ? 0 : (double) Arrays.stream(infeasible).sum() / variants,
+                variants == 0 ? 0 : (double) Arrays.stream(resolvedPeople).sum() / ((long) variants * people));
+    }
+
+    /**
+     * A standard normal sample by the Box-Muller transform, {@link SplittableRandom} has none on Java 8.
+     */
+    private static double gaussian(SplittableRandom random) {
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    /**
+     * Requirements restricted to the assertions of {@code people}, with the perturbed values applied.
+     */
+    private static Set<Requirement> copy(Set<Requirement> base, Set<Person> people, Map<Assertion, int[]> perturbed) {
+        Set<Requirement> copies = new LinkedHashSet<>();
+        for (Requirement requirement : base) {
+            List<Assertion> kept = requirement.assertions().stream().filter(assertion -> people.contains(assertion.assignedPerson())).collect(Collectors.toList());
+            if (kept.isEmpty()) {
+                continue;
+            }
+            int computationTime = kept.stream().mapToInt(assertion -> perturbed.containsKey(assertion) ? perturbed.get(assertion)[0] : assertion.computationTime()).sum();
+            Requirement copy = new Requirement(requirement.name(), computationTime,
+                    requirement.timeInterval().getStartInclusive(), requirement.timeInterval().getEndExclusive(),
+                    new ArrayList<>(requirement.assignedPeople()));
+            AssertionCollection<Assertion> assertions = new AssertionCollection<>();
+            for (Assertion assertion : kept) {
+                int[] values = perturbed.get(assertion);
+                assertions.add(values == null
+                        ? new Assertion(copy, assertion.computationTime(), assertion.releaseTime(), assertion.deadline(), assertion.assignedPerson())
+                        : new Assertion(copy, values[0], LocalDate.ofEpochDay(values[1]), assertion.deadline(), assertion.assignedPerson()));
+            }
+            copy.setAssertions(assertions);
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    private static Map<Person, Outcome> outcomes(Set<Requirement> requirements, Collection<Allocation> schedule, CapacityCalendar capacities) {
+        Map<Assertion, List<Allocation>> allocationsByAssertion = schedule.stream().collect(Collectors.groupingBy(Allocation::assertion, IdentityHashMap::new, Collectors.toList()));
+        Map<Person, Map<YearMonth, Integer>> monthlyHours = new HashMap<>();
+        for (Allocation allocation : schedule) {
+            monthlyHours.computeIfAbsent(allocation.getPerson(), person -> new HashMap<>())
+                    .merge(YearMonth.from(allocation.getDay()), allocation.getHoursAmount(), Integer::sum);
+        }
+
+        WorkingCalendar calendar = capacities.calendar();
+        Map<Person, Outcome> outcomes = new HashMap<>();
+        for (Requirement requirement : requirements) {
+            for (Assertion assertion : requirement.assertions()) {
+                Outcome outcome = outcomes.computeIfAbsent(assertion.assignedPerson(), person -> new Outcome());
+                List<Allocation> allocations = allocationsByAssertion.getOrDefault(assertion, Collections.emptyList());
+                int hours = allocations.stream().mapToInt(Allocation::getHoursAmount).sum();
+                LocalDate completion = allocations.stream().map(Allocation::getDay).max(LocalDate::compareTo).map(day -> day.plusDays(1)).orElse(null);
+                int latenessDays = completion == null ? 0 : calendar.workingDays(assertion.deadline(), completion);
+                outcome.unallocatedHours += Math.max(0, assertion.computationTime() - hours);
+                if (latenessDays > 0 || hours < assertion.computationTime()) {
+                    outcome.lateAssertions++;
+                }
+                outcome.maxLatenessDays = Math.max(outcome.maxLatenessDays, latenessDays);
+            }
+        }
+        monthlyHours.forEach((person, months) -> months.forEach((month, hours) -> {
+            int capacity = capacities.capacity(person, month.atDay(1), month.plusMonths(1).atDay(1));
+            Outcome outcome = outcomes.computeIfAbsent(person, key -> new Outcome());
+            outcome.peakLoad = Math.max(outcome.peakLoad, capacity == 0 ? 0 : (double) hours / capacity);
+        }));
+        return outcomes;
+    }
+
+    public static void print(RobustnessSimulation simulation, PrintStream out) {
+        out.println("Variants: " + simulation.variants());
+        out.println("Infeasibility rate: " + simulation.infeasibilityRate());
+        out.println("Re-solved researchers per variant: " + simulation.resolvedPeopleRatio());
+        out.println("Late assertions: " + simulation.lateAssertions());
+        out.println("Unallocated hours: " + simulation.unallocatedHours());
+        out.println("Max lateness (working days): " + simulation.maxLatenessDays());
+        out.println("Peak monthly load: " + simulation.peakLoad());
+    }
+
+    public int variants() {
+        return variants;
+    }
+
+    public Distribution lateAssertions() {
+        return lateAssertions;
+    }
+
+    public Distribution unallocatedHours() {
+        return unallocatedHours;
+    }
+
+    public Distribution maxLatenessDays() {
+        return maxLatenessDays;
+    }
+
+    /**
+     * Per variant, the highest share of a month's capacity any researcher is scheduled for.
+     */
+    public Distribution peakLoad() {
+        return peakLoad;
+    }
+
+    /**
+     * Share of the variants failing the {@link FeasibilityCheck}.
+     */
+    public double infeasibilityRate() {
+        return infeasibilityRate;
+    }
+
+    /**
+     * Average share of the researchers a variant had to re-solve.
+     */
+    public double resolvedPeopleRatio() {
+        return resolvedPeopleRatio;
+    }
+
+    private static class Outcome {
+        int lateAssertions;
+        int unallocatedHours;
+        int maxLatenessDays;
+        double peakLoad;
+    }
+
+    public static class Distribution {
+        private final double[] values;
+        private final long[] cumulativeCounts;
+
+        private Distribution(double[] values, long[] cumulativeCounts) {
+            this.values = values;
+            this.cumulativeCounts = cumulativeCounts;
+        }
+
+        static Distribution of(double[] values) {
+            double[] sorted = values.clone();
+            Arrays.sort(sorted);
+            long[] cumulativeCounts = new long[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                cumulativeCounts[i] = i + 1;
+            }
+            return new Distribution(sorted, cumulativeCounts);
+        }
+
+        /**
+         * Each value taken as many times as it is counted.
+         */
+        static Distribution of(SortedMap<Double, Long> counts) {
+            double[] values = new double[counts.size()];
+            long[] cumulativeCounts = new long[counts.size()];
+            long total = 0;
+            int i = 0;
+            for (Map.Entry<Double, Long> entry : counts.entrySet()) {
+                total += entry.getValue();
+                values[i] = entry.getKey();
+                cumulativeCounts[i++] = total;
+            }
+            return new Distribution(values, cumulativeCounts);
+        }
+
+        private long count() {
+            return values.length == 0 ? 0 : cumulativeCounts[values.length - 1];
+        }
+
+        public double mean() {
+            double sum = 0;
+            for (int i = 0; i < values.length; i++) {
+                sum += values[i] * (cumulativeCounts[i] - (i == 0 ? 0 : cumulativeCounts[i - 1]));
+            }
+            return values.length == 0 ? 0 : sum / count();
+        }
+
+        /**
+         * Nearest-rank percentile, {@code p} in [0, 100].
+         */
+        public double percentile(double p) {
+            if (values.length == 0) {
+                return 0;
+            }
+            long rank = Math.min(count(), Math.max(1, (long) Math.ceil(p / 100 * count())));
+            int index = Arrays.binarySearch(cumulativeCounts, rank);
+            return values[index >= 0 ? index : -index - 1];
+        }
+
+        public double max() {
+            return values.length == 0 ? 0 : values[values.length - 1];
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "mean %.2f, p50 %.2f, p90 %.2f, p99 %.2f, max %.2f", mean(), percentile(50), percentile(90), percentile(99), max());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.model.AssertionCollection;
+import it.unifi.cassandra.scheduling.model.Person;
+import it.unifi.cassandra.scheduling.model.Requirement;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Seeded generator of synthetic instances shaped like {@code Main.highDemand()}: every requirement is
+ * shared by one to three researchers and split into one assertion per researcher.
+ * <p>
+ * {@code overlapDensity} in (0, 1] is the expected fraction of the horizon covered by an assertion,
+ * so higher values make more assertions of the same researcher overlap. {@code load} is the expected
+ * fraction of a researcher's {@link CapacityCalendar} capacity demanded over the horizon.
+ */
+public class ScenarioGenerator {
+    private final Random random;
+    private final LocalDate horizonStart;
+    private final int horizonDays;
+    private final CapacityCalendar capacities;
+
+    public ScenarioGenerator(long seed) {
+        this(seed, LocalDate.of(2017, 1, 1), 2 * 365);
+    }
+
+    public ScenarioGenerator(long seed, LocalDate horizonStart, int horizonDays) {
+        this(seed, horizonStart, horizonDays, CapacityCalendar.standard());
+    }
+
+    /**
+     * @param capacities capacities of the researchers, who are named {@code researcher1} to {@code researcherN}
+     */
+    public ScenarioGenerator(long seed, LocalDate horizonStart, int horizonDays, CapacityCalendar capacities) {
+        this.random = new Random(seed);
+        this.horizonStart = horizonStart;
+        this.horizonDays = horizonDays;
+        this.capacities = capacities;
+    }
+
+    public Set<Requirement> generate(int researchers, int requirements, double overlapDensity) {
+        return generate(researchers, requirements, overlapDensity, 0.8);
+    }
+
+    public Set<Requirement> generate(int researchers, int requirements, double overlapDensity, double load) {
+        if (researchers < 1 || requirements < 1 || overlapDensity <= 0 || overlapDensity > 1 || load <= 0) {
+            throw new IllegalArgumentException("Invalid scenario parameters");
+        }
+
+        List<Person> people = new ArrayList<>(researchers);
+        for (int i = 1; i <= researchers; i++) {
+            people.add(new Researcher(String.format("researcher%d", i)));
+        }
+
+        int assertionDays = Math.max(7, (int) (horizonDays * overlapDensity));
+        double assertionsPerResearcher = requirements * 2.0 / researchers;
+        double concurrency = Math.max(1, assertionsPerResearcher * assertionDays / horizonDays);
+        double utilization = Math.min(1, load / concurrency);
+        String nameFormat = "proj%0" + String.valueOf(requirements).length() + "d";
+
+        Set<Requirement> result = new LinkedHashSet<>();
+        for (int i = 1; i <= requirements; i++) {
+            List<Person> assigned = pickPeople(people, 1 + random.nextInt(Math.min(3, researchers)));
+            LocalDate[][] windows = new LocalDate[assigned.size()][];
+            int[] hours = new int[assigned.size()];
+            LocalDate start = null;
+            LocalDate end = null;
+            for (int j = 0; j < assigned.size(); j++) {
+                int length = Math.max(7, (int) (assertionDays * (0.5 + random.nextDouble())));
+                LocalDate release = horizonStart.plusDays(random.nextInt(Math.max(1, horizonDays - length)));
+                LocalDate deadline = release.plusDays(length);
+                windows[j] = new LocalDate[]{release, deadline};
+                hours[j] = Math.max(1, (int) (capacities.capacity(assigned.get(j), release, deadline) * utilization * (0.5 + random.nextDouble())));
+                start = start == null || release.isBefore(start) ? release : start;
+                end = end == null || deadline.isAfter(end) ? deadline : end;
+            }
+
+            Requirement requirement = new Requirement(String.format(nameFormat, i), Arrays.stream(hours).sum(), start, end, assigned);
+            AssertionCollection<Assertion> assertions = new AssertionCollection<>();
+            for (int j = 0; j < assigned.size(); j++) {
+                assertions.add(new Assertion(requirement, hours[j], windows[j][0], windows[j][1], assigned.get(j)));
+            }
+            requirement.setAssertions(assertions);
+            result.add(requirement);
+        }
+        return result;
+    }
+
+    private List<Person> pickPeople(List<Person> people, int count) {
+        List<Person> picked = new ArrayList<>(count);
+        while (picked.size() < count) {
+            Person person = people.get(random.nextInt(people.size()));
+            if (!picked.contains(person)) {
+                picked.add(person);
+            }
+        }
+        return picked;
+    }
+}
@@ -0,0 +1,273 @@
+package it.fed03;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.model.AssertionCollection;
+import it.unifi.cassandra.scheduling.model.Person;
+import it.unifi.cassandra.scheduling.model.Requirement;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Reads requirements and assertions from CSV or JSON scenario files one record at a time.
+ * <p>
+ * CSV rows are either {@code requirement,name,computationTime,start,end,person;person...}
+ * or {@code assertion,requirementName,computationTime,releaseTime,deadline,person};
+ * an assertion must come after its requirement. Fields are quoted as in RFC 4180 when they hold commas,
+ * quotes or line breaks. Blank lines, lines starting with {@code #} and the {@code allocation} rows of a
+ * {@link ReportExporter} report are skipped.
+ * <p>
+ * JSON files hold a {@code requirements} array (or a bare array) of objects with
+ * {@code name, computationTime, start, end, assignedPeople} and an {@code assertions} array of
+ * {@code computationTime, releaseTime, deadline, assignedPerson}.
+ */
+public class ScenarioLoader {
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final Map<String, Person> researchers = new HashMap<>();
+    private final Map<String, Requirement> requirements = new LinkedHashMap<>();
+    private final Map<Requirement, AssertionCollection<Assertion>> assertions = new HashMap<>();
+
+    public static Set<Requirement> load(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            if (path.getFileName().toString().toLowerCase().endsWith(".json")) {
+                return loadJson(reader);
+            }
+            return loadCsv(reader);
+        }
+    }
+
+    public static Set<Requirement> loadCsv(Reader reader) throws IOException {
+        ScenarioLoader loader = new ScenarioLoader();
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int recordLine = lineNumber;
+            List<String> fields = new ArrayList<>();
+            // a quoted field may hold line breaks, its record goes on with the next line
+            while (!split(line, fields)) {
+                String next = lines.readLine();
+                if (next == null) {
+                    throw new IllegalArgumentException("Malformed scenario line " + recordLine + ": unterminated quoted field");
+                }
+                lineNumber++;
+                line = line + "\n" + next;
+                fields.clear();
+            }
+            try {
+                if (fields.get(0).equals("requirement") && fields.size() == 6) {
+                    loader.addRequirement(fields.get(1), Integer.parseInt(fields.get(2)), LocalDate.parse(fields.get(3)), LocalDate.parse(fields.get(4)),
+                            Arrays.asList(fields.get(5).split(";", -1)));
+                } else if (fields.get(0).equals("assertion") && fields.size() == 6) {
+                    loader.addAssertion(loader.requirement(fields.get(1)), Integer.parseInt(fields.get(2)), LocalDate.parse(fields.get(3)), LocalDate.parse(fields.get(4)), fields.get(5));
+                } else if (!fields.get(0).equals("allocation")) {
+                    throw new IllegalArgumentException("unknown record " + fields.get(0));
+                }
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Malformed scenario line " + recordLine + ": " + e.getMessage(), e);
+            }
+        }
+        return loader.build();
+    }
+
+    /**
+     * Splits an RFC 4180 record into {@code fields}: a field in double quotes may hold commas, line breaks
+     * and quotes doubled. Returns false when {@code record} ends inside a quoted field.
+     */
+    static boolean split(String record, List<String> fields) {
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return !quoted;
+    }
+
+    public static Set<Requirement> loadJson(Reader reader) throws IOException {
+        ScenarioLoader loader = new ScenarioLoader();
+        try (JsonParser parser = JSON.createParser(reader)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    if (field.equals("requirements")) {
+                        loader.readJsonRequirements(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else if (token == JsonToken.START_ARRAY) {
+                loader.readJsonRequirements(parser);
+            } else {
+                throw new IllegalArgumentException("Malformed scenario: expected an object or an array at " + parser.getCurrentLocation());
+            }
+        }
+        return loader.build();
+    }
+
+    private void readJsonRequirements(JsonParser parser) throws IOException {
+        expect(parser, parser.currentToken(), JsonToken.START_ARRAY);
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+            String name = null;
+            int computationTime = 0;
+            LocalDate start = null;
+            LocalDate end = null;
+            List<String> people = new ArrayList<>();
+            List<String[]> pendingAssertions = new ArrayList<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "name":
+                        name = parser.getText();
+                        break;
+                    case "computationTime":
+                        computationTime = parser.getIntValue();
+                        break;
+                    case "start":
+                        start = LocalDate.parse(parser.getText());
+                        break;
+                    case "end":
+                        end = LocalDate.parse(parser.getText());
+                        break;
+                    case "assignedPeople":
+                        expect(parser, value, JsonToken.START_ARRAY);
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            people.add(parser.getText());
+                        }
+                        break;
+                    case "assertions":
+                        expect(parser, value, JsonToken.START_ARRAY);
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            pendingAssertions.add(readJsonAssertion(parser));
+                        }
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            if (name == null || start == null || end == null) {
+                throw new IllegalArgumentException("Malformed scenario: requirement without name or time interval at " + parser.getCurrentLocation());
+            }
+
+            try {
+                Requirement requirement = addRequirement(name, computationTime, start, end, people);
+                for (String[] assertion : pendingAssertions) {
+                    addAssertion(requirement, Integer.parseInt(assertion[0]), LocalDate.parse(assertion[1]), LocalDate.parse(assertion[2]), assertion[3]);
+                }
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Malformed scenario: requirement " + name + " before " + parser.getCurrentLocation() + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static String[] readJsonAssertion(JsonParser parser) throws IOException {
+        expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+        String[] assertion = new String[4];
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "computationTime":
+                    assertion[0] = parser.getText();
+                    break;
+                case "releaseTime":
+                    assertion[1] = parser.getText();
+                    break;
+                case "deadline":
+                    assertion[2] = parser.getText();
+                    break;
+                case "assignedPerson":
+                    assertion[3] = parser.getText();
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        for (String value : assertion) {
+            if (value == null) {
+                throw new IllegalArgumentException("Malformed scenario: incomplete assertion at " + parser.getCurrentLocation());
+            }
+        }
+        return assertion;
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) {
+        if (actual != expected) {
+            throw new IllegalArgumentException("Malformed scenario: expected " + expected + " but found " + actual + " at " + parser.getCurrentLocation());
+        }
+    }
+
+    private Person researcher(String name) {
+        if (name.trim().isEmpty()) {
+            throw new IllegalArgumentException("empty researcher name");
+        }
+        return researchers.computeIfAbsent(name, Researcher::new);
+    }
+
+    private Requirement requirement(String name) {
+        Requirement requirement = requirements.get(name);
+        if (requirement == null) {
+            throw new IllegalArgumentException("assertion for undeclared requirement " + name);
+        }
+        return requirement;
+    }
+
+    private Requirement addRequirement(String name, int computationTime, LocalDate start, LocalDate end, List<String> peopleNames) {
+        if (requirements.containsKey(name)) {
+            throw new IllegalArgumentException("duplicate requirement " + name);
+        }
+        List<Person> people = new ArrayList<>(peopleNames.size());
+        for (String person : peopleNames) {
+            people.add(researcher(person));
+        }
+        Requirement requirement = new Requirement(name, computationTime, start, end, people);
+        requirements.put(name, requirement);
+        assertions.put(requirement, new AssertionCollection<>());
+        return requirement;
+    }
+
+    private void addAssertion(Requirement requirement, int computationTime, LocalDate releaseTime, LocalDate deadline, String person) {
+        assertions.get(requirement).add(new Assertion(requirement, computationTime, releaseTime, deadline, researcher(person)));
+    }
+
+    private Set<Requirement> build() {
+        requirements.values().forEach(requirement -> requirement.setAssertions(assertions.get(requirement)));
+        return new LinkedHashSet<>(requirements.values());
+    }
+}
@@ -0,0 +1,287 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.Problem;
+import it.unifi.cassandra.scheduling.SchedulabilityAnalysis;
+import it.unifi.cassandra.scheduling.ScheduleGenerator;
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.model.Person;
+import it.unifi.cassandra.scheduling.model.Requirement;
+import it.unifi.cassandra.scheduling.solver.edf.EDFSchedulabilityAnalysis;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Schedules keyed by a SHA-256 of the canonical requirement/assertion set, the daily capacity, the
+ * analysis and generator classes and their versions, kept in an in-memory LRU tier backed by an optional
+ * on-disk tier. A generator whose schedules depend on how it was configured implements {@link Keyed} to
+ * add its configuration to the key; any other generator is keyed by its class alone.
+ * <p>
+ * The default cache only writes to disk when {@code -Dschedule.cache.dir} names a directory. The key
+ * includes {@link #FORMAT_VERSION} and the implementation version of the generator's jar, so entries
+ * written by an older layout or an older solver are never read back; bump the format version whenever
+ * the entry layout or the meaning of a key changes.
+ * <p>
+ * Entries store allocations as (assertion ordinal, epoch day, hours) rows and are rebound to the
+ * caller's own model on every hit, so equal models built separately share the same entry.
+ * A hit does not replay the side effects of the generator on {@link Assertion#allocations()}.
+ */
+public class ScheduleCache {
+    static final int FORMAT_VERSION = 3;
+    private static final int FILE_MAGIC = 0x53434831;
+    private static ScheduleCache defaultCache;
+
+    private final Path directory;
+    private final Map<String, CachedSchedule> memory;
+
+    /**
+     * A schedule generator configured beyond its class.
+     */
+    public interface Keyed {
+        /**
+         * Every setting the generated schedules depend on, equal for equally configured generators.
+         */
+        String cacheKey();
+    }
+
+    public ScheduleCache(int capacity, Path directory) {
+        this.directory = directory;
+        this.memory = new LinkedHashMap<String, CachedSchedule>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedSchedule> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public static synchronized ScheduleCache defaultCache() {
+        if (defaultCache == null) {
+            String directory = System.getProperty("schedule.cache.dir", "");
+            defaultCache = new ScheduleCache(16, directory.isEmpty() ? null : Paths.get(directory));
+        }
+        return defaultCache;
+    }
+
+    /**
+     * Solves cache misses one connected component at a time, see {@link PartitionedSolver}.
+     */
+    public Collection<Allocation> generateSchedule(Set<Requirement> requirements, Algorithm algorithm) {
+        return generateSchedule(requirements, algorithm, CapacityCalendar.standard());
+    }
+
+    public Collection<Allocation> generateSchedule(Set<Requirement> requirements, Algorithm algorithm, CapacityCalendar capacities) {
+        List<Assertion> assertions = canonicalAssertions(requirements);
+        String key = key(assertions, capacities.dailyCapacity(), new EDFSchedulabilityAnalysis(), algorithm.generator(capacities));
+        return generateSchedule(key, assertions, () -> PartitionedSolver.generateSchedule(requirements, algorithm, capacities));
+    }
+
+    @SuppressWarnings("try")
+    public Collection<Allocation> generateSchedule(Set<Requirement> requirements, int dailyCapacity, SchedulabilityAnalysis analysis, ScheduleGenerator generator) {
+        List<Assertion> assertions = canonicalAssertions(requirements);
+        String key = key(assertions, dailyCapacity, analysis, generator);
+        return generateSchedule(key, assertions, () -> {
+            try (Metrics.Span span = Metrics.time("solve." + Algorithm.typeOf(generator))) {
+                return new Problem(requirements, dailyCapacity, analysis, generator).generateSchedule();
+            }
+        });
+    }
+
+    private Collection<Allocation> generateSchedule(String key, List<Assertion> assertions, Supplier<Collection<Allocation>> solver) {
+        CachedSchedule cached = fromMemory(key);
+        if (cached == null) {
+            cached = fromDisk(key);
+            if (cached != null) {
+                toMemory(key, cached);
+                Metrics.increment("cache.diskHits");
+            }
+        } else {
+            Metrics.increment("cache.memoryHits");
+        }
+        if (cached != null && cached.assertionCount == assertions.size()) {
+            return cached.rebind(assertions);
+        }
+
+        Metrics.increment("cache.misses");
+        Collection<Allocation> schedule = solver.get();
+        cached = CachedSchedule.of(assertions, schedule);
+        toMemory(key, cached);
+        toDisk(key, cached);
+        return schedule;
+    }
+
+    public synchronized void invalidate() {
+        memory.clear();
+    }
+
+    private synchronized CachedSchedule fromMemory(String key) {
+        return memory.get(key);
+    }
+
+    private synchronized void toMemory(String key, CachedSchedule schedule) {
+        memory.put(key, schedule);
+    }
+
+    private CachedSchedule fromDisk(String key) {
+        if (directory == null) {
+            return null;
+        }
+        Path file = directory.resolve(key + ".schedule");
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC) {
+                return null;
+            }
+            int assertionCount = in.readInt();
+            int size = in.readInt();
+            CachedSchedule schedule = new CachedSchedule(assertionCount, size);
+            for (int i = 0; i < size; i++) {
+                schedule.assertion[i] = in.readInt();
+                schedule.epochDay[i] = in.readInt();
+                schedule.hours[i] = in.readInt();
+            }
+            return schedule;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private void toDisk(String key, CachedSchedule schedule) {
+        if (directory == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(schedule.assertionCount);
+                out.writeInt(schedule.assertion.length);
+                for (int i = 0; i < schedule.assertion.length; i++) {
+                    out.writeInt(schedule.assertion[i]);
+                    out.writeInt(schedule.epochDay[i]);
+                    out.writeInt(schedule.hours[i]);
+                }
+            }
+            Files.move(temp, directory.resolve(key + ".schedule"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    static List<Assertion> canonicalAssertions(Set<Requirement> requirements) {
+        List<Requirement> sortedRequirements = new ArrayList<>(requirements);
+        sortedRequirements.sort(Comparator.comparing(Requirement::name));
+        List<Assertion> assertions = new ArrayList<>();
+        for (Requirement requirement : sortedRequirements) {
+            List<Assertion> requirementAssertions = new ArrayList<>(requirement.assertions());
+            requirementAssertions.sort(Comparator.comparing((Assertion assertion) -> assertion.assignedPerson().getIdentifier())
+                    .thenComparing(Assertion::releaseTime)
+                    .thenComparing(Assertion::deadline)
+                    .thenComparingInt(Assertion::computationTime));
+            assertions.addAll(requirementAssertions);
+        }
+        return assertions;
+    }
+
+    static String key(List<Assertion> canonicalAssertions, int dailyCapacity, SchedulabilityAnalysis analysis, ScheduleGenerator generator) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        StringBuilder canonical = new StringBuilder(256);
+        canonical.append(FORMAT_VERSION).append('|').append(dailyCapacity).append('|')
+                .append(analysis.getClass().getName()).append('|').append(version(analysis.getClass())).append('|')
+                .append(generator.getClass().getName()).append('|').append(version(generator.getClass())).append('|')
+                .append(generator instanceof Keyed ? ((Keyed) generator).cacheKey() : "").append('\n');
+        update(digest, canonical);
+
+        Requirement current = null;
+        for (Assertion assertion : canonicalAssertions) {
+            Requirement requirement = assertion.requirement();
+            if (requirement != current) {
+                current = requirement;
+                List<String> people = new ArrayList<>();
+                for (Person person : requirement.assignedPeople()) {
+                    people.add(person.getIdentifier());
+                }
+                Collections.sort(people);
+                canonical.append('R').append(requirement.name()).append('|').append(requirement.computationTime()).append('|')
+                        .append(requirement.timeInterval().getStartInclusive()).append('|').append(requirement.timeInterval().getEndExclusive()).append('|')
+                        .append(String.join(",", people)).append('\n');
+            }
+            canonical.append('A').append(assertion.assignedPerson().getIdentifier()).append('|').append(assertion.computationTime()).append('|')
+                    .append(assertion.releaseTime()).append('|').append(assertion.deadline()).append('\n');
+            update(digest, canonical);
+        }
+
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static String version(Class<?> type) {
+        Package typePackage = type.getPackage();
+        String version = typePackage == null ? null : typePackage.getImplementationVersion();
+        return version == null ? "" : version;
+    }
+
+    private static void update(MessageDigest digest, StringBuilder canonical) {
+        digest.update(canonical.toString().getBytes(StandardCharsets.UTF_8));
+        canonical.setLength(0);
+    }
+
+    private static class CachedSchedule {
+        final int assertionCount;
+        final int[] assertion;
+        final int[] epochDay;
+        final int[] hours;
+
+        CachedSchedule(int assertionCount, int size) {
+            this.assertionCount = assertionCount;
+            this.assertion = new int[size];
+            this.epochDay = new int[size];
+            this.hours = new int[size];
+        }
+
+        static CachedSchedule of(List<Assertion> canonicalAssertions, Collection<Allocation> schedule) {
+            Map<Assertion, Integer> ordinals = new IdentityHashMap<>(canonicalAssertions.size());
+            for (int i = 0; i < canonicalAssertions.size(); i++) {
+                ordinals.put(canonicalAssertions.get(i), i);
+            }
+            CachedSchedule cached = new CachedSchedule(canonicalAssertions.size(), schedule.size());
+            int i = 0;
+            for (Allocation allocation : schedule) {
+                cached.assertion[i] = ordinals.get(allocation.assertion());
+                cached.epochDay[i] = (int) allocation.getDay().toEpochDay();
+                cached.hours[i] = allocation.getHoursAmount();
+                i++;
+            }
+            return cached;
+        }
+
+        List<Allocation> rebind(List<Assertion> canonicalAssertions) {
+            List<Allocation> schedule = new ArrayList<>(assertion.length);
+            for (int i = 0; i < assertion.length; i++) {
+                schedule.add(new Allocation(canonicalAssertions.get(assertion[i]), LocalDate.ofEpochDay(epochDay[i]), hours[i]));
+            }
+            return schedule;
+        }
+    }
+}
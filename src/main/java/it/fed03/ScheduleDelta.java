@@ -0,0 +1,66 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.model.Requirement;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A change to a requirement set, expressed as the assertions that left it and the ones that joined it.
+ * Replacing a requirement replaces all of its assertions.
+ */
+public class ScheduleDelta {
+    private final List<Assertion> removed;
+    private final List<Assertion> added;
+
+    private ScheduleDelta(Collection<Assertion> removed, Collection<Assertion> added) {
+        this.removed = new ArrayList<>(removed);
+        this.added = new ArrayList<>(added);
+    }
+
+    public static ScheduleDelta addRequirement(Requirement requirement) {
+        return new ScheduleDelta(Collections.emptyList(), requirement.assertions());
+    }
+
+    public static ScheduleDelta removeRequirement(Requirement requirement) {
+        return new ScheduleDelta(requirement.assertions(), Collections.emptyList());
+    }
+
+    public static ScheduleDelta modifyRequirement(Requirement before, Requirement after) {
+        return new ScheduleDelta(before.assertions(), after.assertions());
+    }
+
+    public static ScheduleDelta addAssertion(Assertion assertion) {
+        return new ScheduleDelta(Collections.emptyList(), Collections.singletonList(assertion));
+    }
+
+    public static ScheduleDelta removeAssertion(Assertion assertion) {
+        return new ScheduleDelta(Collections.singletonList(assertion), Collections.emptyList());
+    }
+
+    public static ScheduleDelta modifyAssertion(Assertion before, Assertion after) {
+        return new ScheduleDelta(Collections.singletonList(before), Collections.singletonList(after));
+    }
+
+    public ScheduleDelta and(ScheduleDelta other) {
+        ScheduleDelta merged = new ScheduleDelta(removed, added);
+        merged.removed.addAll(other.removed);
+        merged.added.addAll(other.added);
+        return merged;
+    }
+
+    public List<Assertion> removed() {
+        return Collections.unmodifiableList(removed);
+    }
+
+    public List<Assertion> added() {
+        return Collections.unmodifiableList(added);
+    }
+
+    public boolean isEmpty() {
+        return removed.isEmpty() && added.isEmpty();
+    }
+}
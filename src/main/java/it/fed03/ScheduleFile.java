@@ -0,0 +1,343 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.model.Person;
+import it.unifi.cassandra.scheduling.model.Requirement;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * A schedule persisted as columns: one row per allocation, sorted by day, holding dictionary ids of the
+ * assertion and the person, the epoch day and the hours. The file is read back through a memory map,
+ * so opening it only decodes the dictionaries and every column is read straight from the page cache.
+ * <pre>
+ * header       magic, version, rows, people, requirements, assertions, columns offset
+ * people       identifier
+ * requirements name, computation time, start epoch day, end epoch day
+ * assertions   requirement id, person id, computation time, release epoch day, deadline epoch day
+ * columns      int assertion[rows], int person[rows], int epochDay[rows], short hours[rows]
+ * </pre>
+ * The dictionaries hold every requirement and assertion of the requirement set the schedule was solved
+ * for, also those without allocations, so unallocated hours can be told from the file alone.
+ * <p>
+ * A file is mapped whole, so it holds at most {@code Integer.MAX_VALUE} bytes, about 150 million rows;
+ * larger schedules are rejected when written and when opened.
+ */
+public class ScheduleFile {
+    private static final int MAGIC = 0x53434846;
+    private static final int VERSION = 1;
+    private static final int ROW_BYTES = 4 + 4 + 4 + 2;
+    private static final long MAX_SIZE = Integer.MAX_VALUE;
+
+    private final String[] people;
+    private final String[] requirementNames;
+    private final int[] requirementInfo;
+    private final int[] assertionInfo;
+    private final IntBuffer assertionColumn;
+    private final IntBuffer personColumn;
+    private final IntBuffer dayColumn;
+    private final ShortBuffer hoursColumn;
+    private final int rows;
+
+    private ScheduleFile(MappedByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not a schedule file");
+        }
+        rows = buffer.getInt();
+        people = new String[buffer.getInt()];
+        requirementNames = new String[buffer.getInt()];
+        requirementInfo = new int[requirementNames.length * 3];
+        assertionInfo = new int[buffer.getInt() * 5];
+        long columnsOffset = buffer.getLong();
+
+        for (int i = 0; i < people.length; i++) {
+            people[i] = readString(buffer);
+        }
+        for (int i = 0; i < requirementNames.length; i++) {
+            requirementNames[i] = readString(buffer);
+            for (int j = 0; j < 3; j++) {
+                requirementInfo[i * 3 + j] = buffer.getInt();
+            }
+        }
+        for (int i = 0; i < assertionInfo.length; i++) {
+            assertionInfo[i] = buffer.getInt();
+        }
+
+        if (rows < 0 || columnsOffset < buffer.position() || columnsOffset + (long) rows * ROW_BYTES > buffer.capacity()) {
+            throw new IOException("Truncated schedule file: " + rows + " rows at offset " + columnsOffset + " do not fit in " + buffer.capacity() + " bytes");
+        }
+        int offset = (int) columnsOffset;
+        assertionColumn = column(buffer, offset, rows * 4).asIntBuffer();
+        offset += rows * 4;
+        personColumn = column(buffer, offset, rows * 4).asIntBuffer();
+        offset += rows * 4;
+        dayColumn = column(buffer, offset, rows * 4).asIntBuffer();
+        offset += rows * 4;
+        hoursColumn = column(buffer, offset, rows * 2).asShortBuffer();
+    }
+
+    public static ScheduleFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > MAX_SIZE) {
+                throw new IOException("Schedule file " + path + " has " + channel.size() + " bytes, more than the " + MAX_SIZE + " a single memory map can hold");
+            }
+            return new ScheduleFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @param requirementSet the requirements {@code schedule} was solved for; assertions of allocations
+     *                       outside of it are written as well
+     */
+    public static void write(Path path, Collection<Requirement> requirementSet, Collection<Allocation> schedule) throws IOException {
+        List<Allocation> allocations = new ArrayList<>(schedule);
+        allocations.sort(Comparator.comparing(Allocation::getDay).thenComparing(allocation -> allocation.getPerson().getIdentifier()));
+
+        Map<String, Integer> peopleIds = new LinkedHashMap<>();
+        Map<Requirement, Integer> requirementIds = new IdentityHashMap<>();
+        List<Requirement> requirements = new ArrayList<>();
+        Map<Assertion, Integer> assertionIds = new IdentityHashMap<>();
+        List<Assertion> assertions = new ArrayList<>();
+        for (Requirement requirement : requirementSet) {
+            requirementIds.put(requirement, requirements.size());
+            requirements.add(requirement);
+            for (Assertion assertion : requirement.assertions()) {
+                add(assertion, peopleIds, requirementIds, requirements, assertionIds, assertions);
+            }
+        }
+        for (Allocation allocation : allocations) {
+            add(allocation.assertion(), peopleIds, requirementIds, requirements, assertionIds, assertions);
+            peopleIds.putIfAbsent(allocation.getPerson().getIdentifier(), peopleIds.size());
+        }
+
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(allocations.size())
+                        .putInt(peopleIds.size()).putInt(requirements.size()).putInt(assertions.size())
+                        .putLong(0L);
+                for (String person : peopleIds.keySet()) {
+                    writeString(channel, buffer, person);
+                }
+                for (Requirement requirement : requirements) {
+                    writeString(channel, buffer, requirement.name());
+                    ensure(channel, buffer, 12);
+                    buffer.putInt(requirement.computationTime())
+                            .putInt((int) requirement.timeInterval().getStartInclusive().toEpochDay())
+                            .putInt((int) requirement.timeInterval().getEndExclusive().toEpochDay());
+                }
+                for (Assertion assertion : assertions) {
+                    ensure(channel, buffer, 20);
+                    buffer.putInt(requirementIds.get(assertion.requirement()))
+                            .putInt(peopleIds.get(assertion.assignedPerson().getIdentifier()))
+                            .putInt(assertion.computationTime())
+                            .putInt((int) assertion.releaseTime().toEpochDay())
+                            .putInt((int) assertion.deadline().toEpochDay());
+                }
+
+                long written = channel.position() + buffer.position();
+                int padding = (int) ((8 - written % 8) % 8);
+                ensure(channel, buffer, padding);
+                buffer.put(new byte[padding]);
+                long columnsOffset = written + padding;
+                if (columnsOffset + (long) allocations.size() * ROW_BYTES > MAX_SIZE) {
+                    throw new IllegalArgumentException("Schedule of " + allocations.size() + " allocations does not fit in a schedule file of at most " + MAX_SIZE + " bytes");
+                }
+
+                for (Allocation allocation : allocations) {
+                    ensure(channel, buffer, 4);
+                    buffer.putInt(assertionIds.get(allocation.assertion()));
+                }
+                for (Allocation allocation : allocations) {
+                    ensure(channel, buffer, 4);
+                    buffer.putInt(peopleIds.get(allocation.getPerson().getIdentifier()));
+                }
+                for (Allocation allocation : allocations) {
+                    ensure(channel, buffer, 4);
+                    buffer.putInt((int) allocation.getDay().toEpochDay());
+                }
+                for (Allocation allocation : allocations) {
+                    if (allocation.getHoursAmount() > Short.MAX_VALUE) {
+                        throw new IllegalArgumentException("Allocation of " + allocation.getHoursAmount() + " hours does not fit the schedule file");
+                    }
+                    ensure(channel, buffer, 2);
+                    buffer.putShort((short) allocation.getHoursAmount());
+                }
+                flush(channel, buffer);
+
+                channel.write((ByteBuffer) ByteBuffer.allocate(8).putLong(columnsOffset).flip(), 24);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void add(Assertion assertion, Map<String, Integer> peopleIds, Map<Requirement, Integer> requirementIds, List<Requirement> requirements,
+                            Map<Assertion, Integer> assertionIds, List<Assertion> assertions) {
+        if (assertionIds.containsKey(assertion)) {
+            return;
+        }
+        assertionIds.put(assertion, assertions.size());
+        assertions.add(assertion);
+        peopleIds.putIfAbsent(assertion.assignedPerson().getIdentifier(), peopleIds.size());
+        if (!requirementIds.containsKey(assertion.requirement())) {
+            requirementIds.put(assertion.requirement(), requirements.size());
+            requirements.add(assertion.requirement());
+        }
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    public int personId(int row) {
+        return personColumn.get(row);
+    }
+
+    public int assertionId(int row) {
+        return assertionColumn.get(row);
+    }
+
+    public int epochDay(int row) {
+        return dayColumn.get(row);
+    }
+
+    public LocalDate day(int row) {
+        return LocalDate.ofEpochDay(dayColumn.get(row));
+    }
+
+    public int hours(int row) {
+        return hoursColumn.get(row);
+    }
+
+    public int peopleCount() {
+        return people.length;
+    }
+
+    public String person(int personId) {
+        return people[personId];
+    }
+
+    public int requirementCount() {
+        return requirementNames.length;
+    }
+
+    public String requirementName(int requirementId) {
+        return requirementNames[requirementId];
+    }
+
+    public int requirementComputationTime(int requirementId) {
+        return requirementInfo[requirementId * 3];
+    }
+
+    public LocalDate requirementStart(int requirementId) {
+        return LocalDate.ofEpochDay(requirementInfo[requirementId * 3 + 1]);
+    }
+
+    public LocalDate requirementEnd(int requirementId) {
+        return LocalDate.ofEpochDay(requirementInfo[requirementId * 3 + 2]);
+    }
+
+    public int assertionCount() {
+        return assertionInfo.length / 5;
+    }
+
+    public int assertionRequirement(int assertionId) {
+        return assertionInfo[assertionId * 5];
+    }
+
+    public int assertionPerson(int assertionId) {
+        return assertionInfo[assertionId * 5 + 1];
+    }
+
+    public int assertionComputationTime(int assertionId) {
+        return assertionInfo[assertionId * 5 + 2];
+    }
+
+    public LocalDate assertionReleaseTime(int assertionId) {
+        return LocalDate.ofEpochDay(assertionInfo[assertionId * 5 + 3]);
+    }
+
+    public LocalDate assertionDeadline(int assertionId) {
+        return LocalDate.ofEpochDay(assertionInfo[assertionId * 5 + 4]);
+    }
+
+    /**
+     * Detached people, one per identifier in the dictionary.
+     */
+    public List<Person> people() {
+        List<Person> result = new ArrayList<>(people.length);
+        for (String person : people) {
+            result.add(new Researcher(person));
+        }
+        return result;
+    }
+
+    /**
+     * Detached requirements, one per dictionary entry, without assertions or assigned people.
+     */
+    public List<Requirement> requirements() {
+        List<Requirement> result = new ArrayList<>(requirementNames.length);
+        for (int i = 0; i < requirementNames.length; i++) {
+            result.add(new Requirement(requirementNames[i], requirementInfo[i * 3],
+                    LocalDate.ofEpochDay(requirementInfo[i * 3 + 1]), LocalDate.ofEpochDay(requirementInfo[i * 3 + 2]),
+                    Collections.emptyList()));
+        }
+        return result;
+    }
+
+    private static ByteBuffer column(MappedByteBuffer buffer, int offset, int length) {
+        ByteBuffer column = buffer.duplicate();
+        column.position(offset);
+        column.limit(offset + length);
+        return column.slice();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(FileChannel channel, ByteBuffer buffer, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensure(channel, buffer, 4);
+        buffer.putInt(bytes.length);
+        int written = 0;
+        while (written < bytes.length) {
+            ensure(channel, buffer, 1);
+            int chunk = Math.min(buffer.remaining(), bytes.length - written);
+            buffer.put(bytes, written, chunk);
+            written += chunk;
+        }
+    }
+
+    private static void ensure(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
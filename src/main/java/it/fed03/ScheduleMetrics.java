@@ -0,0 +1,144 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.model.Person;
+import it.unifi.cassandra.scheduling.model.Requirement;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Quality figures of a single schedule.
+ * <ul>
+ * <li>load: worked hours over the {@link CapacityCalendar} capacity of the days a person worked at all,
+ * 0 when those days have no capacity</li>
+ * <li>fragmentation: number of separate working-day runs an assertion is split into</li>
+ * <li>slack: working days left between an assertion's last allocation and its deadline, negative when late</li>
+ * </ul>
+ * An assertion is late when it ends after its deadline or has unallocated hours, as in
+ * {@link RobustnessSimulation}; slack is averaged over the assertions with at least one allocation.
+ */
+public class ScheduleMetrics {
+    private final Map<Person, Double> personLoad;
+    private final double averageFragments;
+    private final int maxFragments;
+    private final double averageSlack;
+    private final int minSlack;
+    private final int lateAssertions;
+    private final int unallocatedHours;
+
+    private ScheduleMetrics(Map<Person, Double> personLoad, double averageFragments, int maxFragments, double averageSlack, int minSlack, int lateAssertions, int unallocatedHours) {
+        this.personLoad = personLoad;
+        this.averageFragments = averageFragments;
+        this.maxFragments = maxFragments;
+        this.averageSlack = averageSlack;
+        this.minSlack = minSlack;
+        this.lateAssertions = lateAssertions;
+        this.unallocatedHours = unallocatedHours;
+    }
+
+    public static ScheduleMetrics of(Set<Requirement> requirements, Collection<Allocation> schedule) {
+        return of(requirements, schedule, WorkingCalendar.standard());
+    }
+
+    public static ScheduleMetrics of(Set<Requirement> requirements, Collection<Allocation> schedule, WorkingCalendar calendar) {
+        return of(requirements, schedule, CapacityCalendar.uniform(Algorithm.DAILY_CAPACITY, calendar));
+    }
+
+    public static ScheduleMetrics of(Set<Requirement> requirements, Collection<Allocation> schedule, CapacityCalendar capacities) {
+        WorkingCalendar calendar = capacities.calendar();
+        Map<Person, int[]> personHoursAndCapacity = new HashMap<>();
+        Map<Person, Set<LocalDate>> personDays = new HashMap<>();
+        Map<Assertion, List<LocalDate>> assertionDays = new HashMap<>();
+        Map<Assertion, Integer> assertionHours = new HashMap<>();
+        for (Allocation allocation : schedule) {
+            personHoursAndCapacity.computeIfAbsent(allocation.getPerson(), person -> new int[2])[0] += allocation.getHoursAmount();
+            if (personDays.computeIfAbsent(allocation.getPerson(), person -> new HashSet<>()).add(allocation.getDay())) {
+                personHoursAndCapacity.get(allocation.getPerson())[1] += capacities.capacity(allocation.getPerson(), allocation.getDay());
+            }
+            assertionDays.computeIfAbsent(allocation.assertion(), assertion -> new ArrayList<>()).add(allocation.getDay());
+            assertionHours.merge(allocation.assertion(), allocation.getHoursAmount(), Integer::sum);
+        }
+
+        Map<Person, Double> personLoad = new TreeMap<>(Comparator.comparing(Person::getIdentifier));
+        personHoursAndCapacity.forEach((person, hoursAndCapacity) -> personLoad.put(person,
+                hoursAndCapacity[1] == 0 ? 0 : (double) hoursAndCapacity[0] / hoursAndCapacity[1]));
+
+        long fragments = 0;
+        int maxFragments = 0;
+        long slack = 0;
+        int minSlack = Integer.MAX_VALUE;
+        int late = 0;
+        int unallocated = 0;
+        for (Requirement requirement : requirements) {
+            for (Assertion assertion : requirement.assertions()) {
+                int missing = Math.max(0, assertion.computationTime() - assertionHours.getOrDefault(assertion, 0));
+                unallocated += missing;
+                List<LocalDate> days = assertionDays.get(assertion);
+                if (days == null) {
+                    if (missing > 0) {
+                        late++;
+                    }
+                    continue;
+                }
+                days.sort(Comparator.naturalOrder());
+                int runs = 1;
+                for (int i = 1; i < days.size(); i++) {
+                    if (calendar.workingDays(days.get(i - 1), days.get(i)) > 1) {
+                        runs++;
+                    }
+                }
+                fragments += runs;
+                maxFragments = Math.max(maxFragments, runs);
+
+                LocalDate completion = days.get(days.size() - 1).plusDays(1);
+                int assertionSlack = completion.isAfter(assertion.deadline())
+                        ? -calendar.workingDays(assertion.deadline(), completion)
+                        : calendar.workingDays(completion, assertion.deadline());
+                slack += assertionSlack;
+                minSlack = Math.min(minSlack, assertionSlack);
+                if (assertionSlack < 0 || missing > 0) {
+                    late++;
+                }
+            }
+        }
+
+        int allocatedAssertions = assertionDays.size();
+        return new ScheduleMetrics(personLoad,
+                allocatedAssertions == 0 ? 0 : (double) fragments / allocatedAssertions,
+                maxFragments,
+                allocatedAssertions == 0 ? 0 : (double) slack / allocatedAssertions,
+                allocatedAssertions == 0 ? 0 : minSlack,
+                late,
+                unallocated);
+    }
+
+    public Map<Person, Double> personLoad() {
+        return Collections.unmodifiableMap(personLoad);
+    }
+
+    public double averageFragments() {
+        return averageFragments;
+    }
+
+    public int maxFragments() {
+        return maxFragments;
+    }
+
+    public double averageSlack() {
+        return averageSlack;
+    }
+
+    public int minSlack() {
+        return minSlack;
+    }
+
+    public int lateAssertions() {
+        return lateAssertions;
+    }
+
+    public int unallocatedHours() {
+        return unallocatedHours;
+    }
+}
@@ -0,0 +1,153 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.model.Requirement;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Schedule of a requirement set as a lazy stream of allocations in day order.
+ * <p>
+ * {@code Problem} only hands back a whole horizon at once, so the unit of laziness is the connected
+ * component of {@link PartitionedSolver}: components are opened in order of their earliest release and
+ * merged by day, and a component is solved only once the stream reaches that release, while the next
+ * one is already solving in the background. Allocations of a component are dropped as soon as they are
+ * emitted, so memory follows the components overlapping the current day rather than the whole horizon.
+ * <p>
+ * Closing the stream cancels the component solving in the background by interrupting its thread; a
+ * generator that never checks for interruption still runs to the end, but its schedule is dropped.
+ * Callers reading only part of it through {@link Stream#iterator()} have to close it all the same, e.g.
+ * with try-with-resources.
+ */
+public class ScheduleStream {
+    private static final ExecutorService SOLVER = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "schedule-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public static Stream<Allocation> of(Set<Requirement> requirements, Algorithm algorithm) {
+        return of(requirements, algorithm, CapacityCalendar.standard());
+    }
+
+    public static Stream<Allocation> of(Set<Requirement> requirements, Algorithm algorithm, CapacityCalendar capacities) {
+        DayOrderedIterator iterator = new DayOrderedIterator(requirements, algorithm, capacities, SOLVER);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::cancel);
+    }
+
+    private static class DayOrderedIterator implements Iterator<Allocation> {
+        private final Algorithm algorithm;
+        private final CapacityCalendar capacities;
+        private final ExecutorService executor;
+        private final List<Set<Requirement>> components = new ArrayList<>();
+        private final List<LocalDate> releases = new ArrayList<>();
+        private final PriorityQueue<Cursor> cursors = new PriorityQueue<>(Comparator.comparing(Cursor::day).thenComparingInt(cursor -> cursor.component));
+        private int nextComponent;
+        private Future<Collection<Allocation>> solving;
+
+        DayOrderedIterator(Set<Requirement> requirements, Algorithm algorithm, CapacityCalendar capacities, ExecutorService executor) {
+            this.algorithm = algorithm;
+            this.capacities = capacities;
+            this.executor = executor;
+            List<Set<Requirement>> all = PartitionedSolver.components(requirements);
+            Metrics.increment("solve.components", all.size());
+            Map<Set<Requirement>, LocalDate> earliest = new IdentityHashMap<>();
+            for (Set<Requirement> component : all) {
+                // components without assertions have nothing to allocate
+                component.stream().flatMap(requirement -> requirement.assertions().stream()).map(Assertion::releaseTime)
+                        .min(LocalDate::compareTo).ifPresent(release -> earliest.put(component, release));
+            }
+            all.stream().filter(earliest::containsKey).sorted(Comparator.comparing(earliest::get)).forEach(component -> {
+                components.add(component);
+                releases.add(earliest.get(component));
+            });
+        }
+
+        @Override
+        public boolean hasNext() {
+            // nothing is allocated before a release, so a component starting after the earliest pending day can wait
+            while (nextComponent < components.size() && (cursors.isEmpty() || !releases.get(nextComponent).isAfter(cursors.peek().day()))) {
+                open();
+            }
+            return !cursors.isEmpty();
+        }
+
+        @Override
+        public Allocation next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Cursor cursor = cursors.poll();
+            Allocation allocation = cursor.allocations[cursor.position];
+            cursor.allocations[cursor.position++] = null;
+            if (cursor.position < cursor.allocations.length) {
+                cursors.add(cursor);
+            }
+            return allocation;
+        }
+
+        void cancel() {
+            if (solving != null) {
+                solving.cancel(true);
+                solving = null;
+            }
+            nextComponent = components.size();
+            cursors.clear();
+        }
+
+        private void open() {
+            int component = nextComponent++;
+            Collection<Allocation> schedule = solving != null ? join(solving) : algorithm.generateSchedule(components.get(component), capacities);
+            components.set(component, null);
+            solving = null;
+            if (nextComponent < components.size()) {
+                Set<Requirement> next = components.get(nextComponent);
+                solving = executor.submit(() -> algorithm.generateSchedule(next, capacities));
+            }
+
+            Allocation[] allocations = schedule.toArray(new Allocation[0]);
+            Arrays.sort(allocations, Comparator.comparing(Allocation::getDay));
+            if (allocations.length > 0) {
+                cursors.add(new Cursor(component, allocations));
+            }
+        }
+    }
+
+    private static Collection<Allocation> join(Future<Collection<Allocation>> solving) {
+        try {
+            return solving.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a component schedule", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static class Cursor {
+        final int component;
+        final Allocation[] allocations;
+        int position;
+
+        Cursor(int component, Allocation[] allocations) {
+            this.component = component;
+            this.allocations = allocations;
+        }
+
+        LocalDate day() {
+            return allocations[position].getDay();
+        }
+    }
+}
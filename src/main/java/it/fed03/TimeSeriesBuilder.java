@@ -0,0 +1,168 @@
+package it.fed03;
+
+import org.jfree.chart.axis.DateTickUnit;
+import org.jfree.data.time.Day;
+import org.jfree.data.time.Month;
+import org.jfree.data.time.RegularTimePeriod;
+import org.jfree.data.time.TimeSeries;
+import org.jfree.data.time.Week;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.function.Consumer;
+
+/**
+ * Builds a {@link TimeSeries} from day-ordered points in one pass, without a change event per point,
+ * optionally reducing them to what the chart's {@link DateTickUnit} can show:
+ * <ul>
+ * <li>{@code BUCKET}: hours summed per week, or per month when ticks are at least two months apart</li>
+ * <li>{@code LTTB}: Largest-Triangle-Three-Buckets downsampling to {@value #POINTS_PER_TICK} points per tick</li>
+ * </ul>
+ * The reduction defaults to the {@code charts.reduction} system property, {@code none} when unset or
+ * not one of the above.
+ */
+public class TimeSeriesBuilder {
+    static final int POINTS_PER_TICK = 8;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    public enum Reduction {
+        NONE,
+        BUCKET,
+        LTTB
+    }
+
+    private final Reduction reduction;
+    private final DateTickUnit tickUnit;
+    private int[] days = new int[256];
+    private int[] hours = new int[256];
+    private int size;
+
+    public TimeSeriesBuilder(DateTickUnit tickUnit) {
+        this(reduction(System.getProperty("charts.reduction", "none")), tickUnit);
+    }
+
+    public TimeSeriesBuilder(Reduction reduction, DateTickUnit tickUnit) {
+        this.reduction = reduction;
+        this.tickUnit = tickUnit;
+    }
+
+    static Reduction reduction(String name) {
+        try {
+            return Reduction.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown chart reduction " + name + ", expected one of " + Arrays.toString(Reduction.values()) + "; using NONE");
+            return Reduction.NONE;
+        }
+    }
+
+    /**
+     * @param points feeds the points of the series in day order
+     */
+    @SuppressWarnings("try")
+    public TimeSeries build(String name, Consumer<WorkedHoursCube.DailyHoursConsumer> points) {
+        try (Metrics.Span span = Metrics.time("chart.dataset")) {
+            size = 0;
+            points.accept(this::add);
+
+            TimeSeries series = new TimeSeries(name);
+            switch (reduction) {
+                case BUCKET:
+                    bucket(series);
+                    break;
+                case LTTB:
+                    largestTriangleThreeBuckets(series);
+                    break;
+                default:
+                    for (int i = 0; i < size; i++) {
+                        series.add(day(days[i]), hours[i], false);
+                    }
+            }
+            series.fireSeriesChanged();
+            Metrics.increment("chart.points", series.getItemCount());
+            return series;
+        }
+    }
+
+    private void add(LocalDate day, int value) {
+        if (size == days.length) {
+            days = Arrays.copyOf(days, size * 2);
+            hours = Arrays.copyOf(hours, size * 2);
+        }
+        days[size] = (int) day.toEpochDay();
+        hours[size] = value;
+        size++;
+    }
+
+    private void bucket(TimeSeries series) {
+        boolean monthly = tickUnit.getSize() / DAY_MILLIS >= 56;
+        int i = 0;
+        while (i < size) {
+            LocalDate first = LocalDate.ofEpochDay(days[i]);
+            LocalDate monday = first.with(DayOfWeek.MONDAY);
+            // the week holding the ISO Monday, whatever week numbering the locale uses
+            RegularTimePeriod period = monthly ? new Month(first.getMonthValue(), first.getYear())
+                    : new Week(Date.from(monday.atStartOfDay(ZoneId.systemDefault()).toInstant()), TimeZone.getDefault(), Locale.getDefault());
+            long end = monthly ? first.withDayOfMonth(1).plusMonths(1).toEpochDay() : monday.plusWeeks(1).toEpochDay();
+            int total = 0;
+            while (i < size && days[i] < end) {
+                total += hours[i++];
+            }
+            series.add(period, total, false);
+        }
+    }
+
+    private void largestTriangleThreeBuckets(TimeSeries series) {
+        long span = size == 0 ? 0 : days[size - 1] - days[0] + 1;
+        int threshold = (int) Math.max(3, Math.ceil(span * DAY_MILLIS / tickUnit.getSize()) * POINTS_PER_TICK);
+        if (threshold >= size) {
+            for (int i = 0; i < size; i++) {
+                series.add(day(days[i]), hours[i], false);
+            }
+            return;
+        }
+
+        double bucketSize = (double) (size - 2) / (threshold - 2);
+        int selected = 0;
+        series.add(day(days[0]), hours[0], false);
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // average of the next bucket is the third vertex of the triangle
+            int nextStart = (int) ((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min(size, (int) ((bucket + 2) * bucketSize) + 1);
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageX += days[i];
+                averageY += hours[i];
+            }
+            int nextLength = Math.max(1, nextEnd - nextStart);
+            averageX /= nextLength;
+            averageY /= nextLength;
+
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = (int) ((bucket + 1) * bucketSize) + 1;
+            double maxArea = -1;
+            int next = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((days[selected] - averageX) * (hours[i] - hours[selected])
+                        - (days[selected] - days[i]) * (averageY - hours[selected]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = i;
+                }
+            }
+            series.add(day(days[next]), hours[next], false);
+            selected = next;
+        }
+        series.add(day(days[size - 1]), hours[size - 1], false);
+    }
+
+    private static Day day(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return new Day(date.getDayOfMonth(), date.getMonthValue(), date.getYear());
+    }
+}
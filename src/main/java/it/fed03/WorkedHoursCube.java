@@ -0,0 +1,416 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Person;
+import it.unifi.cassandra.scheduling.model.Requirement;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Worked hours indexed by person, requirement and day, built once from a schedule.
+ * Every row is stored as a prefix sum over the days that have at least one allocation,
+ * so both daily series and range totals are answered without touching the allocations again.
+ */
+public class WorkedHoursCube {
+    private final List<Person> people = new ArrayList<>();
+    private final List<Requirement> requirements = new ArrayList<>();
+    private final Map<Person, Integer> personIndex = new HashMap<>();
+    private final Map<Requirement, Integer> requirementIndex = new HashMap<>();
+
+    private final LocalDate[] days;
+    private final int[] epochDays;
+    private final int stride;
+
+    private final int[] pairOf;
+    private final int[][] requirementsByPerson;
+    private final int[][] peopleByRequirement;
+
+    private final int[] pairPrefix;
+    private final int[] personPrefix;
+    private final int[] requirementPrefix;
+    private final int[] totalPrefix;
+
+    public WorkedHoursCube(Collection<Allocation> allocations) {
+        this(Rows.of(allocations));
+    }
+
+    public WorkedHoursCube(ScheduleFile schedule) {
+        this(schedule, schedule.size());
+    }
+
+    /**
+     * Worked hours of the first {@code rows} allocations of a persisted schedule, which are sorted by day.
+     */
+    public WorkedHoursCube(ScheduleFile schedule, int rows) {
+        this(Rows.of(schedule, rows));
+    }
+
+    /**
+     * Worked hours of allocations arriving in day order, which are read once and not kept: the first cube
+     * holds the first {@code share} of them, the second all of them.
+     */
+    static WorkedHoursCube[] ofDayOrdered(Iterator<Allocation> allocations, double share) {
+        Rows rows = Rows.of(allocations);
+        return new WorkedHoursCube[]{new WorkedHoursCube(rows.prefix((int) Math.ceil(rows.size * share))), new WorkedHoursCube(rows)};
+    }
+
+    /**
+     * Worked hours of allocations in any order: the first cube holds the earliest {@code share} of them by day,
+     * the second all of them. Only the primitive rows are sorted, not the allocations.
+     */
+    static WorkedHoursCube[] of(Collection<Allocation> allocations, double share) {
+        Rows rows = Rows.of(allocations).sortedByDay();
+        return new WorkedHoursCube[]{new WorkedHoursCube(rows.prefix((int) Math.ceil(rows.size * share))), new WorkedHoursCube(rows)};
+    }
+
+    private WorkedHoursCube(Rows rows) {
+        int size = rows.size;
+        int[] allocationPerson = rows.person;
+        int[] allocationRequirement = rows.requirement;
+        int[] allocationDay = rows.day;
+        int[] allocationHours = rows.hours;
+        for (int p = 0; p < rows.people.size(); p++) {
+            personIndex.put(rows.people.get(p), p);
+            people.add(rows.people.get(p));
+        }
+        for (int r = 0; r < rows.requirements.size(); r++) {
+            requirementIndex.put(rows.requirements.get(r), r);
+            requirements.add(rows.requirements.get(r));
+        }
+
+        int minDay = Integer.MAX_VALUE;
+        int maxDay = Integer.MIN_VALUE;
+        for (int j = 0; j < size; j++) {
+            minDay = Math.min(minDay, allocationDay[j]);
+            maxDay = Math.max(maxDay, allocationDay[j]);
+        }
+
+        int[] dayOrdinal = new int[size == 0 ? 0 : maxDay - minDay + 1];
+        for (int j = 0; j < size; j++) {
+            dayOrdinal[allocationDay[j] - minDay] = 1;
+        }
+        int dayCount = 0;
+        for (int j = 0; j < dayOrdinal.length; j++) {
+            dayOrdinal[j] = dayOrdinal[j] == 0 ? -1 : dayCount++;
+        }
+        days = new LocalDate[dayCount];
+        epochDays = new int[dayCount];
+        for (int j = 0; j < dayOrdinal.length; j++) {
+            if (dayOrdinal[j] >= 0) {
+                epochDays[dayOrdinal[j]] = minDay + j;
+                days[dayOrdinal[j]] = LocalDate.ofEpochDay(minDay + j);
+            }
+        }
+        stride = dayCount + 1;
+
+        int peopleCount = people.size();
+        int requirementCount = requirements.size();
+        pairOf = new int[peopleCount * requirementCount];
+        Arrays.fill(pairOf, -1);
+        int[] personPairs = new int[peopleCount];
+        int[] requirementPairs = new int[requirementCount];
+        int pairCount = 0;
+        for (int j = 0; j < size; j++) {
+            int cell = allocationPerson[j] * requirementCount + allocationRequirement[j];
+            if (pairOf[cell] < 0) {
+                pairOf[cell] = pairCount++;
+                personPairs[allocationPerson[j]]++;
+                requirementPairs[allocationRequirement[j]]++;
+            }
+        }
+
+        requirementsByPerson = new int[peopleCount][];
+        for (int p = 0; p < peopleCount; p++) {
+            requirementsByPerson[p] = new int[personPairs[p]];
+        }
+        peopleByRequirement = new int[requirementCount][];
+        for (int r = 0; r < requirementCount; r++) {
+            peopleByRequirement[r] = new int[requirementPairs[r]];
+        }
+        Arrays.fill(personPairs, 0);
+        Arrays.fill(requirementPairs, 0);
+        for (int p = 0; p < peopleCount; p++) {
+            for (int r = 0; r < requirementCount; r++) {
+                if (pairOf[p * requirementCount + r] >= 0) {
+                    requirementsByPerson[p][personPairs[p]++] = r;
+                    peopleByRequirement[r][requirementPairs[r]++] = p;
+                }
+            }
+        }
+
+        pairPrefix = new int[pairCount * stride];
+        personPrefix = new int[peopleCount * stride];
+        requirementPrefix = new int[requirementCount * stride];
+        totalPrefix = new int[stride];
+        for (int j = 0; j < size; j++) {
+            int day = dayOrdinal[allocationDay[j] - minDay] + 1;
+            int hours = allocationHours[j];
+            pairPrefix[pairOf[allocationPerson[j] * requirementCount + allocationRequirement[j]] * stride + day] += hours;
+            personPrefix[allocationPerson[j] * stride + day] += hours;
+            requirementPrefix[allocationRequirement[j] * stride + day] += hours;
+            totalPrefix[day] += hours;
+        }
+        accumulate(pairPrefix);
+        accumulate(personPrefix);
+        accumulate(requirementPrefix);
+        accumulate(totalPrefix);
+    }
+
+    public List<Person> people() {
+        return Collections.unmodifiableList(people);
+    }
+
+    public List<Requirement> requirements() {
+        return Collections.unmodifiableList(requirements);
+    }
+
+    public List<Requirement> requirementsOf(Person person) {
+        Integer p = personIndex.get(person);
+        if (p == null) {
+            return Collections.emptyList();
+        }
+        List<Requirement> result = new ArrayList<>(requirementsByPerson[p].length);
+        for (int r : requirementsByPerson[p]) {
+            result.add(requirements.get(r));
+        }
+        return result;
+    }
+
+    public List<Person> peopleOf(Requirement requirement) {
+        Integer r = requirementIndex.get(requirement);
+        if (r == null) {
+            return Collections.emptyList();
+        }
+        List<Person> result = new ArrayList<>(peopleByRequirement[r].length);
+        for (int p : peopleByRequirement[r]) {
+            result.add(people.get(p));
+        }
+        return result;
+    }
+
+    public void totalHours(DailyHoursConsumer consumer) {
+        forEachDay(totalPrefix, 0, consumer);
+    }
+
+    public void personHours(Person person, DailyHoursConsumer consumer) {
+        Integer p = personIndex.get(person);
+        if (p != null) {
+            forEachDay(personPrefix, p * stride, consumer);
+        }
+    }
+
+    public void requirementHours(Requirement requirement, DailyHoursConsumer consumer) {
+        Integer r = requirementIndex.get(requirement);
+        if (r != null) {
+            forEachDay(requirementPrefix, r * stride, consumer);
+        }
+    }
+
+    public void personRequirementHours(Person person, Requirement requirement, DailyHoursConsumer consumer) {
+        int pair = pairOf(person, requirement);
+        if (pair >= 0) {
+            forEachDay(pairPrefix, pair * stride, consumer);
+        }
+    }
+
+    public int totalHoursBetween(LocalDate startInclusive, LocalDate endExclusive) {
+        return rangeOf(totalPrefix, 0, startInclusive, endExclusive);
+    }
+
+    public int personHoursBetween(Person person, LocalDate startInclusive, LocalDate endExclusive) {
+        Integer p = personIndex.get(person);
+        return p == null ? 0 : rangeOf(personPrefix, p * stride, startInclusive, endExclusive);
+    }
+
+    public int requirementHoursBetween(Requirement requirement, LocalDate startInclusive, LocalDate endExclusive) {
+        Integer r = requirementIndex.get(requirement);
+        return r == null ? 0 : rangeOf(requirementPrefix, r * stride, startInclusive, endExclusive);
+    }
+
+    public int personRequirementHoursBetween(Person person, Requirement requirement, LocalDate startInclusive, LocalDate endExclusive) {
+        int pair = pairOf(person, requirement);
+        return pair < 0 ? 0 : rangeOf(pairPrefix, pair * stride, startInclusive, endExclusive);
+    }
+
+    private int pairOf(Person person, Requirement requirement) {
+        Integer p = personIndex.get(person);
+        Integer r = requirementIndex.get(requirement);
+        if (p == null || r == null) {
+            return -1;
+        }
+        return pairOf[p * requirements.size() + r];
+    }
+
+    private void forEachDay(int[] prefix, int offset, DailyHoursConsumer consumer) {
+        for (int day = 0; day < days.length; day++) {
+            int hours = prefix[offset + day + 1] - prefix[offset + day];
+            if (hours != 0) {
+                consumer.accept(days[day], hours);
+            }
+        }
+    }
+
+    private int rangeOf(int[] prefix, int offset, LocalDate startInclusive, LocalDate endExclusive) {
+        int from = lowerBound((int) startInclusive.toEpochDay());
+        int to = lowerBound((int) endExclusive.toEpochDay());
+        return from < to ? prefix[offset + to] - prefix[offset + from] : 0;
+    }
+
+    private int lowerBound(int epochDay) {
+        int position = Arrays.binarySearch(epochDays, epochDay);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    private void accumulate(int[] prefix) {
+        for (int row = 0; row < prefix.length; row += stride) {
+            for (int day = 1; day < stride; day++) {
+                prefix[row + day] += prefix[row + day - 1];
+            }
+        }
+    }
+
+    private static class Rows {
+        final List<Person> people;
+        final List<Requirement> requirements;
+        int[] person;
+        int[] requirement;
+        int[] day;
+        int[] hours;
+        int size;
+
+        Rows(List<Person> people, List<Requirement> requirements, int size) {
+            this.people = people;
+            this.requirements = requirements;
+            this.person = new int[size];
+            this.requirement = new int[size];
+            this.day = new int[size];
+            this.hours = new int[size];
+            this.size = size;
+        }
+
+        static Rows of(Collection<Allocation> allocations) {
+            Map<Person, Integer> personIndex = new HashMap<>();
+            Map<Requirement, Integer> requirementIndex = new HashMap<>();
+            Rows rows = new Rows(new ArrayList<>(), new ArrayList<>(), allocations.size());
+            int i = 0;
+            for (Allocation allocation : allocations) {
+                rows.person[i] = indexOf(allocation.getPerson(), personIndex, rows.people);
+                rows.requirement[i] = indexOf(allocation.assertion().requirement(), requirementIndex, rows.requirements);
+                rows.day[i] = (int) allocation.getDay().toEpochDay();
+                rows.hours[i] = allocation.getHoursAmount();
+                i++;
+            }
+            return rows;
+        }
+
+        static Rows of(Iterator<Allocation> allocations) {
+            Map<Person, Integer> personIndex = new HashMap<>();
+            Map<Requirement, Integer> requirementIndex = new HashMap<>();
+            Rows rows = new Rows(new ArrayList<>(), new ArrayList<>(), 256);
+            int i = 0;
+            while (allocations.hasNext()) {
+                Allocation allocation = allocations.next();
+                if (i == rows.person.length) {
+                    rows.person = Arrays.copyOf(rows.person, i * 2);
+                    rows.requirement = Arrays.copyOf(rows.requirement, i * 2);
+                    rows.day = Arrays.copyOf(rows.day, i * 2);
+                    rows.hours = Arrays.copyOf(rows.hours, i * 2);
+                }
+                rows.person[i] = indexOf(allocation.getPerson(), personIndex, rows.people);
+                rows.requirement[i] = indexOf(allocation.assertion().requirement(), requirementIndex, rows.requirements);
+                rows.day[i] = (int) allocation.getDay().toEpochDay();
+                rows.hours[i] = allocation.getHoursAmount();
+                i++;
+            }
+            rows.size = i;
+            return rows;
+        }
+
+        /**
+         * The first {@code size} rows, with only the people and requirements they mention.
+         */
+        Rows prefix(int size) {
+            int[] personIndex = new int[people.size()];
+            int[] requirementIndex = new int[requirements.size()];
+            Arrays.fill(personIndex, -1);
+            Arrays.fill(requirementIndex, -1);
+            Rows rows = new Rows(new ArrayList<>(), new ArrayList<>(), size);
+            for (int i = 0; i < size; i++) {
+                rows.person[i] = indexOf(person[i], personIndex, people, rows.people);
+                rows.requirement[i] = indexOf(requirement[i], requirementIndex, requirements, rows.requirements);
+                rows.day[i] = day[i];
+                rows.hours[i] = hours[i];
+            }
+            return rows;
+        }
+
+        /**
+         * The same rows, stably counting-sorted by day.
+         */
+        Rows sortedByDay() {
+            int minDay = Integer.MAX_VALUE;
+            int maxDay = Integer.MIN_VALUE;
+            for (int i = 0; i < size; i++) {
+                minDay = Math.min(minDay, day[i]);
+                maxDay = Math.max(maxDay, day[i]);
+            }
+            int[] start = new int[size == 0 ? 1 : maxDay - minDay + 2];
+            for (int i = 0; i < size; i++) {
+                start[day[i] - minDay + 1]++;
+            }
+            for (int d = 1; d < start.length; d++) {
+                start[d] += start[d - 1];
+            }
+            Rows rows = new Rows(people, requirements, size);
+            for (int i = 0; i < size; i++) {
+                int j = start[day[i] - minDay]++;
+                rows.person[j] = person[i];
+                rows.requirement[j] = requirement[i];
+                rows.day[j] = day[i];
+                rows.hours[j] = hours[i];
+            }
+            return rows;
+        }
+
+        static Rows of(ScheduleFile schedule, int size) {
+            List<Person> people = schedule.people();
+            List<Requirement> requirements = schedule.requirements();
+            int[] personIndex = new int[people.size()];
+            int[] requirementIndex = new int[requirements.size()];
+            Arrays.fill(personIndex, -1);
+            Arrays.fill(requirementIndex, -1);
+            Rows rows = new Rows(new ArrayList<>(), new ArrayList<>(), size);
+            for (int i = 0; i < size; i++) {
+                rows.person[i] = indexOf(schedule.personId(i), personIndex, people, rows.people);
+                rows.requirement[i] = indexOf(schedule.assertionRequirement(schedule.assertionId(i)), requirementIndex, requirements, rows.requirements);
+                rows.day[i] = schedule.epochDay(i);
+                rows.hours[i] = schedule.hours(i);
+            }
+            return rows;
+        }
+
+        private static <E> int indexOf(int id, int[] index, List<E> dictionary, List<E> entities) {
+            if (index[id] < 0) {
+                index[id] = entities.size();
+                entities.add(dictionary.get(id));
+            }
+            return index[id];
+        }
+
+        private static <E> int indexOf(E entity, Map<E, Integer> index, List<E> entities) {
+            Integer position = index.get(entity);
+            if (position == null) {
+                position = entities.size();
+                index.put(entity, position);
+                entities.add(entity);
+            }
+            return position;
+        }
+    }
+
+    @FunctionalInterface
+    public interface DailyHoursConsumer {
+        void accept(LocalDate day, int hours);
+    }
+}
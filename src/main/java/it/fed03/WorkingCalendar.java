@@ -0,0 +1,112 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.util.TimeInterval;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Monday to Friday calendar with an optional set of holidays, indexed by epoch day: every day maps to
+ * the number of working days before it, so counting the working days of an interval or of the
+ * intersection of two intervals is two array lookups.
+ * <p>
+ * The index covers 1990 to 2100; days outside it fall back to a closed-form weekday count.
+ */
+public class WorkingCalendar {
+    private static final int INDEX_START = (int) LocalDate.of(1990, 1, 1).toEpochDay();
+    private static final int INDEX_END = (int) LocalDate.of(2100, 1, 1).toEpochDay();
+    private static final WorkingCalendar STANDARD = new WorkingCalendar(Collections.emptySet());
+
+    private final int[] holidays;
+    // ordinals[k] is the number of working days in [INDEX_START, INDEX_START + k)
+    private final int[] ordinals;
+
+    public WorkingCalendar(Collection<LocalDate> holidays) {
+        this.holidays = holidays.stream().mapToInt(day -> (int) day.toEpochDay()).filter(WorkingCalendar::isWeekday).distinct().sorted().toArray();
+        this.ordinals = new int[INDEX_END - INDEX_START + 1];
+        int holiday = lowerBound(this.holidays, INDEX_START);
+        for (int k = 1; k < ordinals.length; k++) {
+            int day = INDEX_START + k - 1;
+            boolean working = isWeekday(day);
+            if (holiday < this.holidays.length && this.holidays[holiday] == day) {
+                working = false;
+                holiday++;
+            }
+            ordinals[k] = ordinals[k - 1] + (working ? 1 : 0);
+        }
+    }
+
+    /**
+     * The calendar {@code WorkingDays} counts with: weekdays, no holidays.
+     */
+    public static WorkingCalendar standard() {
+        return STANDARD;
+    }
+
+    public boolean isWorkingDay(LocalDate day) {
+        int epochDay = (int) day.toEpochDay();
+        return ordinal(epochDay + 1) > ordinal(epochDay);
+    }
+
+    public int workingDays(LocalDate startInclusive, LocalDate endExclusive) {
+        return workingDays(startInclusive.toEpochDay(), endExclusive.toEpochDay());
+    }
+
+    public int workingDays(long startInclusive, long endExclusive) {
+        return startInclusive < endExclusive ? ordinal((int) endExclusive) - ordinal((int) startInclusive) : 0;
+    }
+
+    public int workingDays(TimeInterval interval) {
+        return workingDays(interval.getStartInclusive(), interval.getEndExclusive());
+    }
+
+    public int workingDays(Assertion assertion) {
+        return workingDays(assertion.releaseTime(), assertion.deadline());
+    }
+
+    /**
+     * Working days shared by [start1, end1) and [start2, end2).
+     */
+    public int intersectionWorkingDays(LocalDate start1, LocalDate end1, LocalDate start2, LocalDate end2) {
+        return workingDays(Math.max(start1.toEpochDay(), start2.toEpochDay()), Math.min(end1.toEpochDay(), end2.toEpochDay()));
+    }
+
+    public int intersectionWorkingDays(TimeInterval first, TimeInterval second) {
+        return intersectionWorkingDays(first.getStartInclusive(), first.getEndExclusive(), second.getStartInclusive(), second.getEndExclusive());
+    }
+
+    /**
+     * The holidays, for {@link ScheduleCache} keys.
+     */
+    String cacheKey() {
+        return Arrays.toString(holidays);
+    }
+
+    /**
+     * Number of working days before {@code epochDay}, counted from an arbitrary but fixed origin.
+     */
+    public int ordinal(int epochDay) {
+        if (epochDay >= INDEX_START && epochDay <= INDEX_END) {
+            return ordinals[epochDay - INDEX_START];
+        }
+        return weekdaysBefore(epochDay) - weekdaysBefore(INDEX_START) - lowerBound(holidays, epochDay) + lowerBound(holidays, INDEX_START);
+    }
+
+    private static boolean isWeekday(int epochDay) {
+        // epoch day -3 is a Monday
+        return Math.floorMod(epochDay + 3, 7) < 5;
+    }
+
+    private static int weekdaysBefore(int epochDay) {
+        int sinceMonday = epochDay + 3;
+        return Math.floorDiv(sinceMonday, 7) * 5 + Math.min(Math.floorMod(sinceMonday, 7), 5);
+    }
+
+    private static int lowerBound(int[] values, int key) {
+        int position = Arrays.binarySearch(values, key);
+        return position >= 0 ? position : -position - 1;
+    }
+}
@@ -0,0 +1,45 @@
+package it.fed03;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.function.Function;
+
+/**
+ * Emits every {@link Metrics} timer as an {@code it.fed03.Phase} JFR event named after the timer, so a
+ * recording shows the solve, aggregation and rendering phases next to GC and allocation events.
+ * <p>
+ * Compiled for Java 11 from {@code src/main/jfr} by the {@code jfr} Maven profile, active on JDK 11+
+ * builds, and loaded by {@link Metrics} only when the runtime has {@code jdk.jfr.Event}.
+ */
+class FlightRecorderPhases implements Function<String, Metrics.Span> {
+    @Override
+    public Metrics.Span apply(String name) {
+        PhaseEvent event = new PhaseEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.phase = name;
+        event.begin();
+        return () -> {
+            event.end();
+            if (event.shouldCommit()) {
+                event.commit();
+            }
+        };
+    }
+
+    @Name("it.fed03.Phase")
+    @Label("Phase")
+    @Category("Sperimentazione")
+    @Description("A phase timed by Metrics")
+    @StackTrace(false)
+    static class PhaseEvent extends Event {
+        @Label("Name")
+        String phase;
+    }
+}
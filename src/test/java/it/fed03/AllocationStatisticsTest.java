@@ -0,0 +1,75 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Requirement;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class AllocationStatisticsTest {
+    private final Set<Requirement> requirements = Schedules.requirements(11, 5, 25);
+    private final List<Allocation> schedule = Schedules.random(requirements, 11, 30);
+
+    @Test
+    public void dayOrderedStatisticsMatchUnordered() {
+        List<Allocation> sorted = new ArrayList<>(schedule);
+        sorted.sort(Comparator.comparing(Allocation::getDay));
+        assertEquals(print(AllocationStatistics.of(schedule)),
+                print(AllocationStatistics.ofDayOrdered(sorted.iterator(), CapacityCalendar.standard())));
+    }
+
+    @Test
+    public void parallelStatisticsMatchSequential() {
+        Set<Requirement> many = Schedules.requirements(12, 40, 120);
+        List<Allocation> large = Schedules.random(many, 12, 30);
+        assertEquals(print(AllocationStatistics.of(large.iterator(), CapacityCalendar.standard(), false, false)),
+                print(AllocationStatistics.of(large)));
+        assertEquals(40, AllocationStatistics.of(large).people().size());
+    }
+
+    @Test
+    public void countsEveryDayBetweenFirstAndLastAllocation() {
+        AllocationStatistics statistics = AllocationStatistics.of(schedule);
+        CapacityCalendar capacities = CapacityCalendar.standard();
+        int days = 0;
+        for (AllocationStatistics.PersonStatistics person : statistics.people().values()) {
+            long first = Long.MAX_VALUE;
+            long last = Long.MIN_VALUE;
+            Map<Long, Integer> daily = new HashMap<>();
+            int hours = 0;
+            for (Allocation allocation : schedule) {
+                if (allocation.getPerson() == person.person()) {
+                    first = Math.min(first, allocation.getDay().toEpochDay());
+                    last = Math.max(last, allocation.getDay().toEpochDay());
+                    daily.merge(allocation.getDay().toEpochDay(), allocation.getHoursAmount(), Integer::sum);
+                    hours += allocation.getHoursAmount();
+                }
+            }
+            int counted = 0;
+            for (long day = first; day <= last; day++) {
+                counted += daily.containsKey(day) || capacities.capacity(person.person(), day, day + 1) > 0 ? 1 : 0;
+            }
+            assertEquals(hours, person.hours());
+            assertEquals(daily.size(), person.workedDays());
+            assertEquals(counted, Arrays.stream(person.histogram()).sum());
+            days += counted;
+        }
+        assertEquals(days, Arrays.stream(statistics.histogram()).sum());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAllocationsOutOfDayOrder() {
+        AllocationStatistics.ofDayOrdered(schedule.iterator(), CapacityCalendar.standard());
+    }
+
+    private static String print(AllocationStatistics statistics) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AllocationStatistics.print(statistics, new PrintStream(out, true));
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,75 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.model.Requirement;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class AssertionSplitterTest {
+
+    @Test
+    public void levelsTheHoursLeft() {
+        Random random = new Random(17);
+        for (int i = 0; i < 5000; i++) {
+            int[] absorbable = new int[1 + random.nextInt(4)];
+            int total = 0;
+            for (int j = 0; j < absorbable.length; j++) {
+                absorbable[j] = random.nextInt(12);
+                total += absorbable[j];
+            }
+            int demand = random.nextInt(total + 3);
+            int[] shares = AssertionSplitter.level(absorbable, demand);
+            if (demand > total) {
+                assertNull(shares);
+                continue;
+            }
+            assertNotNull(shares);
+            int sum = 0;
+            int left = 0;
+            for (int j = 0; j < shares.length; j++) {
+                assertTrue(shares[j] >= 0 && shares[j] <= absorbable[j]);
+                sum += shares[j];
+                left = Math.max(left, absorbable[j] - shares[j]);
+            }
+            assertEquals(demand, sum);
+            assertEquals(Arrays.toString(absorbable) + " " + demand, minMaxLeft(absorbable, demand, 0), left);
+        }
+    }
+
+    @Test
+    public void splitsEveryRequirementWhenFeasible() {
+        Set<Requirement> requirements = Schedules.requirements(21, 6, 30);
+        AssertionSplitter splitter = AssertionSplitter.split(requirements, Collections.emptySet());
+        assertEquals(requirements.size(), splitter.requirements().size());
+        assertEquals(FeasibilityCheck.of(requirements).isFeasible(), splitter.isFeasible());
+        for (Requirement requirement : requirements) {
+            int hours = 0;
+            for (Assertion assertion : requirement.assertions()) {
+                assertTrue(requirement.assignedPeople().contains(assertion.assignedPerson()));
+                assertTrue(assertion.computationTime() > 0);
+                hours += assertion.computationTime();
+            }
+            assertEquals(requirement.computationTime(), hours + splitter.unplacedHours(requirement));
+        }
+    }
+
+    /**
+     * The smallest possible maximum of the hours left, by brute force.
+     */
+    private static int minMaxLeft(int[] absorbable, int demand, int from) {
+        if (from == absorbable.length) {
+            return demand == 0 ? 0 : Integer.MAX_VALUE;
+        }
+        int best = Integer.MAX_VALUE;
+        for (int share = 0; share <= Math.min(demand, absorbable[from]); share++) {
+            int rest = minMaxLeft(absorbable, demand - share, from + 1);
+            if (rest != Integer.MAX_VALUE) {
+                best = Math.min(best, Math.max(rest, absorbable[from] - share));
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,130 @@
+package it.fed03;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class BatchRunnerTest {
+    private static final String SCENARIO = "requirement,R1,40,2017-02-06,2017-03-06,alice;bob\n"
+            + "assertion,R1,24,2017-02-06,2017-02-20,alice\n"
+            + "assertion,R1,16,2017-02-06,2017-03-06,bob\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void skipsMalformedManifestLines() throws Exception {
+        Path manifest = write("manifest.tsv", "a.csv\t10\t1000\tDONE\t5\t2017-01-01T00:00:00Z\n"
+                + "b.csv\tten\t1000\tDONE\t5\t2017-01-01T00:00:00Z\n"
+                + "\n"
+                + "c.csv\t30\t3000\tTIMEOUT\t7\t2017-01-01T00:00:00Z\n"
+                + "d.csv\t40\t40");
+        Map<String, BatchRunner.Entry> entries = BatchRunner.readManifest(manifest);
+        assertEquals(Arrays.asList("a.csv", "c.csv"), new ArrayList<>(entries.keySet()));
+        assertEquals(30, entries.get("c.csv").size);
+        assertEquals("TIMEOUT", entries.get("c.csv").status);
+    }
+
+    @Test
+    public void truncatesAPartialLastLine() throws Exception {
+        StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            longLine.append("xy");
+        }
+        assertEquals("a\nb\n", truncate("a\nb\npartial"));
+        assertEquals("a\nb\n", truncate("a\nb\n"));
+        assertEquals("", truncate("partial"));
+        assertEquals("", truncate(""));
+        assertEquals("a\n", truncate("a\n" + longLine));
+        assertEquals(longLine + "\n", truncate(longLine + "\n" + longLine));
+    }
+
+    @Test
+    public void resumesAfterACrash() throws Exception {
+        Path scenarios = folder.newFolder("scenarios").toPath();
+        Path output = folder.newFolder("output").toPath();
+        Path done = Files.write(scenarios.resolve("a.csv"), SCENARIO.getBytes(StandardCharsets.UTF_8));
+        Files.write(scenarios.resolve("b.csv"), SCENARIO.getBytes(StandardCharsets.UTF_8));
+        String entry = "a.csv\t" + Files.size(done) + "\t" + Files.getLastModifiedTime(done).toMillis() + "\tDONE\t5\t2017-01-01T00:00:00Z\n";
+        Files.write(output.resolve(BatchRunner.MANIFEST), (entry + "b.csv\t" + Files.size(done)).getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(0, new BatchRunner(scenarios, output, 1, "256m", 5, "edf,fed", false).run());
+
+        List<String> lines = Files.readAllLines(output.resolve(BatchRunner.MANIFEST), StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertEquals(entry.trim(), lines.get(0));
+        assertTrue(lines.get(1), lines.get(1).startsWith("b.csv\t") && lines.get(1).contains("\tDONE\t"));
+        assertFalse(Files.exists(output.resolve("a.csv.result.json")));
+        String result = new String(Files.readAllBytes(output.resolve("b.csv.result.json")), StandardCharsets.UTF_8);
+        assertTrue(result, result.contains("\"edf\"") && result.contains("\"fed\"") && result.contains("\"feasible\" : true"));
+        assertEquals(2, BatchRunner.readManifest(output.resolve(BatchRunner.MANIFEST)).size());
+    }
+
+    @Test
+    public void killsRunningChildrenWhenInterrupted() throws Exception {
+        Path scenarios = folder.newFolder("scenarios").toPath();
+        Path output = folder.newFolder("output").toPath();
+        Files.write(scenarios.resolve("a.csv"), SCENARIO.getBytes(StandardCharsets.UTF_8));
+        Files.write(scenarios.resolve("b.csv"), SCENARIO.getBytes(StandardCharsets.UTF_8));
+        BatchRunner runner = new BatchRunner(scenarios, output, 2, "64m", 5, "edf", false) {
+            @Override
+            List<String> command(Path scenario) {
+                String javaBinary = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+                return Arrays.asList(javaBinary, "-cp", System.getProperty("java.class.path"), Sleeper.class.getName());
+            }
+        };
+        Thread sweep = new Thread(() -> {
+            try {
+                runner.run();
+            } catch (Exception expected) {
+            }
+        });
+        sweep.start();
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (runner.children().size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        List<Process> children = new ArrayList<>(runner.children());
+        assertEquals(2, children.size());
+
+        sweep.interrupt();
+        sweep.join(30_000);
+        assertFalse(sweep.isAlive());
+        for (Process child : children) {
+            assertTrue(child.waitFor(10, TimeUnit.SECONDS));
+        }
+        assertTrue(runner.children().isEmpty());
+    }
+
+    /**
+     * A scenario JVM that never finishes on its own.
+     */
+    public static class Sleeper {
+        public static void main(String[] args) throws InterruptedException {
+            Thread.sleep(600_000);
+        }
+    }
+
+    private String truncate(String content) throws Exception {
+        Path manifest = write("truncate.tsv", content);
+        try (FileChannel channel = FileChannel.open(manifest, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            BatchRunner.truncatePartialLine(channel);
+        }
+        return new String(Files.readAllBytes(manifest), StandardCharsets.UTF_8);
+    }
+
+    private Path write(String name, String content) throws Exception {
+        return Files.write(folder.getRoot().toPath().resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,79 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Person;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CapacityCalendarTest {
+    private static final LocalDate ORIGIN = LocalDate.of(2017, 1, 1);
+
+    private final Person alice = new Researcher("alice");
+    private final Person bob = new Researcher("bob");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void rangeCapacitiesMatchDailySums() {
+        CapacityCalendar capacities = CapacityCalendar.builder(8, WorkingCalendar.standard())
+                .capacity(alice, LocalDate.of(2017, 2, 1), LocalDate.of(2017, 6, 1), 4)
+                .leave(alice, LocalDate.of(2017, 3, 13), LocalDate.of(2017, 3, 25))
+                .capacity(alice, LocalDate.of(2017, 9, 1), LocalDate.of(2017, 9, 15), 6)
+                .build();
+        Random random = new Random(13);
+        for (int i = 0; i < 2000; i++) {
+            LocalDate start = ORIGIN.plusDays(random.nextInt(400));
+            LocalDate end = start.plusDays(random.nextInt(120));
+            for (Person person : new Person[]{alice, bob}) {
+                int daily = 0;
+                for (LocalDate day = start; day.isBefore(end); day = day.plusDays(1)) {
+                    daily += capacities.capacity(person, day);
+                }
+                assertEquals(daily, capacities.capacity(person, start, end));
+            }
+        }
+        assertTrue(capacities.isUniform(bob));
+        assertFalse(capacities.isUniform(alice));
+    }
+
+    @Test
+    public void laterRangesWinWhereTheyOverlap() {
+        CapacityCalendar capacities = CapacityCalendar.builder(8, WorkingCalendar.standard())
+                .capacity(alice, LocalDate.of(2017, 2, 6), LocalDate.of(2017, 2, 20), 4)
+                .leave(alice, LocalDate.of(2017, 2, 13), LocalDate.of(2017, 2, 27))
+                .build();
+        assertEquals(4, capacities.capacity(alice, LocalDate.of(2017, 2, 8)));
+        assertEquals(0, capacities.capacity(alice, LocalDate.of(2017, 2, 15)));
+        assertEquals(0, capacities.capacity(alice, LocalDate.of(2017, 2, 11)));
+        assertEquals(8, capacities.capacity(alice, LocalDate.of(2017, 2, 27)));
+        // a week at 4 hours, two on leave, one at the default
+        assertEquals(5 * 4 + 5 * 8, capacities.capacity(alice, LocalDate.of(2017, 2, 6), LocalDate.of(2017, 3, 6)));
+    }
+
+    @Test
+    public void loadsOverridesFromCsv() throws Exception {
+        Path file = write("# person,start,endExclusive,hours\n\nalice,2017-02-06,2017-02-13,4\n");
+        CapacityCalendar capacities = CapacityCalendar.load(file);
+        assertEquals(5 * 4, capacities.capacity(alice, LocalDate.of(2017, 2, 6), LocalDate.of(2017, 2, 13)));
+        assertEquals(5 * Algorithm.DAILY_CAPACITY, capacities.capacity(bob, LocalDate.of(2017, 2, 6), LocalDate.of(2017, 2, 13)));
+        try {
+            CapacityCalendar.load(write("alice,2017-02-06,2017-02-13,4\nbob,2017-02-06,4\n"));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Malformed capacity line 2: expected 4 fields, found 3", e.getMessage());
+        }
+    }
+
+    private Path write(String content) throws Exception {
+        return Files.write(folder.getRoot().toPath().resolve("capacities.csv"), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
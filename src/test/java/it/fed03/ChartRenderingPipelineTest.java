@@ -0,0 +1,82 @@
+package it.fed03;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.data.xy.XYSeriesCollection;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class ChartRenderingPipelineTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesEveryChart() throws Exception {
+        Path target = folder.getRoot().toPath().resolve("charts");
+        try (ChartRenderingPipeline pipeline = new ChartRenderingPipeline(2)) {
+            for (int i = 0; i < 10; i++) {
+                String title = "Chart " + i + " (EDF)";
+                pipeline.submit(() -> chart(title), target, 320, 240);
+            }
+        }
+        for (int i = 0; i < 10; i++) {
+            assertTrue(Files.size(target.resolve("chart_" + i + ".jpg")) > 0);
+        }
+    }
+
+    @Test
+    public void reportsFailuresOnClose() {
+        Path target = folder.getRoot().toPath();
+        ChartRenderingPipeline pipeline = new ChartRenderingPipeline(1);
+        // one worker and a queue of two: the caller renders some of the charts itself
+        for (int i = 0; i < 8; i++) {
+            int chart = i;
+            pipeline.submit(() -> {
+                if (chart % 2 == 0) {
+                    throw new IllegalArgumentException("chart " + chart);
+                }
+                return chart("Chart " + chart + " (EDF)");
+            }, target, 320, 240);
+        }
+        try {
+            pipeline.close();
+            fail("failures not reported");
+        } catch (IllegalStateException e) {
+            assertEquals("4 of 8 charts failed", e.getMessage());
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+            assertEquals(3, e.getSuppressed().length);
+        }
+        assertTrue(Files.exists(target.resolve("chart_1.jpg")));
+    }
+
+    @Test
+    public void restoresTheInterruptFlag() {
+        ChartRenderingPipeline pipeline = new ChartRenderingPipeline(1);
+        pipeline.submit(() -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return chart("Slow chart (EDF)");
+        }, folder.getRoot().toPath(), 320, 240);
+        Thread.currentThread().interrupt();
+        try {
+            pipeline.close();
+            fail("interruption not reported");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getCause() instanceof InterruptedException);
+            assertTrue(Thread.interrupted());
+        }
+    }
+
+    private static JFreeChart chart(String title) {
+        return ChartFactory.createXYLineChart(title, "x", "y", new XYSeriesCollection());
+    }
+}
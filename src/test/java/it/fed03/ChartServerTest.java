@@ -0,0 +1,81 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Person;
+import it.unifi.cassandra.scheduling.model.Requirement;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ChartServerTest {
+    private final Set<Requirement> requirements = Schedules.requirements(9, 3, 8);
+    private final List<Allocation> schedule = Schedules.random(requirements, 9, 20);
+    private ChartServer server;
+
+    @Before
+    public void start() throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        server = ChartServer.start(0);
+        server.show(requirements, schedule, "edf");
+    }
+
+    @After
+    public void stop() {
+        server.close();
+    }
+
+    @Test
+    public void servesTheIndexAndCharts() throws Exception {
+        HttpURLConnection index = get("/");
+        assertEquals(200, index.getResponseCode());
+        assertTrue(index.getContentType().startsWith("text/html"));
+
+        HttpURLConnection total = get("/total.jpg");
+        assertEquals(200, total.getResponseCode());
+        assertEquals("image/jpeg", total.getContentType());
+        assertTrue(read(total).length > 0);
+
+        Person person = schedule.get(0).getPerson();
+        assertEquals(200, get("/person/" + URLEncoder.encode(person.getIdentifier(), "UTF-8") + ".jpg").getResponseCode());
+        assertEquals(404, get("/person/nobody.jpg").getResponseCode());
+        assertEquals(404, get("/elsewhere").getResponseCode());
+    }
+
+    @Test
+    public void clearsTheCacheOnShow() throws Exception {
+        assertEquals(0, server.cachedBytes());
+        read(get("/total.jpg"));
+        long cached = server.cachedBytes();
+        assertTrue(cached > 0);
+        read(get("/total.jpg"));
+        assertEquals(cached, server.cachedBytes());
+
+        server.show(requirements, schedule.subList(0, schedule.size() / 2), "edf");
+        assertEquals(0, server.cachedBytes());
+    }
+
+    private HttpURLConnection get(String path) throws Exception {
+        return (HttpURLConnection) new URL("http://localhost:" + server.port() + path).openConnection();
+    }
+
+    private static byte[] read(HttpURLConnection connection) throws Exception {
+        try (InputStream in = connection.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read; (read = in.read(buffer)) > 0; ) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package it.fed03;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CliTest {
+    private static final String SCENARIO = "requirement,R1,40,2017-02-06,2017-03-06,alice;bob\n"
+            + "assertion,R1,24,2017-02-06,2017-02-20,alice\n"
+            + "assertion,R1,16,2017-02-06,2017-03-06,bob\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void statsLoadNoChartClasses() throws Exception {
+        Path scenario = Files.write(folder.getRoot().toPath().resolve("scenario.csv"), SCENARIO.getBytes(StandardCharsets.UTF_8));
+        String output = run("stats", "-scenario", scenario.toString(), "-allocations");
+        assertTrue(output, output.contains("Feasible: true"));
+        assertTrue(output, output.contains("alice: 24 hours"));
+        assertTrue(output, output.contains(" " + Cli.class.getName() + " "));
+        for (String line : output.split("\n")) {
+            assertFalse(line, line.contains(" org.jfree.") || line.contains(" java.awt.") || line.contains(" sun.awt."));
+        }
+    }
+
+    @Test
+    public void splitsAndSolvesAScenario() throws Exception {
+        Path scenario = Files.write(folder.getRoot().toPath().resolve("scenario.csv"), SCENARIO.getBytes(StandardCharsets.UTF_8));
+        Path schedule = folder.getRoot().toPath().resolve("schedule.bin");
+        String output = run("solve", "-scenario", scenario.toString(), "-split", "-algorithm", "edf", schedule.toString());
+        assertTrue(output, output.contains("Unplaced hours: 0"));
+        assertTrue(output, output.contains("Unallocated hours: 0"));
+        ScheduleFile written = ScheduleFile.open(schedule);
+        int hours = 0;
+        for (int row = 0; row < written.size(); row++) {
+            hours += written.hours(row);
+        }
+        assertEquals(40, hours);
+    }
+
+    private String run(String... args) throws Exception {
+        List<String> command = new ArrayList<>(Arrays.asList(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-verbose:class", "-cp", System.getProperty("java.class.path"), Cli.class.getName()));
+        command.addAll(Arrays.asList(args));
+        File log = folder.newFile();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+        assertTrue(process.waitFor(2, TimeUnit.MINUTES));
+        String output = new String(Files.readAllBytes(log.toPath()), StandardCharsets.UTF_8);
+        assertEquals(output, 0, process.exitValue());
+        return output;
+    }
+}
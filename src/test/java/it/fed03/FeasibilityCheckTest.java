@@ -0,0 +1,127 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.model.Person;
+import it.unifi.cassandra.scheduling.model.Requirement;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class FeasibilityCheckTest {
+    @Test
+    public void overloadsMatchEveryInterval() {
+        for (long seed = 0; seed < 40; seed++) {
+            Set<Requirement> requirements = Schedules.requirements(seed, 4, 16);
+            for (CapacityCalendar capacities : calendars(seed, requirements)) {
+                FeasibilityCheck check = FeasibilityCheck.of(requirements, capacities);
+                Map<Person, List<Assertion>> assertions = byPerson(requirements);
+                assertions.forEach((person, personAssertions) -> {
+                    int worst = worstSlack(person, personAssertions, capacities);
+                    FeasibilityCheck.Overload overload = check.overloads().get(person);
+                    assertEquals(worst >= 0, check.isFeasible(person));
+                    if (worst < 0) {
+                        assertEquals(worst, overload.capacity() - overload.demand());
+                        assertEquals(capacities.capacity(person, overload.start(), overload.endExclusive()), overload.capacity());
+                        assertEquals(demand(personAssertions, overload.start(), overload.endExclusive()), overload.demand());
+                    } else {
+                        assertNull(overload);
+                    }
+                });
+                assertEquals(check.overloads().isEmpty(), check.isFeasible());
+            }
+        }
+    }
+
+    @Test
+    public void absorbableHoursMatchEveryHoldingInterval() {
+        for (long seed = 0; seed < 40; seed++) {
+            Random random = new Random(seed);
+            Set<Requirement> requirements = Schedules.requirements(seed, 4, 10);
+            for (CapacityCalendar capacities : calendars(seed, requirements)) {
+                FeasibilityCheck check = FeasibilityCheck.of(requirements, capacities);
+                byPerson(requirements).forEach((person, personAssertions) -> {
+                    LocalDate first = personAssertions.stream().map(Assertion::releaseTime).min(LocalDate::compareTo).get();
+                    for (int query = 0; query < 25; query++) {
+                        LocalDate start = first.plusDays(random.nextInt(200) - 20);
+                        LocalDate end = start.plusDays(1 + random.nextInt(120));
+                        int expected = worstSlack(person, personAssertions, capacities) < 0 ? 0 : absorbable(person, personAssertions, capacities, start, end);
+                        assertEquals(person.getIdentifier() + " [" + start + ";" + end + ")", expected, check.absorbableHours(person, start, end));
+                    }
+                });
+            }
+        }
+    }
+
+    @Test
+    public void withAddsAssertionsToTheirOwners() {
+        Set<Requirement> requirements = Schedules.requirements(3, 4, 12);
+        List<Assertion> all = byPerson(requirements).values().stream().flatMap(List::stream).collect(Collectors.toList());
+        FeasibilityCheck empty = FeasibilityCheck.of(Collections.emptySet());
+        FeasibilityCheck added = empty.with(all.subList(0, all.size() / 2)).with(all.subList(all.size() / 2, all.size()));
+        FeasibilityCheck direct = FeasibilityCheck.of(requirements);
+        assertEquals(direct.isFeasible(), added.isFeasible());
+        assertEquals(direct.overloads().toString(), added.overloads().toString());
+        for (Assertion assertion : all) {
+            Person person = assertion.assignedPerson();
+            assertEquals(direct.absorbableHours(person, assertion.releaseTime(), assertion.deadline()),
+                    added.absorbableHours(person, assertion.releaseTime(), assertion.deadline()));
+        }
+    }
+
+    private static List<CapacityCalendar> calendars(long seed, Set<Requirement> requirements) {
+        Random random = new Random(seed);
+        CapacityCalendar.Builder builder = CapacityCalendar.builder(Algorithm.DAILY_CAPACITY, WorkingCalendar.standard());
+        for (Person person : byPerson(requirements).keySet()) {
+            LocalDate start = LocalDate.of(2017, 1, 1).plusDays(random.nextInt(300));
+            builder.leave(person, start, start.plusDays(random.nextInt(40)));
+            builder.capacity(person, start.plusDays(60), start.plusDays(60 + random.nextInt(90)), random.nextInt(8));
+        }
+        return Arrays.asList(CapacityCalendar.standard(), CapacityCalendar.uniform(2, WorkingCalendar.standard()), builder.build());
+    }
+
+    private static Map<Person, List<Assertion>> byPerson(Set<Requirement> requirements) {
+        return requirements.stream().flatMap(requirement -> requirement.assertions().stream())
+                .collect(Collectors.groupingBy(Assertion::assignedPerson, LinkedHashMap::new, Collectors.toList()));
+    }
+
+    private static int worstSlack(Person person, List<Assertion> assertions, CapacityCalendar capacities) {
+        int worst = 0;
+        for (Assertion release : assertions) {
+            for (Assertion deadline : assertions) {
+                worst = Math.min(worst, capacities.capacity(person, release.releaseTime(), deadline.deadline()) - demand(assertions, release.releaseTime(), deadline.deadline()));
+            }
+        }
+        return worst;
+    }
+
+    private static int absorbable(Person person, List<Assertion> assertions, CapacityCalendar capacities, LocalDate start, LocalDate end) {
+        Set<LocalDate> starts = new HashSet<>(Collections.singleton(start));
+        Set<LocalDate> ends = new HashSet<>(Collections.singleton(end));
+        for (Assertion assertion : assertions) {
+            if (!assertion.releaseTime().isAfter(start)) {
+                starts.add(assertion.releaseTime());
+            }
+            if (!assertion.deadline().isBefore(end)) {
+                ends.add(assertion.deadline());
+            }
+        }
+        int absorbable = Integer.MAX_VALUE;
+        for (LocalDate from : starts) {
+            for (LocalDate to : ends) {
+                absorbable = Math.min(absorbable, capacities.capacity(person, from, to) - demand(assertions, from, to));
+            }
+        }
+        return Math.max(0, absorbable);
+    }
+
+    private static int demand(List<Assertion> assertions, LocalDate start, LocalDate end) {
+        return assertions.stream()
+                .filter(assertion -> !assertion.releaseTime().isBefore(start) && !assertion.deadline().isAfter(end))
+                .mapToInt(Assertion::computationTime)
+                .sum();
+    }
+}
@@ -0,0 +1,111 @@
+package it.fed03;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void reset() {
+        Metrics.reset();
+    }
+
+    @Test
+    @SuppressWarnings("try")
+    public void timersAccumulateCountTotalAndMax() throws Exception {
+        for (long millis : new long[]{5, 30, 10}) {
+            try (Metrics.Span span = Metrics.time("test.timer")) {
+                Thread.sleep(millis);
+            }
+        }
+        Map<String, Object> timer = map(map(summary().get("timers")).get("test.timer"));
+        assertEquals(new HashSet<>(Arrays.asList("count", "totalMillis", "maxMillis", "allocatedBytes")), timer.keySet());
+        assertEquals(3L, timer.get("count"));
+        double total = (Double) timer.get("totalMillis");
+        double max = (Double) timer.get("maxMillis");
+        assertTrue(String.valueOf(total), total >= 45);
+        assertTrue(String.valueOf(max), max >= 30 && max < total);
+    }
+
+    @Test
+    public void countersAddUp() throws Exception {
+        Metrics.increment("test.counter");
+        Metrics.increment("test.counter", 4);
+        Metrics.increment("test.other", 2);
+        Map<String, Object> counters = map(summary().get("counters"));
+        assertEquals(5L, counters.get("test.counter"));
+        assertEquals(2L, counters.get("test.other"));
+    }
+
+    @Test
+    @SuppressWarnings("try")
+    public void resetDropsTimersAndCounters() throws Exception {
+        try (Metrics.Span span = Metrics.time("test.timer")) {
+            Metrics.increment("test.counter");
+        }
+        Metrics.reset();
+        Map<String, Object> summary = summary();
+        assertFalse(map(summary.get("timers")).containsKey("test.timer"));
+        assertFalse(map(summary.get("counters")).containsKey("test.counter"));
+    }
+
+    @Test
+    public void summaryHasTheRunAndEveryRegistry() throws Exception {
+        Map<String, Object> summary = summary();
+        assertEquals(Arrays.asList("started", "wallMillis", "timers", "counters"), new ArrayList<>(summary.keySet()));
+        assertTrue(summary.get("started") instanceof String);
+        assertTrue((Long) summary.get("wallMillis") >= 0);
+    }
+
+    private Map<String, Object> summary() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("metrics/summary.json");
+        Metrics.writeSummary(file);
+        try (JsonParser parser = new JsonFactory().createParser(file.toFile())) {
+            assertEquals(JsonToken.START_OBJECT, parser.nextToken());
+            return map(read(parser));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> map(Object value) {
+        assertTrue(String.valueOf(value), value instanceof Map);
+        return (Map<String, Object>) value;
+    }
+
+    /**
+     * The value at the current token, objects as insertion-ordered maps and integers as longs.
+     */
+    private static Object read(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case START_OBJECT:
+                Map<String, Object> object = new LinkedHashMap<>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    parser.nextToken();
+                    object.put(name, read(parser));
+                }
+                return object;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                return parser.getLongValue();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            default:
+                throw new IOException("Unexpected " + parser.currentToken());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Requirement;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class OnlineSchedulerTest {
+    private static final String LOG = "# day,event,...\n"
+            + "2017-02-06,requirement,R1,40,2017-02-06,2017-03-06,alice;bob\n"
+            + "2017-02-06,assertion,R1,24,2017-02-06,2017-02-20,alice\n"
+            + "2017-02-06,assertion,R1,16,2017-02-06,2017-03-06,bob\n"
+            + "\n"
+            + "2017-02-13,requirement,R2,8,2017-02-13,2017-02-27,carol\n"
+            + "2017-02-13,assertion,R2,8,2017-02-13,2017-02-27,carol\n"
+            + "2017-02-15,change,R1,bob,24,2017-02-06,2017-03-06\n"
+            + "2017-02-16,cancel,R2\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replaysAnEventLog() throws Exception {
+        OnlineScheduler scheduler = OnlineScheduler.replay(write(LOG), Algorithm.EDF, 3);
+        assertEquals(7, scheduler.events());
+        assertEquals(LocalDate.of(2017, 2, 16), scheduler.now());
+        assertEquals(Collections.singletonList("R1"), names(scheduler.requirements()));
+        assertEquals(48, scheduler.requirements().iterator().next().computationTime());
+
+        // nothing is committed past the frozen window of the last event
+        for (Allocation allocation : scheduler.committed()) {
+            assertTrue(allocation.getDay().isBefore(LocalDate.of(2017, 2, 19)));
+        }
+        Map<String, Integer> hours = new HashMap<>();
+        for (Allocation allocation : scheduler.schedule()) {
+            hours.merge(allocation.assertion().requirement().name() + "/" + allocation.getPerson().getIdentifier(), allocation.getHoursAmount(), Integer::sum);
+        }
+        assertEquals(Integer.valueOf(24), hours.get("R1/alice"));
+        assertEquals(Integer.valueOf(24), hours.get("R1/bob"));
+        assertTrue(hours.getOrDefault("R2/carol", 0) <= 8);
+    }
+
+    @Test
+    public void reportsTheLineOfAMalformedEvent() throws Exception {
+        try {
+            OnlineScheduler.replay(write(LOG + "2017-02-17,change,R9,alice,8,2017-02-17,2017-02-24\n"), Algorithm.EDF);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Malformed event line 10: "));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEventsOutOfDayOrder() {
+        OnlineScheduler scheduler = new OnlineScheduler(Algorithm.EDF);
+        scheduler.apply("2017-02-06,requirement,R1,8,2017-02-06,2017-03-06,alice".split(","));
+        scheduler.apply("2017-02-05,cancel,R1".split(","));
+    }
+
+    private static List<String> names(Set<Requirement> requirements) {
+        List<String> names = new ArrayList<>();
+        requirements.forEach(requirement -> names.add(requirement.name()));
+        return names;
+    }
+
+    private Path write(String content) throws Exception {
+        return Files.write(folder.getRoot().toPath().resolve("events.csv"), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
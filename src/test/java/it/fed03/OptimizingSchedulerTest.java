@@ -0,0 +1,109 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.*;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class OptimizingSchedulerTest {
+    private static final LocalDate MONDAY = LocalDate.of(2017, 2, 6);
+
+    @Test
+    public void allocatesEveryAssertionInsideItsWindow() {
+        Set<Requirement> requirements = Schedules.requirements(3, 3, 8);
+        Collection<Allocation> schedule = new OptimizingScheduler(OptimizingScheduler.Objective.FRAGMENTATION, 2_000, 1).generateSchedule(requirements);
+        // people with more demand than capacity keep EDF's late hours
+        FeasibilityCheck check = FeasibilityCheck.of(requirements, CapacityCalendar.standard());
+        assertTrue(requirements.stream().flatMap(requirement -> requirement.assignedPeople().stream()).anyMatch(check::isFeasible));
+
+        Map<Assertion, Integer> hours = new IdentityHashMap<>();
+        for (Allocation allocation : schedule) {
+            Assertion assertion = allocation.assertion();
+            if (!check.isFeasible(allocation.getPerson())) {
+                continue;
+            }
+            assertFalse(allocation.getDay().isBefore(assertion.releaseTime()));
+            assertTrue(allocation.getDay().isBefore(assertion.deadline()));
+            hours.merge(assertion, allocation.getHoursAmount(), Integer::sum);
+        }
+        requirements.forEach(requirement -> requirement.assertions().forEach(assertion -> {
+            if (check.isFeasible(assertion.assignedPerson())) {
+                assertEquals(assertion.computationTime(), (int) hours.getOrDefault(assertion, 0));
+            }
+        }));
+    }
+
+    @Test
+    public void neverExceedsTheDailyCapacity() {
+        Person person = new Researcher("alice");
+        Set<Requirement> requirements = instance(person);
+        CapacityCalendar capacities = CapacityCalendar.standard();
+        for (OptimizingScheduler.Objective objective : OptimizingScheduler.Objective.values()) {
+            Map<LocalDate, Integer> loads = new HashMap<>();
+            new OptimizingScheduler(objective, 2_000, 1).generateSchedule(requirements)
+                    .forEach(allocation -> loads.merge(allocation.getDay(), allocation.getHoursAmount(), Integer::sum));
+            loads.forEach((day, load) -> assertTrue(objective + " " + day, load <= capacities.capacity(person, day)));
+        }
+    }
+
+    @Test
+    public void cpPlansWithTheGivenCapacities() {
+        Person person = new Researcher("alice");
+        Set<Requirement> requirements = instance(person);
+        CapacityCalendar capacities = CapacityCalendar.builder(Algorithm.DAILY_CAPACITY, WorkingCalendar.standard())
+                .capacity(person, MONDAY.plusDays(7), MONDAY.plusDays(9), 2)
+                .build();
+        Map<LocalDate, Integer> loads = new HashMap<>();
+        Algorithm.CP.generateSchedule(requirements, capacities)
+                .forEach(allocation -> loads.merge(allocation.getDay(), allocation.getHoursAmount(), Integer::sum));
+        assertEquals(80, loads.values().stream().mapToInt(Integer::intValue).sum());
+        loads.forEach((day, load) -> assertTrue(day.toString(), load <= capacities.capacity(person, day)));
+    }
+
+    @Test
+    public void fragmentsNoMoreThanEdf() {
+        Set<Requirement> requirements = instance(new Researcher("alice"));
+        Collection<Allocation> edf = Algorithm.EDF.generateSchedule(requirements);
+        Collection<Allocation> optimized = new OptimizingScheduler(OptimizingScheduler.Objective.FRAGMENTATION, 2_000, 1).generateSchedule(requirements);
+        assertTrue(fragments(optimized) <= fragments(edf));
+    }
+
+    /**
+     * Three overlapping assertions of one person over three weeks.
+     */
+    private static Set<Requirement> instance(Person person) {
+        return new LinkedHashSet<>(Arrays.asList(
+                requirement("long", 40, MONDAY, MONDAY.plusDays(19), person),
+                requirement("short", 16, MONDAY, MONDAY.plusDays(5), person),
+                requirement("middle", 24, MONDAY.plusDays(2), MONDAY.plusDays(12), person)));
+    }
+
+    private static Requirement requirement(String name, int hours, LocalDate release, LocalDate deadline, Person person) {
+        Requirement requirement = new Requirement(name, hours, release, deadline, Collections.singletonList(person));
+        requirement.assertions().add(new Assertion(requirement, hours, release, deadline, person));
+        return requirement;
+    }
+
+    /**
+     * Runs of consecutive working days on which an assertion has hours, summed over the assertions.
+     */
+    private static int fragments(Collection<Allocation> schedule) {
+        Map<Assertion, SortedSet<LocalDate>> days = new IdentityHashMap<>();
+        schedule.forEach(allocation -> days.computeIfAbsent(allocation.assertion(), assertion -> new TreeSet<>()).add(allocation.getDay()));
+        WorkingCalendar calendar = WorkingCalendar.standard();
+        int runs = 0;
+        for (SortedSet<LocalDate> worked : days.values()) {
+            LocalDate previous = null;
+            for (LocalDate day : worked) {
+                if (previous == null || calendar.workingDays(previous.plusDays(1), day) > 0) {
+                    runs++;
+                }
+                previous = day;
+            }
+        }
+        return runs;
+    }
+}
@@ -0,0 +1,84 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.model.Person;
+import it.unifi.cassandra.scheduling.model.Requirement;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class OverlapAnalysisTest {
+    private static final WorkingCalendar CALENDAR = WorkingCalendar.standard();
+
+    @Test
+    public void matchesThePairwiseLoop() {
+        for (long seed = 1; seed <= 5; seed++) {
+            Set<Requirement> requirements = new ScenarioGenerator(seed).generate(4, 60, 0.1 * seed);
+            Map<Person, List<Assertion>> byPerson = requirements.stream()
+                    .flatMap(requirement -> requirement.assertions().stream())
+                    .collect(Collectors.groupingBy(Assertion::assignedPerson));
+            for (List<Assertion> assertions : byPerson.values()) {
+                OverlapAnalysis sweep = OverlapAnalysis.of(assertions, CALENDAR);
+
+                // the intersection of every pair, as highDemandStatistics used to compute it
+                int intersections = 0;
+                long workingDays = 0;
+                for (int i = 0; i < assertions.size(); i++) {
+                    for (int j = i + 1; j < assertions.size(); j++) {
+                        LocalDate start = max(assertions.get(i).releaseTime(), assertions.get(j).releaseTime());
+                        LocalDate end = min(assertions.get(i).deadline(), assertions.get(j).deadline());
+                        if (start.isBefore(end)) {
+                            intersections++;
+                            workingDays += CALENDAR.workingDays(start, end);
+                        }
+                    }
+                }
+                assertEquals(assertions.size(), sweep.assertions());
+                assertEquals(intersections, sweep.intersections());
+                assertEquals(workingDays, sweep.intersectionsWorkingDays());
+
+                int peak = 0;
+                LocalDate peakDay = null;
+                LocalDate first = assertions.stream().map(Assertion::releaseTime).min(LocalDate::compareTo).get();
+                LocalDate last = assertions.stream().map(Assertion::deadline).max(LocalDate::compareTo).get();
+                for (LocalDate day = first; day.isBefore(last); day = day.plusDays(1)) {
+                    LocalDate current = day;
+                    int active = (int) assertions.stream().filter(assertion -> !current.isBefore(assertion.releaseTime()) && current.isBefore(assertion.deadline())).count();
+                    if (active > peak) {
+                        peak = active;
+                        peakDay = day;
+                    }
+                }
+                assertEquals(peak, sweep.peakConcurrency());
+                assertEquals(peakDay, sweep.peakDay());
+            }
+        }
+    }
+
+    @Test
+    public void touchingIntervalsDoNotOverlap() {
+        Person person = new Researcher("researcher1");
+        Requirement requirement = new Requirement("proj", 16, LocalDate.of(2017, 1, 2), LocalDate.of(2017, 1, 6), Collections.singletonList(person));
+        List<Assertion> assertions = Arrays.asList(
+                new Assertion(requirement, 8, LocalDate.of(2017, 1, 2), LocalDate.of(2017, 1, 4), person),
+                new Assertion(requirement, 8, LocalDate.of(2017, 1, 4), LocalDate.of(2017, 1, 6), person));
+        OverlapAnalysis analysis = OverlapAnalysis.of(assertions, CALENDAR);
+        assertEquals(0, analysis.intersections());
+        assertEquals(1, analysis.peakConcurrency());
+        assertEquals(LocalDate.of(2017, 1, 2), analysis.peakDay());
+        assertNull(OverlapAnalysis.of(Collections.<Assertion>emptyList(), CALENDAR).peakDay());
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
@@ -0,0 +1,86 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.*;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class PartitionedSolverTest {
+    private static final LocalDate MONDAY = LocalDate.of(2017, 2, 6);
+
+    private final Person alice = new Researcher("alice");
+    private final Person bob = new Researcher("bob");
+    private final Person carol = new Researcher("carol");
+    private final Person dave = new Researcher("dave");
+
+    @Test
+    public void disjointGroupsAreSeparateComponents() {
+        Requirement first = requirement("first", alice);
+        Requirement second = requirement("second", alice, bob);
+        Requirement third = requirement("third", carol);
+        Requirement fourth = requirement("fourth", dave);
+        Requirement unassigned = requirement("unassigned");
+
+        List<Set<Requirement>> components = PartitionedSolver.components(new LinkedHashSet<>(Arrays.asList(first, third, second, fourth, unassigned)));
+        assertEquals(4, components.size());
+        assertEquals(new HashSet<>(Arrays.asList(first, second)), components.get(0));
+        assertTrue(components.contains(Collections.singleton(third)));
+        assertTrue(components.contains(Collections.singleton(fourth)));
+        assertTrue(components.contains(Collections.singleton(unassigned)));
+    }
+
+    @Test
+    public void aSharedResearcherJoinsComponents() {
+        Requirement first = requirement("first", alice);
+        Requirement second = requirement("second", bob);
+        Requirement third = requirement("third", carol);
+        Requirement bridge = requirement("bridge", bob, alice);
+
+        Set<Requirement> requirements = new LinkedHashSet<>(Arrays.asList(first, second, third));
+        assertEquals(3, PartitionedSolver.components(requirements).size());
+        requirements.add(bridge);
+        List<Set<Requirement>> components = PartitionedSolver.components(requirements);
+        assertEquals(Arrays.asList(new HashSet<>(Arrays.asList(first, second, bridge)), Collections.singleton(third)), components);
+    }
+
+    @Test
+    public void partitionedScheduleEqualsTheUnpartitionedOne() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (long seed = 0; seed < 10; seed++) {
+                Set<Requirement> requirements = Schedules.requirements(seed, 30, 12);
+                assertTrue(PartitionedSolver.components(requirements).size() > 1);
+                for (Algorithm algorithm : Arrays.asList(Algorithm.EDF, Algorithm.FED)) {
+                    assertEquals(seed + " " + algorithm, hours(algorithm.generateSchedule(Models.copy(requirements))),
+                            hours(PartitionedSolver.generateSchedule(Models.copy(requirements), algorithm, pool)));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Hours by requirement, person and day, comparable across copies of the requirement set.
+     */
+    private static Map<String, Integer> hours(Collection<Allocation> schedule) {
+        Map<String, Integer> hours = new TreeMap<>();
+        for (Allocation allocation : schedule) {
+            String key = allocation.assertion().requirement().name() + "|" + allocation.getPerson().getIdentifier() + "|" + allocation.getDay();
+            hours.merge(key, allocation.getHoursAmount(), Integer::sum);
+        }
+        return hours;
+    }
+
+    private static Requirement requirement(String name, Person... people) {
+        Requirement requirement = new Requirement(name, 8 * people.length, MONDAY, MONDAY.plusDays(14), Arrays.asList(people));
+        for (Person person : people) {
+            requirement.assertions().add(new Assertion(requirement, 8, MONDAY, MONDAY.plusDays(14), person));
+        }
+        return requirement;
+    }
+}
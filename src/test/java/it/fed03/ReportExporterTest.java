@@ -0,0 +1,90 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.model.Person;
+import it.unifi.cassandra.scheduling.model.Requirement;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class ReportExporterTest {
+    private static final String SCENARIO = "requirement,\"Report, \"\"final\"\"\",40,2017-02-06,2017-03-06,\"alice ;b\"\"ob\"\n"
+            + "assertion,\"Report, \"\"final\"\"\",24,2017-02-06,2017-02-20,\"alice \"\n"
+            + "assertion,\"Report, \"\"final\"\"\",16,2017-02-06,2017-03-06,\"b\"\"ob\"\n"
+            + "requirement,\"multi\nline\",8,2017-02-06,2017-02-13,carol\n"
+            + "assertion,\"multi\nline\",8,2017-02-06,2017-02-13,carol\n"
+            + "requirement,R~1^2\\3 & 50%,8,2017-02-06,2017-02-13,dave_d\n"
+            + "assertion,R~1^2\\3 & 50%,8,2017-02-06,2017-02-13,dave_d\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void csvReportsLoadBack() throws Exception {
+        Set<Requirement> requirements = ScenarioLoader.loadCsv(new StringReader(SCENARIO));
+        assertEquals(Arrays.asList("Report, \"final\"", "multi\nline", "R~1^2\\3 & 50%"),
+                requirements.stream().map(Requirement::name).collect(Collectors.toList()));
+        assertEquals(Arrays.asList("alice ", "b\"ob"),
+                requirements.iterator().next().assignedPeople().stream().map(Person::getIdentifier).collect(Collectors.toList()));
+
+        for (ReportExporter.Format format : Arrays.asList(ReportExporter.Format.CSV, ReportExporter.Format.JSON)) {
+            Path report = folder.getRoot().toPath().resolve("report." + format.name().toLowerCase());
+            ReportExporter.export(report, format, requirements, schedule(requirements));
+            assertEquals(describe(requirements), describe(ScenarioLoader.load(report)));
+        }
+    }
+
+    @Test
+    public void quotesCsvFieldsOnlyWhenNeeded() throws Exception {
+        Path report = folder.getRoot().toPath().resolve("report.csv");
+        ReportExporter.export(report, ReportExporter.Format.CSV, ScenarioLoader.loadCsv(new StringReader(SCENARIO)), null);
+        String csv = new String(Files.readAllBytes(report), StandardCharsets.UTF_8);
+        assertTrue(csv, csv.contains("requirement,\"Report, \"\"final\"\"\",40,2017-02-06,2017-03-06,\"alice ;b\"\"ob\"\n"));
+        assertTrue(csv, csv.contains("requirement,\"multi\nline\",8,"));
+        assertTrue(csv, csv.contains("assertion,R~1^2\\3 & 50%,8,2017-02-06,2017-02-13,dave_d\n"));
+    }
+
+    @Test
+    public void escapesLatexSpecialCharacters() throws Exception {
+        Set<Requirement> requirements = ScenarioLoader.loadCsv(new StringReader(SCENARIO));
+        Path report = folder.getRoot().toPath().resolve("report.tex");
+        ReportExporter.export(report, ReportExporter.Format.LATEX, requirements, schedule(requirements));
+        String tex = new String(Files.readAllBytes(report), StandardCharsets.UTF_8);
+        assertTrue(tex, tex.contains("R\\textasciitilde{}1\\textasciicircum{}2\\textbackslash{}3 \\& 50\\%"));
+        assertTrue(tex, tex.contains("dave\\_d"));
+        assertFalse(tex, tex.contains("R~"));
+    }
+
+    private static List<Allocation> schedule(Set<Requirement> requirements) {
+        List<Allocation> schedule = new ArrayList<>();
+        for (Requirement requirement : requirements) {
+            for (Assertion assertion : requirement.assertions()) {
+                schedule.add(new Allocation(assertion, assertion.releaseTime(), 8));
+            }
+        }
+        return schedule;
+    }
+
+    private static List<String> describe(Set<Requirement> requirements) {
+        List<String> description = new ArrayList<>();
+        for (Requirement requirement : requirements) {
+            description.add(requirement.name() + "|" + requirement.computationTime() + "|" + requirement.timeInterval().getStartInclusive()
+                    + "|" + requirement.timeInterval().getEndExclusive() + "|" + requirement.assignedPeople().stream().map(Person::getIdentifier).collect(Collectors.toList()));
+            for (Assertion assertion : requirement.assertions()) {
+                description.add(assertion.computationTime() + "|" + assertion.releaseTime() + "|" + assertion.deadline() + "|" + assertion.assignedPerson().getIdentifier());
+            }
+        }
+        Collections.sort(description);
+        return description;
+    }
+}
@@ -0,0 +1,166 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.*;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ReschedulingTest {
+    private static final LocalDate START = LocalDate.of(2017, 2, 6);
+
+    private final Person alice = new Researcher("alice");
+    private final Person bob = new Researcher("bob");
+    private final Person carol = new Researcher("carol");
+
+    @Test
+    public void addingARequirementMatchesAFullSolve() {
+        Set<Requirement> before = scenario();
+        Collection<Allocation> schedule = Algorithm.EDF.generateSchedule(before);
+        Set<Requirement> after = new LinkedHashSet<>(before);
+        Requirement added = requirement("R4", 40, START.plusDays(14), START.plusDays(42), alice);
+        after.add(added);
+
+        Rescheduling rescheduling = Rescheduling.apply(after, schedule, ScheduleDelta.addRequirement(added), Algorithm.EDF);
+        assertEquals(Collections.singleton(alice), rescheduling.affectedPeople());
+        assertEquals(START.plusDays(14), rescheduling.windowStart());
+        assertMatchesFullSolve(after, rescheduling);
+        assertUntouched(schedule, rescheduling, bob, carol);
+    }
+
+    @Test
+    public void removingARequirementMatchesAFullSolve() {
+        Set<Requirement> before = scenario();
+        Collection<Allocation> schedule = Algorithm.EDF.generateSchedule(before);
+        Requirement removed = before.iterator().next();
+        Set<Requirement> after = new LinkedHashSet<>(before);
+        after.remove(removed);
+
+        Rescheduling rescheduling = Rescheduling.apply(after, schedule, ScheduleDelta.removeRequirement(removed), Algorithm.EDF);
+        for (Allocation allocation : rescheduling.schedule()) {
+            assertNotSame(removed, allocation.assertion().requirement());
+        }
+        assertMatchesFullSolve(after, rescheduling);
+        assertUntouched(schedule, rescheduling, carol);
+    }
+
+    @Test
+    public void changingAnAssertionMatchesAFullSolve() {
+        Set<Requirement> before = scenario();
+        Collection<Allocation> schedule = Algorithm.EDF.generateSchedule(before);
+        Requirement changed = before.iterator().next();
+        Assertion previous = assertionOf(changed, bob);
+        Requirement replacement = requirement(changed.name(), 0, START, START.plusDays(35));
+        List<Assertion> assertions = new ArrayList<>();
+        for (Assertion assertion : changed.assertions()) {
+            assertions.add(assertion == previous
+                    ? new Assertion(replacement, assertion.computationTime() + 16, START.plusDays(7), START.plusDays(35), bob)
+                    : new Assertion(replacement, assertion.computationTime(), assertion.releaseTime(), assertion.deadline(), assertion.assignedPerson()));
+        }
+        replacement = withAssertions(replacement, assertions);
+        Set<Requirement> after = new LinkedHashSet<>(before);
+        after.remove(changed);
+        after.add(replacement);
+
+        Rescheduling rescheduling = Rescheduling.apply(after, schedule, ScheduleDelta.modifyRequirement(changed, replacement), Algorithm.EDF);
+        assertMatchesFullSolve(after, rescheduling);
+        assertEquals(rescheduling.keptAllocations() + rescheduling.addedAllocations(), rescheduling.schedule().size());
+    }
+
+    @Test
+    public void replansLateHoursOfAssertionsAlreadyDue() {
+        Requirement due = requirement("due", 16, START, START.plusDays(3), alice);
+        Requirement other = requirement("other", 8, START, START.plusDays(14), alice);
+        Set<Requirement> before = new LinkedHashSet<>(Arrays.asList(due, other));
+        Assertion late = due.assertions().iterator().next();
+        // 8 of the 16 hours were worked after the deadline
+        List<Allocation> schedule = new ArrayList<>(Arrays.asList(
+                new Allocation(late, START, 8),
+                new Allocation(late, START.plusDays(7), 8),
+                new Allocation(other.assertions().iterator().next(), START.plusDays(1), 8)));
+
+        Requirement added = requirement("added", 8, START.plusDays(7), START.plusDays(14), alice);
+        Set<Requirement> after = new LinkedHashSet<>(before);
+        after.add(added);
+        Rescheduling rescheduling = Rescheduling.apply(after, schedule, ScheduleDelta.addRequirement(added), Algorithm.EDF);
+        assertEquals(START.plusDays(7), rescheduling.windowStart());
+        assertEquals(hoursByAssertion(after), hoursOf(rescheduling.schedule()));
+    }
+
+    @Test
+    public void keepsTheScheduleForAnEmptyDelta() {
+        Set<Requirement> requirements = scenario();
+        Collection<Allocation> schedule = Algorithm.EDF.generateSchedule(requirements);
+        Rescheduling rescheduling = Rescheduling.apply(requirements, schedule, ScheduleDelta.addRequirement(requirement("none", 0, START, START.plusDays(7))), Algorithm.EDF);
+        assertEquals(schedule.size(), rescheduling.schedule().size());
+        assertEquals(0, rescheduling.touchedRatio(), 0);
+    }
+
+    private void assertMatchesFullSolve(Set<Requirement> requirements, Rescheduling rescheduling) {
+        Map<Assertion, Integer> expected = hoursByAssertion(requirements);
+        assertEquals(expected, hoursOf(Algorithm.EDF.generateSchedule(requirements)));
+        assertEquals(expected, hoursOf(rescheduling.schedule()));
+        Map<String, Integer> daily = new HashMap<>();
+        for (Allocation allocation : rescheduling.schedule()) {
+            assertFalse(allocation.getDay().isBefore(allocation.assertion().releaseTime()));
+            assertTrue(allocation.getDay().isBefore(allocation.assertion().deadline()));
+            int hours = daily.merge(allocation.getPerson().getIdentifier() + allocation.getDay(), allocation.getHoursAmount(), Integer::sum);
+            assertTrue(hours <= Algorithm.DAILY_CAPACITY);
+        }
+    }
+
+    private static void assertUntouched(Collection<Allocation> schedule, Rescheduling rescheduling, Person... people) {
+        Set<Person> untouched = new HashSet<>(Arrays.asList(people));
+        Set<Allocation> before = Collections.newSetFromMap(new IdentityHashMap<>());
+        schedule.stream().filter(allocation -> untouched.contains(allocation.getPerson())).forEach(before::add);
+        Set<Allocation> after = Collections.newSetFromMap(new IdentityHashMap<>());
+        rescheduling.schedule().stream().filter(allocation -> untouched.contains(allocation.getPerson())).forEach(after::add);
+        assertEquals(before, after);
+    }
+
+    private static Map<Assertion, Integer> hoursByAssertion(Set<Requirement> requirements) {
+        Map<Assertion, Integer> hours = new IdentityHashMap<>();
+        requirements.forEach(requirement -> requirement.assertions().forEach(assertion -> hours.put(assertion, assertion.computationTime())));
+        return hours;
+    }
+
+    private static Map<Assertion, Integer> hoursOf(Collection<Allocation> schedule) {
+        Map<Assertion, Integer> hours = new IdentityHashMap<>();
+        schedule.forEach(allocation -> hours.merge(allocation.assertion(), allocation.getHoursAmount(), Integer::sum));
+        return hours;
+    }
+
+    private Set<Requirement> scenario() {
+        return new LinkedHashSet<>(Arrays.asList(
+                requirement("R1", 80, START, START.plusDays(35), alice, bob),
+                requirement("R2", 40, START.plusDays(7), START.plusDays(28), bob),
+                requirement("R3", 56, START, START.plusDays(42), carol)));
+    }
+
+    private static Assertion assertionOf(Requirement requirement, Person person) {
+        return requirement.assertions().stream().filter(assertion -> assertion.assignedPerson() == person).findFirst().get();
+    }
+
+    /**
+     * A requirement split evenly, over its whole interval, among {@code people}.
+     */
+    private static Requirement requirement(String name, int hours, LocalDate start, LocalDate end, Person... people) {
+        Requirement requirement = new Requirement(name, hours, start, end, Arrays.asList(people));
+        List<Assertion> assertions = new ArrayList<>();
+        for (int i = 0; i < people.length; i++) {
+            assertions.add(new Assertion(requirement, hours / people.length + (i < hours % people.length ? 1 : 0), start, end, people[i]));
+        }
+        requirement.setAssertions(new AssertionCollection<>());
+        assertions.forEach(requirement.assertions()::add);
+        return requirement;
+    }
+
+    private static Requirement withAssertions(Requirement requirement, List<Assertion> assertions) {
+        AssertionCollection<Assertion> collection = new AssertionCollection<>();
+        assertions.forEach(collection::add);
+        requirement.setAssertions(collection);
+        return requirement;
+    }
+}
@@ -0,0 +1,80 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.*;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class RobustnessSimulationTest {
+    private static final LocalDate MONDAY = LocalDate.of(2017, 2, 6);
+
+    @Test
+    public void sameSeedIsReproducible() {
+        Set<Requirement> requirements = Schedules.requirements(11, 6, 12);
+        RobustnessSimulation first = RobustnessSimulation.run(requirements, Algorithm.EDF, 30, 42, 0.3, 0.4, 0.2, 5, 1);
+        RobustnessSimulation second = RobustnessSimulation.run(requirements, Algorithm.EDF, 30, 42, 0.3, 0.4, 0.2, 5, 3);
+        assertEquals(describe(first), describe(second));
+        assertTrue(first.resolvedPeopleRatio() > 0);
+    }
+
+    @Test
+    public void withoutPerturbationsEveryVariantIsTheBaseSchedule() {
+        Set<Requirement> requirements = Schedules.requirements(12, 6, 12);
+        RobustnessSimulation simulation = RobustnessSimulation.run(requirements, Algorithm.EDF, 20, 7, 0, 0.4, 0, 5, 2);
+        assertEquals(0, simulation.resolvedPeopleRatio(), 0);
+
+        Collection<Allocation> schedule = Algorithm.EDF.generateSchedule(Models.copy(requirements));
+        Map<String, Integer> hours = new HashMap<>();
+        Map<String, LocalDate> last = new HashMap<>();
+        for (Allocation allocation : schedule) {
+            String key = key(allocation.assertion());
+            hours.merge(key, allocation.getHoursAmount(), Integer::sum);
+            last.merge(key, allocation.getDay(), (a, b) -> a.isAfter(b) ? a : b);
+        }
+        int late = 0;
+        int unallocated = 0;
+        for (Requirement requirement : requirements) {
+            for (Assertion assertion : requirement.assertions()) {
+                int allocated = hours.getOrDefault(key(assertion), 0);
+                LocalDate completion = last.get(key(assertion));
+                unallocated += Math.max(0, assertion.computationTime() - allocated);
+                if (allocated < assertion.computationTime() || completion != null && !completion.isBefore(assertion.deadline())) {
+                    late++;
+                }
+            }
+        }
+        assertConstant(late, simulation.lateAssertions());
+        assertConstant(unallocated, simulation.unallocatedHours());
+    }
+
+    @Test
+    public void overloadOnEveryVariantIsAlwaysInfeasible() {
+        Person person = new Researcher("alice");
+        // exactly the capacity of the week, so any overrun overloads it
+        Requirement requirement = new Requirement("full", 40, MONDAY, MONDAY.plusDays(5), Collections.singletonList(person));
+        requirement.assertions().add(new Assertion(requirement, 40, MONDAY, MONDAY.plusDays(5), person));
+        Set<Requirement> requirements = Collections.singleton(requirement);
+        assertTrue(FeasibilityCheck.of(requirements, CapacityCalendar.standard()).isFeasible());
+
+        RobustnessSimulation simulation = RobustnessSimulation.run(requirements, Algorithm.EDF, 25, 3, 1, 0.5, 0, 0, 2);
+        assertEquals(1, simulation.infeasibilityRate(), 0);
+        assertEquals(1, simulation.resolvedPeopleRatio(), 0);
+    }
+
+    private static void assertConstant(double expected, RobustnessSimulation.Distribution distribution) {
+        assertEquals(expected, distribution.percentile(0), 0);
+        assertEquals(expected, distribution.max(), 0);
+    }
+
+    private static String key(Assertion assertion) {
+        return assertion.requirement().name() + "|" + assertion.assignedPerson().getIdentifier();
+    }
+
+    private static String describe(RobustnessSimulation simulation) {
+        return simulation.lateAssertions() + " " + simulation.unallocatedHours() + " " + simulation.maxLatenessDays() + " " + simulation.peakLoad()
+                + " " + simulation.infeasibilityRate() + " " + simulation.resolvedPeopleRatio();
+    }
+}
@@ -0,0 +1,110 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.model.Person;
+import it.unifi.cassandra.scheduling.model.Requirement;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class ScenarioLoaderTest {
+    private static final String CSV = "# scenario\n"
+            + "requirement,R1,40,2017-02-01,2017-03-01,alice;bob\n"
+            + "\n"
+            + "requirement,R2,16,2017-02-06,2017-02-20,bob\n"
+            + "assertion,R1,24,2017-02-01,2017-02-15,alice\n"
+            + "assertion,R1,16,2017-02-10,2017-03-01,bob\n"
+            + "assertion,R2,16,2017-02-06,2017-02-20,bob\n"
+            + "allocation,R2,bob,2017-02-06,8\n";
+
+    private static final String JSON = "{\"requirements\": ["
+            + "{\"name\": \"R1\", \"computationTime\": 40, \"start\": \"2017-02-01\", \"end\": \"2017-03-01\", \"assignedPeople\": [\"alice\", \"bob\"],"
+            + " \"assertions\": [{\"computationTime\": 24, \"releaseTime\": \"2017-02-01\", \"deadline\": \"2017-02-15\", \"assignedPerson\": \"alice\"},"
+            + " {\"computationTime\": 16, \"releaseTime\": \"2017-02-10\", \"deadline\": \"2017-03-01\", \"assignedPerson\": \"bob\"}]},"
+            + "{\"name\": \"R2\", \"computationTime\": 16, \"start\": \"2017-02-06\", \"end\": \"2017-02-20\", \"assignedPeople\": [\"bob\"], \"ignored\": {\"a\": [1]},"
+            + " \"assertions\": [{\"computationTime\": 16, \"releaseTime\": \"2017-02-06\", \"deadline\": \"2017-02-20\", \"assignedPerson\": \"bob\"}]}"
+            + "], \"version\": 1}";
+
+    @Test
+    public void loadsCsv() throws Exception {
+        assertScenario(ScenarioLoader.loadCsv(new StringReader(CSV)));
+    }
+
+    @Test
+    public void loadsJson() throws Exception {
+        assertScenario(ScenarioLoader.loadJson(new StringReader(JSON)));
+    }
+
+    @Test
+    public void csvAndJsonAgree() throws Exception {
+        assertEquals(describe(ScenarioLoader.loadCsv(new StringReader(CSV))), describe(ScenarioLoader.loadJson(new StringReader(JSON))));
+    }
+
+    @Test
+    public void rejectsEmptyResearcherNames() throws Exception {
+        assertMalformedCsv("requirement,R1,40,2017-02-01,2017-03-01,alice;;bob\n", "line 1");
+        assertMalformedCsv("requirement,R1,40,2017-02-01,2017-03-01,\n", "line 1");
+        assertMalformedCsv("requirement,R1,40,2017-02-01,2017-03-01,alice\n\nassertion,R1,40,2017-02-01,2017-03-01, \n", "line 3");
+        try {
+            ScenarioLoader.loadJson(new StringReader("[{\"name\": \"R1\", \"computationTime\": 8, \"start\": \"2017-02-01\", \"end\": \"2017-03-01\", \"assignedPeople\": [\"\"]}]"));
+            fail("empty researcher name accepted");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("R1"));
+            assertTrue(e.getMessage(), e.getMessage().contains("empty researcher name"));
+        }
+    }
+
+    @Test
+    public void reportsMalformedLines() throws Exception {
+        assertMalformedCsv("requirement,R1,forty,2017-02-01,2017-03-01,alice\n", "line 1");
+        assertMalformedCsv("requirement,R1,40,2017-02-01,2017-03-01,alice\nassertion,R2,8,2017-02-01,2017-03-01,alice\n", "line 2");
+        assertMalformedCsv("requirement,R1,40,2017-02-01,2017-03-01,alice\nrequirement,R1,40,2017-02-01,2017-03-01,alice\n", "line 2");
+        assertMalformedCsv("task,R1\n", "line 1");
+    }
+
+    private static void assertMalformedCsv(String csv, String line) throws Exception {
+        try {
+            ScenarioLoader.loadCsv(new StringReader(csv));
+            fail("malformed scenario accepted: " + csv);
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(line + ":"));
+        }
+    }
+
+    private static void assertScenario(Set<Requirement> requirements) {
+        List<Requirement> loaded = new ArrayList<>(requirements);
+        assertEquals(2, loaded.size());
+        Requirement first = loaded.get(0);
+        assertEquals("R1", first.name());
+        assertEquals(40, first.computationTime());
+        assertEquals(LocalDate.of(2017, 2, 1), first.timeInterval().getStartInclusive());
+        assertEquals(LocalDate.of(2017, 3, 1), first.timeInterval().getEndExclusive());
+        assertEquals(Arrays.asList("alice", "bob"), first.assignedPeople().stream().map(Person::getIdentifier).collect(Collectors.toList()));
+        assertEquals(2, first.assertions().size());
+
+        // the same researcher is shared between requirements and assertions
+        Person bob = first.assignedPeople().get(1);
+        Requirement second = loaded.get(1);
+        assertSame(bob, second.assignedPeople().get(0));
+        for (Assertion assertion : second.assertions()) {
+            assertSame(bob, assertion.assignedPerson());
+        }
+    }
+
+    private static List<String> describe(Set<Requirement> requirements) {
+        List<String> description = new ArrayList<>();
+        for (Requirement requirement : requirements) {
+            description.add(requirement.name() + " " + requirement.computationTime() + " " + requirement.timeInterval().getStartInclusive()
+                    + " " + requirement.timeInterval().getEndExclusive() + " " + requirement.assignedPeople().stream().map(Person::getIdentifier).collect(Collectors.toList()));
+            for (Assertion assertion : requirement.assertions()) {
+                description.add("  " + assertion.computationTime() + " " + assertion.releaseTime() + " " + assertion.deadline() + " " + assertion.assignedPerson().getIdentifier());
+            }
+        }
+        return description;
+    }
+}
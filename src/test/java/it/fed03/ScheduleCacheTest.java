@@ -0,0 +1,127 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.ScheduleGenerator;
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.model.Requirement;
+import it.unifi.cassandra.scheduling.solver.edf.EDFSchedulabilityAnalysis;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ScheduleCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void rebindsHitsToTheCallersModel() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        CountingGenerator generator = new CountingGenerator();
+        Set<Requirement> requirements = Schedules.requirements(1, 4, 12);
+        Collection<Allocation> solved = new ScheduleCache(4, directory).generateSchedule(requirements, 8, new EDFSchedulabilityAnalysis(), generator);
+
+        // an equal model built separately, read back from disk by a fresh cache
+        Set<Requirement> copy = Schedules.requirements(1, 4, 12);
+        Collection<Allocation> cached = new ScheduleCache(4, directory).generateSchedule(copy, 8, new EDFSchedulabilityAnalysis(), generator);
+        assertEquals(1, generator.calls);
+        assertEquals(describe(solved), describe(cached));
+        Set<Requirement> owners = cached.stream().map(allocation -> allocation.assertion().requirement()).collect(Collectors.toSet());
+        assertTrue(copy.containsAll(owners));
+    }
+
+    @Test
+    public void keysOnCapacityAndVersion() {
+        Set<Requirement> requirements = Schedules.requirements(2, 3, 6);
+        String key = ScheduleCache.key(ScheduleCache.canonicalAssertions(requirements), 8, new EDFSchedulabilityAnalysis(), new CountingGenerator());
+        assertEquals(key, ScheduleCache.key(ScheduleCache.canonicalAssertions(Schedules.requirements(2, 3, 6)), 8, new EDFSchedulabilityAnalysis(), new CountingGenerator()));
+        assertNotEquals(key, ScheduleCache.key(ScheduleCache.canonicalAssertions(requirements), 6, new EDFSchedulabilityAnalysis(), new CountingGenerator()));
+        assertNotEquals(key, ScheduleCache.key(ScheduleCache.canonicalAssertions(Schedules.requirements(3, 3, 6)), 8, new EDFSchedulabilityAnalysis(), new CountingGenerator()));
+    }
+
+    @Test
+    public void differentlyConfiguredGeneratorsMissEachOther() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        Set<Requirement> requirements = Schedules.requirements(5, 3, 6);
+        KeyedGenerator first = new KeyedGenerator("a");
+        KeyedGenerator second = new KeyedGenerator("b");
+        new ScheduleCache(4, directory).generateSchedule(requirements, 8, new EDFSchedulabilityAnalysis(), first);
+        new ScheduleCache(4, directory).generateSchedule(requirements, 8, new EDFSchedulabilityAnalysis(), second);
+        KeyedGenerator same = new KeyedGenerator("a");
+        new ScheduleCache(4, directory).generateSchedule(requirements, 8, new EDFSchedulabilityAnalysis(), same);
+        assertEquals(1, first.calls);
+        assertEquals(1, second.calls);
+        assertEquals(0, same.calls);
+
+        List<Assertion> assertions = ScheduleCache.canonicalAssertions(requirements);
+        String key = ScheduleCache.key(assertions, 8, new EDFSchedulabilityAnalysis(),
+                new OptimizingScheduler(OptimizingScheduler.Objective.FRAGMENTATION, 1000, 2));
+        assertEquals(key, ScheduleCache.key(assertions, 8, new EDFSchedulabilityAnalysis(),
+                new OptimizingScheduler(OptimizingScheduler.Objective.FRAGMENTATION, 1000, 2, CapacityCalendar.standard())));
+        CapacityCalendar partTime = CapacityCalendar.builder(8, WorkingCalendar.standard())
+                .capacity("researcher1", LocalDate.of(2017, 1, 2), LocalDate.of(2017, 2, 1), 4).build();
+        for (OptimizingScheduler other : Arrays.asList(
+                new OptimizingScheduler(OptimizingScheduler.Objective.PEAK_LOAD, 1000, 2),
+                new OptimizingScheduler(OptimizingScheduler.Objective.FRAGMENTATION, 2000, 2),
+                new OptimizingScheduler(OptimizingScheduler.Objective.FRAGMENTATION, 1000, 1),
+                new OptimizingScheduler(OptimizingScheduler.Objective.FRAGMENTATION, 1000, 2, partTime),
+                new OptimizingScheduler(OptimizingScheduler.Objective.FRAGMENTATION, 1000, 2,
+                        CapacityCalendar.uniform(8, new WorkingCalendar(Collections.singleton(LocalDate.of(2017, 4, 25))))))) {
+            assertNotEquals(key, ScheduleCache.key(assertions, 8, new EDFSchedulabilityAnalysis(), other));
+        }
+    }
+
+    @Test
+    public void staysInMemoryWithoutADirectory() throws Exception {
+        CountingGenerator generator = new CountingGenerator();
+        ScheduleCache cache = new ScheduleCache(4, null);
+        Set<Requirement> requirements = Schedules.requirements(4, 3, 6);
+        cache.generateSchedule(requirements, 8, new EDFSchedulabilityAnalysis(), generator);
+        cache.generateSchedule(requirements, 8, new EDFSchedulabilityAnalysis(), generator);
+        assertEquals(1, generator.calls);
+        cache.invalidate();
+        cache.generateSchedule(requirements, 8, new EDFSchedulabilityAnalysis(), generator);
+        assertEquals(2, generator.calls);
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private static List<String> describe(Collection<Allocation> schedule) {
+        return schedule.stream()
+                .map(allocation -> allocation.assertion().requirement().name() + " " + allocation.getPerson().getIdentifier() + " " + allocation.getDay() + " " + allocation.getHoursAmount())
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private static class KeyedGenerator extends CountingGenerator implements ScheduleCache.Keyed {
+        final String configuration;
+
+        KeyedGenerator(String configuration) {
+            this.configuration = configuration;
+        }
+
+        @Override
+        public String cacheKey() {
+            return configuration;
+        }
+    }
+
+    private static class CountingGenerator implements ScheduleGenerator {
+        int calls;
+
+        @Override
+        public Set<Allocation> generate(Set<Requirement> requirements, int capacity) {
+            calls++;
+            return new LinkedHashSet<>(Schedules.random(requirements, 7, 3));
+        }
+    }
+}
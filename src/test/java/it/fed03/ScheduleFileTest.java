@@ -0,0 +1,127 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.model.Requirement;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ScheduleFileTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTrips() throws Exception {
+        Set<Requirement> requirements = Schedules.requirements(5, 6, 20);
+        List<Allocation> schedule = Schedules.random(requirements, 5, 6);
+        Path path = folder.getRoot().toPath().resolve("schedule.bin");
+        ScheduleFile.write(path, requirements, schedule);
+        ScheduleFile file = ScheduleFile.open(path);
+
+        assertEquals(schedule.size(), file.size());
+        List<String> rows = new ArrayList<>();
+        for (int row = 0; row < file.size(); row++) {
+            int assertion = file.assertionId(row);
+            int requirement = file.assertionRequirement(assertion);
+            assertEquals(file.assertionPerson(assertion), file.personId(row));
+            if (row > 0) {
+                assertTrue(file.epochDay(row - 1) <= file.epochDay(row));
+            }
+            rows.add(file.requirementName(requirement) + " " + file.requirementComputationTime(requirement) + " " + file.requirementStart(requirement)
+                    + " " + file.requirementEnd(requirement) + " " + file.person(file.personId(row)) + " " + file.assertionComputationTime(assertion)
+                    + " " + file.assertionReleaseTime(assertion) + " " + file.assertionDeadline(assertion) + " " + file.day(row) + " " + file.hours(row));
+        }
+        Collections.sort(rows);
+        assertEquals(describe(schedule), rows);
+    }
+
+    @Test
+    public void roundTripsAnEmptySchedule() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("empty.bin");
+        ScheduleFile.write(path, Collections.emptySet(), Collections.emptyList());
+        ScheduleFile file = ScheduleFile.open(path);
+        assertEquals(0, file.size());
+        assertEquals(0, file.peopleCount());
+        assertEquals(0, file.assertionCount());
+    }
+
+    @Test
+    public void keepsUnallocatedAssertionsAndRequirements() throws Exception {
+        Set<Requirement> requirements = Schedules.requirements(8, 4, 6);
+        Iterator<Requirement> iterator = requirements.iterator();
+        Requirement allocated = iterator.next();
+        Assertion unallocated = iterator.next().assertions().get(0);
+        List<Allocation> schedule = Schedules.random(requirements, 8, 3).stream()
+                .filter(allocation -> allocation.assertion() != unallocated && allocation.assertion().requirement() == allocated)
+                .collect(Collectors.toList());
+        Path path = folder.getRoot().toPath().resolve("schedule.bin");
+        ScheduleFile.write(path, requirements, schedule);
+        ScheduleFile file = ScheduleFile.open(path);
+
+        assertEquals(schedule.size(), file.size());
+        assertEquals(requirements.size(), file.requirementCount());
+        assertEquals(requirements.stream().mapToInt(requirement -> requirement.assertions().size()).sum(), file.assertionCount());
+        List<String> assertions = new ArrayList<>();
+        for (int a = 0; a < file.assertionCount(); a++) {
+            assertions.add(file.requirementName(file.assertionRequirement(a)) + " " + file.person(file.assertionPerson(a)) + " " + file.assertionComputationTime(a)
+                    + " " + file.assertionReleaseTime(a) + " " + file.assertionDeadline(a));
+        }
+        assertTrue(assertions.contains(unallocated.requirement().name() + " " + unallocated.assignedPerson().getIdentifier() + " " + unallocated.computationTime()
+                + " " + unallocated.releaseTime() + " " + unallocated.deadline()));
+        assertEquals(requirements.stream().map(Requirement::name).sorted().collect(Collectors.toList()),
+                file.requirements().stream().map(Requirement::name).sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void leavesNoTemporaryFileOnFailure() throws Exception {
+        Set<Requirement> requirements = Schedules.requirements(6, 2, 2);
+        Assertion assertion = requirements.iterator().next().assertions().iterator().next();
+        Path path = folder.getRoot().toPath().resolve("schedule.bin");
+        try {
+            ScheduleFile.write(path, requirements, Collections.singletonList(new Allocation(assertion, assertion.releaseTime(), Short.MAX_VALUE + 1)));
+            fail("oversized allocation written");
+        } catch (IllegalArgumentException expected) {
+        }
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void rejectsTruncatedFiles() throws Exception {
+        Set<Requirement> requirements = Schedules.requirements(7, 3, 6);
+        Path path = folder.getRoot().toPath().resolve("schedule.bin");
+        ScheduleFile.write(path, requirements, Schedules.random(requirements, 7, 4));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        try {
+            ScheduleFile.open(path);
+            fail("truncated file opened");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Truncated schedule file"));
+        }
+    }
+
+    private static List<String> describe(List<Allocation> schedule) {
+        return schedule.stream().map(allocation -> {
+            Assertion assertion = allocation.assertion();
+            Requirement requirement = assertion.requirement();
+            return requirement.name() + " " + requirement.computationTime() + " " + requirement.timeInterval().getStartInclusive()
+                    + " " + requirement.timeInterval().getEndExclusive() + " " + allocation.getPerson().getIdentifier() + " " + assertion.computationTime()
+                    + " " + assertion.releaseTime() + " " + assertion.deadline() + " " + allocation.getDay() + " " + allocation.getHoursAmount();
+        }).sorted().collect(Collectors.toList());
+    }
+}
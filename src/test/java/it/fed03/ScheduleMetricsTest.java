@@ -0,0 +1,75 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.model.Requirement;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ScheduleMetricsTest {
+    // 2017-02-06 is a Monday
+    private static final String SCENARIO = "requirement,R1,40,2017-02-06,2017-03-06,alice;bob;carol\n"
+            + "assertion,R1,16,2017-02-06,2017-02-13,alice\n"
+            + "assertion,R1,16,2017-02-06,2017-02-13,bob\n"
+            + "assertion,R1,8,2017-02-06,2017-02-08,carol\n";
+
+    @Test
+    public void countsUnfinishedAssertionsAsLate() throws Exception {
+        Set<Requirement> requirements = ScenarioLoader.loadCsv(new StringReader(SCENARIO));
+        Map<String, Assertion> assertions = assertions(requirements);
+        List<Allocation> schedule = Arrays.asList(
+                // complete and on time
+                new Allocation(assertions.get("alice"), LocalDate.of(2017, 2, 6), 8),
+                new Allocation(assertions.get("alice"), LocalDate.of(2017, 2, 7), 8),
+                // on time but 8 hours short
+                new Allocation(assertions.get("bob"), LocalDate.of(2017, 2, 6), 8),
+                // complete but a working day after its deadline
+                new Allocation(assertions.get("carol"), LocalDate.of(2017, 2, 8), 8));
+
+        ScheduleMetrics metrics = ScheduleMetrics.of(requirements, schedule);
+        assertEquals(2, metrics.lateAssertions());
+        assertEquals(8, metrics.unallocatedHours());
+        assertEquals(-1, metrics.minSlack());
+        assertEquals(1.0, metrics.averageFragments(), 0);
+    }
+
+    @Test
+    public void countsAssertionsWithoutAllocationsAsLate() throws Exception {
+        Set<Requirement> requirements = ScenarioLoader.loadCsv(new StringReader(SCENARIO));
+        ScheduleMetrics metrics = ScheduleMetrics.of(requirements, Collections.emptyList());
+        assertEquals(3, metrics.lateAssertions());
+        assertEquals(40, metrics.unallocatedHours());
+        assertEquals(0, metrics.minSlack());
+        assertTrue(metrics.personLoad().isEmpty());
+    }
+
+    @Test
+    public void loadsWithoutCapacityAreZero() throws Exception {
+        Set<Requirement> requirements = ScenarioLoader.loadCsv(new StringReader(SCENARIO));
+        Map<String, Assertion> assertions = assertions(requirements);
+        List<Allocation> schedule = Arrays.asList(
+                new Allocation(assertions.get("alice"), LocalDate.of(2017, 2, 6), 4),
+                // a Saturday, closed in the standard calendar
+                new Allocation(assertions.get("bob"), LocalDate.of(2017, 2, 11), 8));
+
+        Map<String, Double> loads = new HashMap<>();
+        ScheduleMetrics.of(requirements, schedule).personLoad().forEach((person, load) -> loads.put(person.getIdentifier(), load));
+        assertEquals(0.5, loads.get("alice"), 1e-9);
+        assertEquals(0.0, loads.get("bob"), 0);
+    }
+
+    private static Map<String, Assertion> assertions(Set<Requirement> requirements) {
+        Map<String, Assertion> assertions = new HashMap<>();
+        for (Requirement requirement : requirements) {
+            for (Assertion assertion : requirement.assertions()) {
+                assertions.put(assertion.assignedPerson().getIdentifier(), assertion);
+            }
+        }
+        return assertions;
+    }
+}
@@ -0,0 +1,47 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Requirement;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ScheduleStreamTest {
+    private final Set<Requirement> requirements = Schedules.requirements(7, 8, 40);
+
+    @Test
+    public void streamsTheWholeScheduleInDayOrder() {
+        for (Algorithm algorithm : Arrays.asList(Algorithm.EDF, Algorithm.FED)) {
+            List<Allocation> streamed;
+            try (Stream<Allocation> allocations = ScheduleStream.of(requirements, algorithm)) {
+                streamed = allocations.collect(Collectors.toList());
+            }
+            assertFalse(streamed.isEmpty());
+            for (int i = 1; i < streamed.size(); i++) {
+                assertFalse(streamed.get(i).getDay().isBefore(streamed.get(i - 1).getDay()));
+            }
+            assertEquals(describe(PartitionedSolver.generateSchedule(requirements, algorithm)), describe(streamed));
+        }
+    }
+
+    @Test
+    public void stopsWhenClosedEarly() {
+        Iterator<Allocation> iterator;
+        try (Stream<Allocation> allocations = ScheduleStream.of(requirements, Algorithm.FED)) {
+            iterator = allocations.iterator();
+            assertTrue(iterator.hasNext());
+            iterator.next();
+        }
+        assertFalse(iterator.hasNext());
+    }
+
+    private static List<String> describe(Collection<Allocation> schedule) {
+        return schedule.stream()
+                .map(allocation -> allocation.getDay() + "|" + allocation.assertion().requirement().name() + "|" + allocation.getPerson().getIdentifier() + "|" + allocation.getHoursAmount())
+                .sorted().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,41 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Assertion;
+import it.unifi.cassandra.scheduling.model.Requirement;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Random schedules for tests, built without a solver: every assertion gets up to {@code days}
+ * allocations of 1 to 8 hours on distinct days of its window.
+ */
+class Schedules {
+    private Schedules() {
+    }
+
+    static Set<Requirement> requirements(long seed, int researchers, int requirements) {
+        return new ScenarioGenerator(seed).generate(researchers, requirements, 0.2);
+    }
+
+    static List<Allocation> random(Set<Requirement> requirements, long seed, int days) {
+        Random random = new Random(seed);
+        List<Allocation> schedule = new ArrayList<>();
+        for (Requirement requirement : requirements) {
+            for (Assertion assertion : requirement.assertions()) {
+                int length = (int) (assertion.deadline().toEpochDay() - assertion.releaseTime().toEpochDay());
+                Set<Integer> offsets = new TreeSet<>();
+                for (int i = 0; i < days; i++) {
+                    offsets.add(random.nextInt(length));
+                }
+                for (int offset : offsets) {
+                    LocalDate day = assertion.releaseTime().plusDays(offset);
+                    schedule.add(new Allocation(assertion, day, 1 + random.nextInt(8)));
+                }
+            }
+        }
+        Collections.shuffle(schedule, random);
+        return schedule;
+    }
+}
@@ -0,0 +1,132 @@
+package it.fed03;
+
+import org.jfree.chart.axis.DateTickUnit;
+import org.jfree.chart.axis.DateTickUnitType;
+import org.jfree.data.time.TimeSeries;
+import org.jfree.data.time.TimeSeriesDataItem;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class TimeSeriesBuilderTest {
+    private static final LocalDate FIRST = LocalDate.of(2014, 11, 3);
+    private static final int DAYS = 4 * 365;
+
+    private final Locale locale = Locale.getDefault();
+
+    @After
+    public void restoreLocale() {
+        Locale.setDefault(locale);
+    }
+
+    @Test
+    public void keepsEveryPointWithoutReduction() {
+        TimeSeries series = build(TimeSeriesBuilder.Reduction.NONE, new DateTickUnit(DateTickUnitType.DAY, 7));
+        assertEquals(weekdays(), series.getItemCount());
+        assertEquals(totalHours(), sum(series));
+    }
+
+    @Test
+    public void bucketsIntoIsoWeeksInAnyLocale() {
+        for (Locale weekLocale : Arrays.asList(Locale.US, Locale.ITALY, Locale.UK)) {
+            Locale.setDefault(weekLocale);
+            TimeSeries series = build(TimeSeriesBuilder.Reduction.BUCKET, new DateTickUnit(DateTickUnitType.DAY, 7));
+            Set<LocalDate> mondays = new TreeSet<>();
+            for (int i = 0; i < DAYS; i++) {
+                if (hours(i) > 0) {
+                    mondays.add(FIRST.plusDays(i).with(DayOfWeek.MONDAY));
+                }
+            }
+            assertEquals(mondays.size(), series.getItemCount());
+            assertEquals(totalHours(), sum(series));
+            Iterator<LocalDate> monday = mondays.iterator();
+            for (int i = 0; i < series.getItemCount(); i++) {
+                // every bucket is the week holding its ISO Monday, also across week 53 of 2015
+                long start = monday.next().atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                assertTrue(series.getTimePeriod(i).getFirstMillisecond() <= start);
+                assertTrue(start <= series.getTimePeriod(i).getLastMillisecond());
+            }
+        }
+    }
+
+    @Test
+    public void bucketsIntoMonthsForWideTicks() {
+        TimeSeries series = build(TimeSeriesBuilder.Reduction.BUCKET, new DateTickUnit(DateTickUnitType.MONTH, 2));
+        Set<YearMonth> months = new HashSet<>();
+        for (int i = 0; i < DAYS; i++) {
+            months.add(YearMonth.from(FIRST.plusDays(i)));
+        }
+        assertEquals(months.size(), series.getItemCount());
+        assertEquals(totalHours(), sum(series));
+    }
+
+    @Test
+    public void downsamplesToPointsPerTick() {
+        DateTickUnit tickUnit = new DateTickUnit(DateTickUnitType.MONTH, 1);
+        TimeSeries series = build(TimeSeriesBuilder.Reduction.LTTB, tickUnit);
+        int ticks = (int) Math.ceil((double) DAYS * 24 * 60 * 60 * 1000 / tickUnit.getSize());
+        assertTrue(series.getItemCount() <= ticks * TimeSeriesBuilder.POINTS_PER_TICK);
+        assertTrue(series.getItemCount() < weekdays() / 2);
+        TimeSeries full = build(TimeSeriesBuilder.Reduction.NONE, tickUnit);
+        assertEquals(full.getDataItem(0), series.getDataItem(0));
+        assertEquals(full.getDataItem(full.getItemCount() - 1), series.getDataItem(series.getItemCount() - 1));
+        for (int i = 0; i < series.getItemCount(); i++) {
+            TimeSeriesDataItem item = series.getDataItem(i);
+            assertEquals(full.getDataItem(item.getPeriod()).getValue(), item.getValue());
+        }
+    }
+
+    @Test
+    public void fallsBackToNoReduction() {
+        assertEquals(TimeSeriesBuilder.Reduction.LTTB, TimeSeriesBuilder.reduction(" lttb"));
+        assertEquals(TimeSeriesBuilder.Reduction.BUCKET, TimeSeriesBuilder.reduction("Bucket"));
+        assertEquals(TimeSeriesBuilder.Reduction.NONE, TimeSeriesBuilder.reduction("weekly"));
+    }
+
+    private static TimeSeries build(TimeSeriesBuilder.Reduction reduction, DateTickUnit tickUnit) {
+        return new TimeSeriesBuilder(reduction, tickUnit).build("hours", consumer -> {
+            for (int i = 0; i < DAYS; i++) {
+                if (hours(i) > 0) {
+                    consumer.accept(FIRST.plusDays(i), hours(i));
+                }
+            }
+        });
+    }
+
+    // hours on weekdays only, so that bucketed weeks start on their Monday
+    private static int hours(int day) {
+        DayOfWeek weekday = FIRST.plusDays(day).getDayOfWeek();
+        return weekday == DayOfWeek.SATURDAY || weekday == DayOfWeek.SUNDAY ? 0 : 1 + (day * 7919) % 8;
+    }
+
+    private static int weekdays() {
+        int weekdays = 0;
+        for (int i = 0; i < DAYS; i++) {
+            weekdays += hours(i) > 0 ? 1 : 0;
+        }
+        return weekdays;
+    }
+
+    private static long totalHours() {
+        long total = 0;
+        for (int i = 0; i < DAYS; i++) {
+            total += hours(i);
+        }
+        return total;
+    }
+
+    private static long sum(TimeSeries series) {
+        long total = 0;
+        for (int i = 0; i < series.getItemCount(); i++) {
+            total += series.getValue(i).longValue();
+        }
+        return total;
+    }
+}
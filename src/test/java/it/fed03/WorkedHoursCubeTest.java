@@ -0,0 +1,99 @@
+package it.fed03;
+
+import it.unifi.cassandra.scheduling.model.Allocation;
+import it.unifi.cassandra.scheduling.model.Person;
+import it.unifi.cassandra.scheduling.model.Requirement;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertEquals;
+
+public class WorkedHoursCubeTest {
+    private final Set<Requirement> requirements = Schedules.requirements(3, 6, 30);
+    private final List<Allocation> schedule = Schedules.random(requirements, 3, 40);
+    private final WorkedHoursCube cube = new WorkedHoursCube(schedule);
+
+    @Test
+    public void rangeSumsMatchNaiveSums() {
+        Random random = new Random(5);
+        LocalDate origin = LocalDate.of(2016, 12, 1);
+        for (int i = 0; i < 2000; i++) {
+            LocalDate start = origin.plusDays(random.nextInt(800));
+            LocalDate end = start.plusDays(random.nextInt(200) - 20);
+            assertEquals(naive(start, end, allocation -> true), cube.totalHoursBetween(start, end));
+            for (Person person : cube.people()) {
+                assertEquals(naive(start, end, allocation -> allocation.getPerson() == person), cube.personHoursBetween(person, start, end));
+            }
+            for (Requirement requirement : cube.requirements()) {
+                assertEquals(naive(start, end, allocation -> allocation.assertion().requirement() == requirement), cube.requirementHoursBetween(requirement, start, end));
+                for (Person person : cube.peopleOf(requirement)) {
+                    assertEquals(naive(start, end, allocation -> allocation.getPerson() == person && allocation.assertion().requirement() == requirement),
+                            cube.personRequirementHoursBetween(person, requirement, start, end));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void dailySeriesMatchNaiveSums() {
+        for (Person person : cube.people()) {
+            Map<LocalDate, Integer> expected = new TreeMap<>();
+            schedule.stream().filter(allocation -> allocation.getPerson() == person)
+                    .forEach(allocation -> expected.merge(allocation.getDay(), allocation.getHoursAmount(), Integer::sum));
+            Map<LocalDate, Integer> actual = new TreeMap<>();
+            cube.personHours(person, actual::put);
+            assertEquals(expected, actual);
+        }
+        Map<LocalDate, Integer> expected = new TreeMap<>();
+        schedule.forEach(allocation -> expected.merge(allocation.getDay(), allocation.getHoursAmount(), Integer::sum));
+        Map<LocalDate, Integer> actual = new TreeMap<>();
+        cube.totalHours(actual::put);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void dayOrderedCubesMatchListCubes() {
+        List<Allocation> sorted = new ArrayList<>(schedule);
+        sorted.sort(Comparator.comparing(Allocation::getDay));
+        WorkedHoursCube[] cubes = WorkedHoursCube.ofDayOrdered(sorted.iterator(), 0.5);
+        WorkedHoursCube split = new WorkedHoursCube(sorted.subList(0, (int) Math.ceil(sorted.size() * 0.5)));
+        LocalDate start = LocalDate.of(2016, 1, 1);
+        LocalDate end = LocalDate.of(2020, 1, 1);
+        assertEquals(split.totalHoursBetween(start, end), cubes[0].totalHoursBetween(start, end));
+        assertEquals(cube.totalHoursBetween(start, end), cubes[1].totalHoursBetween(start, end));
+        for (Person person : cube.people()) {
+            assertEquals(cube.personHoursBetween(person, start, end), cubes[1].personHoursBetween(person, start, end));
+        }
+    }
+
+    @Test
+    public void unorderedCubesSplitByDay() {
+        List<Allocation> sorted = new ArrayList<>(schedule);
+        sorted.sort(Comparator.comparing(Allocation::getDay));
+        WorkedHoursCube[] cubes = WorkedHoursCube.of(schedule, 0.5);
+        WorkedHoursCube split = new WorkedHoursCube(sorted.subList(0, (int) Math.ceil(sorted.size() * 0.5)));
+        LocalDate start = LocalDate.of(2016, 1, 1);
+        LocalDate end = LocalDate.of(2020, 1, 1);
+        assertEquals(split.people(), cubes[0].people());
+        for (Person person : split.people()) {
+            Map<LocalDate, Integer> expected = new TreeMap<>();
+            split.personHours(person, expected::put);
+            Map<LocalDate, Integer> actual = new TreeMap<>();
+            cubes[0].personHours(person, actual::put);
+            assertEquals(expected, actual);
+        }
+        for (Person person : cube.people()) {
+            assertEquals(cube.personHoursBetween(person, start, end), cubes[1].personHoursBetween(person, start, end));
+        }
+    }
+
+    private int naive(LocalDate start, LocalDate end, Predicate<Allocation> filter) {
+        return schedule.stream()
+                .filter(allocation -> !allocation.getDay().isBefore(start) && allocation.getDay().isBefore(end))
+                .filter(filter)
+                .mapToInt(Allocation::getHoursAmount).sum();
+    }
+}
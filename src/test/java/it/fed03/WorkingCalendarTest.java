@@ -0,0 +1,74 @@
+package it.fed03;
+
+import org.junit.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class WorkingCalendarTest {
+    private static final LocalDate INDEX_START = LocalDate.of(1990, 1, 1);
+    private static final LocalDate INDEX_END = LocalDate.of(2100, 1, 1);
+
+    @Test
+    public void workingDaysMatchADayLoop() {
+        Random random = new Random(13);
+        Set<LocalDate> holidays = new HashSet<>();
+        for (LocalDate around : Arrays.asList(LocalDate.of(1970, 6, 1), INDEX_START, LocalDate.of(2017, 2, 6), INDEX_END, LocalDate.of(2130, 6, 1))) {
+            for (int i = 0; i < 20; i++) {
+                holidays.add(around.plusDays(random.nextInt(60) - 30));
+            }
+        }
+        holidays.add(INDEX_START);
+        holidays.add(INDEX_END.minusDays(1));
+        holidays.add(INDEX_END);
+
+        for (Set<LocalDate> calendarHolidays : Arrays.asList(Collections.<LocalDate>emptySet(), holidays)) {
+            WorkingCalendar calendar = new WorkingCalendar(calendarHolidays);
+            // inside the index, outside it on either side, straddling either boundary and spanning it whole
+            LocalDate[][] ranges = {
+                    {LocalDate.of(2017, 1, 1), LocalDate.of(2017, 3, 1)},
+                    {LocalDate.of(1960, 1, 1), LocalDate.of(1980, 1, 1)},
+                    {LocalDate.of(2110, 1, 1), LocalDate.of(2150, 1, 1)},
+                    {INDEX_START.minusDays(40), INDEX_START.plusDays(40)},
+                    {INDEX_END.minusDays(40), INDEX_END.plusDays(40)},
+                    {LocalDate.of(1970, 1, 1), LocalDate.of(2140, 1, 1)}};
+            for (LocalDate[] range : ranges) {
+                for (int query = 0; query < 200; query++) {
+                    int length = (int) (range[1].toEpochDay() - range[0].toEpochDay());
+                    LocalDate start = range[0].plusDays(random.nextInt(length));
+                    LocalDate end = start.plusDays(random.nextInt(query % 10 == 0 ? length : 90));
+                    assertEquals(start + " " + end, naive(calendarHolidays, start, end), calendar.workingDays(start, end));
+                }
+            }
+            for (LocalDate boundary : Arrays.asList(INDEX_START, INDEX_END)) {
+                for (LocalDate day = boundary.minusDays(14); day.isBefore(boundary.plusDays(14)); day = day.plusDays(1)) {
+                    assertEquals(day.toString(), naive(calendarHolidays, day, day.plusDays(1)) == 1, calendar.isWorkingDay(day));
+                    assertEquals(day + " " + boundary, naive(calendarHolidays, day, boundary.plusDays(7)), calendar.workingDays(day, boundary.plusDays(7)));
+                }
+            }
+            assertEquals(0, calendar.workingDays(INDEX_END, INDEX_START));
+        }
+    }
+
+    @Test
+    public void standardCalendarCountsWeekdays() {
+        WorkingCalendar calendar = WorkingCalendar.standard();
+        LocalDate monday = LocalDate.of(2017, 2, 6);
+        assertEquals(5, calendar.workingDays(monday, monday.plusDays(7)));
+        assertEquals(0, calendar.workingDays(monday.plusDays(5), monday.plusDays(7)));
+        assertEquals(10, calendar.workingDays(monday.minusDays(2), monday.plusDays(12)));
+    }
+
+    private static int naive(Set<LocalDate> holidays, LocalDate start, LocalDate end) {
+        int days = 0;
+        for (LocalDate day = start; day.isBefore(end); day = day.plusDays(1)) {
+            if (day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY && !holidays.contains(day)) {
+                days++;
+            }
+        }
+        return days;
+    }
+}